@@ -0,0 +1,61 @@
+package statetable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BooleanEvaluatorBenchmark {
+    @Param({"1", "4", "16"})
+    public int terms;
+
+    private String expression;
+    private String[] expressions;
+    private CompiledExpression compiled;
+    private final int[] inputs = {1, 0, 1, 1};
+    private final int[] states = {0, 1, 1, 0};
+    private int row;
+
+    @Setup
+    public void setUp() {
+        expression = Expressions.sumOfProducts(terms);
+        expressions = new String[]{expression, Expressions.sumOfProducts(terms + 1)};
+        compiled = BooleanEvaluator.compile(expression);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return BooleanEvaluator.evaluate(expression, inputs, states);
+    }
+
+    @Benchmark
+    public int[] evaluateMultiple() {
+        return BooleanEvaluator.evaluateMultiple(expressions, inputs, states);
+    }
+
+    @Benchmark
+    public CompiledExpression compile() {
+        return BooleanEvaluator.compile(expression);
+    }
+
+    @Benchmark
+    public int evaluateCompiled() {
+        row = (row + 1) & 0xFF;
+        return compiled.evaluate(row & 0xF, row >>> 4);
+    }
+}
@@ -0,0 +1,19 @@
+package statetable;
+
+// Deterministic expressions of a given number of product terms over X0..X3 and Q0..Q3
+final class Expressions {
+    private Expressions() {
+    }
+
+    static String sumOfProducts(int terms) {
+        StringBuilder expression = new StringBuilder();
+        for (int t = 0; t < terms; t++) {
+            if (t > 0) expression.append(" + ");
+            expression.append('X').append(t % 4).append(" * ");
+            if (t % 3 == 0) expression.append('-');
+            expression.append('Q').append((t / 4 + t) % 4);
+            if (t % 2 == 1) expression.append(" * -(X").append((t + 1) % 4).append(" + Q").append((t + 2) % 4).append(')');
+        }
+        return expression.toString();
+    }
+}
@@ -0,0 +1,59 @@
+package statetable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FlipFlopLogicBenchmark {
+    @Param({"SR", "JK", "D", "T"})
+    public String type;
+
+    private String function;
+    private CompiledExpression[] compiled;
+    private Circuit circuit;
+    private final int[] inputs = {1, 0, 1, 1};
+    private final int[] states = {0, 1, 1, 0};
+    private int row;
+
+    @Setup
+    public void setUp() {
+        String first = Expressions.sumOfProducts(3);
+        function = type.length() == 2 ? first + "\n" + Expressions.sumOfProducts(2) : first;
+        compiled = FlipFlopLogic.compileFunctions(type, function);
+        circuit = Circuit.compile(4, FlipFlopKind.parse(type, 4), new String[]{function, function, function, function}, new String[0]);
+    }
+
+    @Benchmark
+    public int getNextState() {
+        return FlipFlopLogic.getNextState(type, inputs, states, function);
+    }
+
+    @Benchmark
+    public int getNextStateCompiled() {
+        row = (row + 1) & 0xFF;
+        return FlipFlopLogic.getNextState(type, row & 3, row & 0xF, row >>> 4, compiled);
+    }
+
+    // All four flip-flops of a circuit in one call
+    @Benchmark
+    public long circuitNextState() {
+        row = (row + 1) & 0xFF;
+        return circuit.nextState(row & 0xF, row >>> 4);
+    }
+}
@@ -0,0 +1,30 @@
+package statetable;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+// Discards everything written to it, so writer benchmarks measure encoding rather than I/O
+final class NullChannel implements WritableByteChannel {
+    private long bytes;
+
+    @Override
+    public int write(ByteBuffer src) {
+        int n = src.remaining();
+        src.position(src.limit());
+        bytes += n;
+        return n;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+    }
+}
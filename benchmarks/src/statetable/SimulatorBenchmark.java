@@ -0,0 +1,75 @@
+package statetable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Simulation throughput in cycles per microsecond (x 10^6 = cycles per second). Up to
+// Simulator.LOOKUP_VARIABLES variables a cycle is a table lookup; above that it evaluates
+// the circuit's fused functions.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SimulatorBenchmark {
+    private static final int BATCH = Simulator.DEFAULT_BATCH_SIZE;
+
+    // Total variables, split between flip-flops and inputs
+    @Param({"8", "20", "32"})
+    public int variables;
+
+    @Param({"JK", "D"})
+    public String type;
+
+    private Simulator simulator;
+    private final long[] batch = new long[BATCH];
+
+    @Setup
+    public void setUp() {
+        int flipFlops = variables / 2;
+        int inputs = variables - flipFlops;
+        String[] functions = new String[flipFlops];
+        for (int i = 0; i < flipFlops; i++) {
+            String first = "X" + (i % inputs) + " * Q" + ((i + 1) % flipFlops) + " + -X" + ((i + 1) % inputs);
+            String second = "Q" + i + " * -X" + ((i + 2) % inputs);
+            functions[i] = type.length() == 2 ? first + "\n" + second : first;
+        }
+        StateTableGenerator generator = new StateTableGenerator(flipFlops, inputs, 1, type, functions, "X0 * Q" + (flipFlops - 1));
+        simulator = new Simulator(generator);
+        simulator.reset(0);
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < BATCH; i++) batch[i] = random.nextLong();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long step() {
+        long state = 0;
+        for (int i = 0; i < BATCH; i++) {
+            state ^= simulator.step(batch[i]);
+        }
+        return state;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long run() {
+        simulator.run(batch, BATCH, null);
+        return simulator.state();
+    }
+}
@@ -0,0 +1,87 @@
+package statetable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end table generation; output goes to a null sink so I/O does not dominate
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StateTableGeneratorBenchmark {
+    // Total variables, split between flip-flops and inputs
+    @Param({"4", "8", "12", "16"})
+    public int variables;
+
+    @Param({"JK", "D"})
+    public String type;
+
+    private StateTableGenerator generator;
+
+    @Setup
+    public void setUp() {
+        int flipFlops = variables / 2;
+        int inputs = variables - flipFlops;
+        String[] functions = new String[flipFlops];
+        for (int i = 0; i < flipFlops; i++) {
+            String first = "X" + (i % inputs) + " * Q" + ((i + 1) % flipFlops) + " + -X" + ((i + 1) % inputs);
+            String second = "Q" + i + " * -X" + ((i + 2) % inputs);
+            functions[i] = type.length() == 2 ? first + "\n" + second : first;
+        }
+        generator = new StateTableGenerator(flipFlops, inputs, 1, type, functions, "X0 * Q" + (flipFlops - 1));
+    }
+
+    @Benchmark
+    public void cursor(Blackhole blackhole) {
+        StateTableCursor cursor = generator.cursor();
+        while (cursor.next()) {
+            blackhole.consume(cursor.nextStateBits());
+            blackhole.consume(cursor.outputBits());
+        }
+    }
+
+    @Benchmark
+    public BitSlicedStateTable bitSliced() {
+        return generator.generateBitSliced();
+    }
+
+    @Benchmark
+    public long writeText() throws IOException {
+        return write(StateTableWriter.Format.TEXT);
+    }
+
+    @Benchmark
+    public long writeCsv() throws IOException {
+        return write(StateTableWriter.Format.CSV);
+    }
+
+    @Benchmark
+    public long writeTextParallel() throws IOException {
+        try (StateTableWriter writer = StateTableWriter.create(StateTableWriter.Format.TEXT, generator, new NullChannel(), true)) {
+            generator.writeStateTable(writer, Runtime.getRuntime().availableProcessors(), ParallelStateTableGenerator.DEFAULT_CHUNK_SIZE);
+            return writer.bytesWritten();
+        }
+    }
+
+    private long write(StateTableWriter.Format format) throws IOException {
+        try (StateTableWriter writer = StateTableWriter.create(format, generator, new NullChannel(), true)) {
+            generator.writeStateTable(writer);
+            return writer.bytesWritten();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package statetable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+// Generates the tables of many circuit specs in one JVM. Every spec runs as its own task,
+// on virtual threads when the runtime has them; a semaphore bounds how many tables are
+// being generated and written at once. A failing spec is recorded and the batch goes on.
+final class BatchRunner {
+    static final String SPEC_EXTENSION = ".spec";
+    static final String MAPPING_SUFFIX = ".map.txt";
+
+    private final Path outputDirectory;
+    private final int maxWriters;
+    private final String defaultFormat;
+
+    public BatchRunner(Path outputDirectory, int maxWriters, String defaultFormat) {
+        if (outputDirectory == null) {
+            throw new IllegalArgumentException("Output directory cannot be null");
+        }
+        if (maxWriters < 1) {
+            throw new IllegalArgumentException("Number of writers must be at least 1");
+        }
+        this.outputDirectory = outputDirectory;
+        this.maxWriters = maxWriters;
+        this.defaultFormat = CircuitSpec.checkFormat(defaultFormat == null ? "text" : defaultFormat);
+    }
+
+    // Outcome of one circuit; error is null on success
+    static final class Result {
+        final Path spec;
+        final Path output;
+        final long rows;
+        final long bytes;
+        final long nanos;
+        final String error;
+        String note; // extra detail for the report, such as reachable states or merged classes
+
+        Result(Path spec, Path output, long rows, long bytes, long nanos, String error) {
+            this.spec = spec;
+            this.output = output;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        boolean succeeded() {
+            return error == null;
+        }
+    }
+
+    // A directory of *.spec files, or a manifest listing one spec path per line. Every spec is
+    // loaded and checked in list order before any is generated, so of two specs with the same
+    // name the later one always fails, and does so before anything is written.
+    public List<Result> run(Path source) throws IOException {
+        List<Path> specs = specFiles(source);
+        Files.createDirectories(outputDirectory);
+
+        Result[] results = new Result[specs.size()];
+        List<Future<Result>> futures = new ArrayList<>(specs.size());
+        Set<String> names = new HashSet<>();
+        Semaphore writers = new Semaphore(maxWriters);
+        ExecutorService executor = newExecutor(maxWriters);
+        try {
+            for (int i = 0; i < specs.size(); i++) {
+                Path specFile = specs.get(i);
+                long start = System.nanoTime();
+                Job job;
+                try {
+                    job = prepare(specFile, names);
+                } catch (Exception e) {
+                    results[i] = new Result(specFile, null, 0, 0, System.nanoTime() - start, describe(e));
+                    futures.add(null);
+                    continue;
+                }
+                futures.add(executor.submit(() -> generate(job, writers)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i) == null) {
+                    continue;
+                }
+                try {
+                    results[i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    results[i] = new Result(specs.get(i), null, 0, 0, 0, describe(e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Batch interrupted", e);
+                }
+            }
+            return List.of(results);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static List<Path> specFiles(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            try (Stream<Path> files = Files.list(source)) {
+                return files.filter(file -> file.getFileName().toString().endsWith(SPEC_EXTENSION))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .toList();
+            }
+        }
+
+        Path base = source.toAbsolutePath().getParent();
+        List<Path> specs = new ArrayList<>();
+        for (String line : Files.readAllLines(source, StandardCharsets.UTF_8)) {
+            String entry = line.trim();
+            if (entry.isEmpty() || entry.startsWith("#")) {
+                continue;
+            }
+            specs.add(base.resolve(entry));
+        }
+        return specs;
+    }
+
+    // A spec that passed every check that needs no generation
+    private static final class Job {
+        final Path specFile;
+        final CircuitSpec spec;
+        final StateTableGenerator generator;
+        final String format;
+        final Path output;
+
+        Job(Path specFile, CircuitSpec spec, StateTableGenerator generator, String format, Path output) {
+            this.specFile = specFile;
+            this.spec = spec;
+            this.generator = generator;
+            this.format = format;
+            this.output = output;
+        }
+    }
+
+    private Job prepare(Path specFile, Set<String> names) throws IOException {
+        CircuitSpec spec = CircuitSpec.load(specFile);
+        if (!names.add(spec.name())) {
+            throw new IllegalArgumentException("Duplicate circuit name: " + spec.name());
+        }
+        StateTableGenerator generator = spec.toGenerator();
+        String format = spec.format() != null ? spec.format() : defaultFormat;
+        if ((spec.initialState() >= 0 || spec.minimize()) && format.equals("binary")) {
+            throw new IllegalArgumentException("The binary format holds the full table and cannot be used with initialState or minimize");
+        }
+        return new Job(specFile, spec, generator, format, outputDirectory.resolve(spec.name() + fileExtension(format)));
+    }
+
+    private Result generate(Job job, Semaphore writers) {
+        long start = System.nanoTime();
+        Path specFile = job.specFile;
+        Path output = job.output;
+        try {
+            CircuitSpec spec = job.spec;
+            StateTableGenerator generator = job.generator;
+            String format = job.format;
+
+            String note = null;
+            long rows = generator.rowCount();
+            long bytes;
+            writers.acquire();
+            try {
+                if (spec.minimize()) {
+                    StateMinimizer.Result minimized = spec.initialState() >= 0
+                            ? StateMinimizer.minimize(generator, spec.initialState())
+                            : StateMinimizer.minimize(generator);
+                    try (StateTableWriter writer = StateTableWriter.open(StateTableWriter.Format.fromName(format), generator, output)) {
+                        minimized.writeTable(writer);
+                        writer.flush();
+                        bytes = writer.bytesWritten();
+                    }
+                    try (BufferedWriter mapping = Files.newBufferedWriter(outputDirectory.resolve(spec.name() + MAPPING_SUFFIX), StandardCharsets.UTF_8)) {
+                        minimized.writeMapping(mapping);
+                    }
+                    rows = (long) minimized.classes() << generator.inputs();
+                    note = minimized.toString();
+                } else if (spec.initialState() >= 0) {
+                    try (StateTableWriter writer = StateTableWriter.open(StateTableWriter.Format.fromName(format), generator, output)) {
+                        ReachableStateExplorer.Result reachable = new ReachableStateExplorer(generator).explore(spec.initialState(), writer);
+                        rows = reachable.rows();
+                        note = reachable.states() + " reachable states, depth " + reachable.depth();
+                        writer.flush();
+                        bytes = writer.bytesWritten();
+                    }
+                } else if (format.equals("binary")) {
+                    StateTableFile.write(generator, output);
+                    bytes = Files.size(output);
+                } else {
+                    try (StateTableWriter writer = StateTableWriter.open(StateTableWriter.Format.fromName(format), generator, output)) {
+                        generator.writeStateTable(writer);
+                        writer.flush();
+                        bytes = writer.bytesWritten();
+                    }
+                }
+            } finally {
+                writers.release();
+            }
+            Result result = new Result(specFile, output, rows, bytes, System.nanoTime() - start, null);
+            result.note = note;
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(specFile, output, 0, 0, System.nanoTime() - start, "interrupted");
+        } catch (Exception e) {
+            return new Result(specFile, output, 0, 0, System.nanoTime() - start, describe(e));
+        }
+    }
+
+    private static String describe(Throwable e) {
+        StringBuilder message = new StringBuilder(String.valueOf(e.getMessage()));
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            message.append(": ").append(cause.getMessage());
+        }
+        return message.toString();
+    }
+
+    static String fileExtension(String format) {
+        return switch (format) {
+            case "binary" -> ".stbl";
+            case "text" -> ".txt";
+            default -> "." + format;
+        };
+    }
+
+    public static void printReport(List<Result> results, PrintStream out) {
+        long failed = 0;
+        long totalNanos = 0;
+        for (Result result : results) {
+            totalNanos += result.nanos;
+            if (result.succeeded()) {
+                out.printf("%-40s OK      %10.2f ms %14d rows %14d bytes%s%n",
+                        result.spec.getFileName(), result.nanos / 1e6, result.rows, result.bytes,
+                        result.note == null ? "" : "  (" + result.note + ")");
+            } else {
+                failed++;
+                out.printf("%-40s FAILED  %10.2f ms  %s%n", result.spec.getFileName(), result.nanos / 1e6, result.error);
+            }
+        }
+        out.printf("%d circuits, %d failed, %.2f ms of generation%n", results.size(), failed, totalNanos / 1e6);
+        out.println("Expression cache: " + ExpressionCache.shared());
+    }
+
+    // Virtual threads need JDK 21 while the build targets 17, so the factory is looked up at runtime;
+    // older runtimes get one platform thread per writer instead.
+    private static ExecutorService newExecutor(int maxWriters) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxWriters);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package statetable;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+// Reduced ordered binary decision diagrams. Nodes are ints into flat arrays: 0 is FALSE,
+// 1 is TRUE, and every other node tests one variable (lower index = closer to the root).
+// A unique table keeps nodes canonical, so two functions are equal exactly when their
+// node ids are equal, and an operation cache memoizes ite(). Nodes are never freed;
+// a manager lives as long as the analysis that uses it.
+final class Bdd {
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    static final int MAX_NODES = 1 << 29; // the unique table has twice as many slots, 2^30 being the largest power of two an array holds
+    private static final int CACHE_SIZE = 1 << 16;
+
+    private final int variables;
+    private int[] var;
+    private int[] low;
+    private int[] high;
+    private int size;
+
+    // Open-addressing unique table of node ids (0 = empty slot)
+    private int[] unique;
+    private int uniqueMask;
+
+    // Direct-mapped ite() cache
+    private final int[] cacheF = new int[CACHE_SIZE];
+    private final int[] cacheG = new int[CACHE_SIZE];
+    private final int[] cacheH = new int[CACHE_SIZE];
+    private final int[] cacheResult = new int[CACHE_SIZE];
+
+    public Bdd(int variables) {
+        if (variables < 1) {
+            throw new IllegalArgumentException("A BDD needs at least one variable");
+        }
+        this.variables = variables;
+        this.var = new int[INITIAL_CAPACITY];
+        this.low = new int[INITIAL_CAPACITY];
+        this.high = new int[INITIAL_CAPACITY];
+        this.unique = new int[INITIAL_CAPACITY * 2];
+        this.uniqueMask = unique.length - 1;
+        Arrays.fill(cacheF, -1);
+
+        // Terminals sit below every variable
+        var[FALSE] = variables;
+        var[TRUE] = variables;
+        size = 2;
+    }
+
+    public int variables() {
+        return variables;
+    }
+
+    // Number of nodes allocated so far, terminals included
+    public int nodeCount() {
+        return size;
+    }
+
+    public int variable(int index) {
+        checkVariable(index);
+        return node(index, FALSE, TRUE);
+    }
+
+    public int topVariable(int f) {
+        return var[f];
+    }
+
+    public int low(int f) {
+        return low[f];
+    }
+
+    public int high(int f) {
+        return high[f];
+    }
+
+    public int not(int f) {
+        return ite(f, FALSE, TRUE);
+    }
+
+    public int and(int f, int g) {
+        return ite(f, g, FALSE);
+    }
+
+    public int or(int f, int g) {
+        return ite(f, TRUE, g);
+    }
+
+    public int xor(int f, int g) {
+        return ite(f, not(g), g);
+    }
+
+    // f <-> g
+    public int equiv(int f, int g) {
+        return ite(f, g, not(g));
+    }
+
+    // if f then g else h
+    public int ite(int f, int g, int h) {
+        if (f == TRUE) return g;
+        if (f == FALSE) return h;
+        if (g == h) return g;
+        if (g == TRUE && h == FALSE) return f;
+
+        int slot = cacheSlot(f, g, h);
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h) {
+            return cacheResult[slot];
+        }
+
+        int top = Math.min(var[f], Math.min(var[g], var[h]));
+        int thenBranch = ite(cofactor(f, top, true), cofactor(g, top, true), cofactor(h, top, true));
+        int elseBranch = ite(cofactor(f, top, false), cofactor(g, top, false), cofactor(h, top, false));
+        int result = node(top, elseBranch, thenBranch);
+
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    // Existential quantification over the given variables
+    public int exists(int f, BitSet quantified) {
+        return exists(f, quantified, new HashMap<>());
+    }
+
+    private int exists(int f, BitSet quantified, Map<Integer, Integer> memo) {
+        if (f <= TRUE) return f;
+        Integer cached = memo.get(f);
+        if (cached != null) return cached;
+
+        int lo = exists(low[f], quantified, memo);
+        int hi = exists(high[f], quantified, memo);
+        int result = quantified.get(var[f]) ? or(lo, hi) : node(var[f], lo, hi);
+        memo.put(f, result);
+        return result;
+    }
+
+    // Substitutes variable mapping[v] for each variable v of f
+    public int rename(int f, int[] mapping) {
+        return rename(f, mapping, new HashMap<>());
+    }
+
+    private int rename(int f, int[] mapping, Map<Integer, Integer> memo) {
+        if (f <= TRUE) return f;
+        Integer cached = memo.get(f);
+        if (cached != null) return cached;
+
+        int lo = rename(low[f], mapping, memo);
+        int hi = rename(high[f], mapping, memo);
+        int result = ite(variable(mapping[var[f]]), hi, lo);
+        memo.put(f, result);
+        return result;
+    }
+
+    // Value of f under a full assignment (0/1 per variable)
+    public boolean evaluate(int f, int[] assignment) {
+        while (f > TRUE) {
+            f = assignment[var[f]] != 0 ? high[f] : low[f];
+        }
+        return f == TRUE;
+    }
+
+    // Number of assignments to all variables of this manager that satisfy f
+    public BigInteger satCount(int f) {
+        return satCount(f, new HashMap<>()).shiftLeft(var[f]);
+    }
+
+    // Satisfying assignments of the variables from var[f] downwards
+    private BigInteger satCount(int f, Map<Integer, BigInteger> memo) {
+        if (f == FALSE) return BigInteger.ZERO;
+        if (f == TRUE) return BigInteger.ONE;
+        BigInteger cached = memo.get(f);
+        if (cached != null) return cached;
+
+        BigInteger lo = satCount(low[f], memo).shiftLeft(var[low[f]] - var[f] - 1);
+        BigInteger hi = satCount(high[f], memo).shiftLeft(var[high[f]] - var[f] - 1);
+        BigInteger count = lo.add(hi);
+        memo.put(f, count);
+        return count;
+    }
+
+    // One satisfying assignment (0/1 per variable, unconstrained variables left at 0), or null if f is FALSE
+    public int[] anySat(int f) {
+        if (f == FALSE) {
+            return null;
+        }
+        int[] assignment = new int[variables];
+        while (f != TRUE) {
+            if (low[f] != FALSE) {
+                f = low[f];
+            } else {
+                assignment[var[f]] = 1;
+                f = high[f];
+            }
+        }
+        return assignment;
+    }
+
+    // Builds an expression from the BooleanEvaluator grammar; X<k> / Q<k> stand for the given nodes
+    public int build(CompiledExpression expression, int[] inputNodes, int[] stateNodes) {
+        if (expression.inputCount() > inputNodes.length || expression.stateCount() > stateNodes.length) {
+            throw new IllegalArgumentException("Not enough variables supplied for expression: " + expression.source());
+        }
+
+        int[] stack = new int[Math.max(1, expression.maxDepth())];
+        int top = -1;
+        for (int pc = 0; pc < expression.length(); pc++) {
+            int operand = expression.operand(pc);
+            switch (expression.opcode(pc)) {
+                case CompiledExpression.OP_INPUT -> stack[++top] = inputNodes[operand];
+                case CompiledExpression.OP_STATE -> stack[++top] = stateNodes[operand];
+                case CompiledExpression.OP_CONST -> stack[++top] = operand == 0 ? FALSE : TRUE;
+                case CompiledExpression.OP_NOT -> stack[top] = not(stack[top]);
+                case CompiledExpression.OP_AND -> {
+                    top--;
+                    stack[top] = and(stack[top], stack[top + 1]);
+                }
+                default -> {
+                    top--;
+                    stack[top] = or(stack[top], stack[top + 1]);
+                }
+            }
+        }
+        return stack[0];
+    }
+
+    private int cofactor(int f, int v, boolean value) {
+        if (var[f] != v) return f;
+        return value ? high[f] : low[f];
+    }
+
+    // The unique node (v, lo, hi), created on first use; redundant tests collapse to their child
+    private int node(int v, int lo, int hi) {
+        if (lo == hi) {
+            return lo;
+        }
+
+        int slot = hash(v, lo, hi) & uniqueMask;
+        while (true) {
+            int candidate = unique[slot];
+            if (candidate == 0) break;
+            if (var[candidate] == v && low[candidate] == lo && high[candidate] == hi) {
+                return candidate;
+            }
+            slot = (slot + 1) & uniqueMask;
+        }
+
+        if (size == var.length) {
+            grow();
+            return node(v, lo, hi);
+        }
+        int id = size++;
+        var[id] = v;
+        low[id] = lo;
+        high[id] = hi;
+        unique[slot] = id;
+        return id;
+    }
+
+    private void grow() {
+        if (var.length >= MAX_NODES) {
+            throw new IllegalStateException("BDD node limit reached: " + MAX_NODES);
+        }
+        int capacity = var.length * 2;
+        var = Arrays.copyOf(var, capacity);
+        low = Arrays.copyOf(low, capacity);
+        high = Arrays.copyOf(high, capacity);
+
+        unique = new int[capacity * 2];
+        uniqueMask = unique.length - 1;
+        for (int id = 2; id < size; id++) {
+            int slot = hash(var[id], low[id], high[id]) & uniqueMask;
+            while (unique[slot] != 0) slot = (slot + 1) & uniqueMask;
+            unique[slot] = id;
+        }
+    }
+
+    private void checkVariable(int index) {
+        if (index < 0 || index >= variables) {
+            throw new IllegalArgumentException("Variable index out of range: " + index);
+        }
+    }
+
+    private static int hash(int v, int lo, int hi) {
+        int h = v * 0x9E3779B1 + lo * 0x85EBCA77 + hi * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+
+    private static int cacheSlot(int f, int g, int h) {
+        return hash(f, g, h) & (CACHE_SIZE - 1);
+    }
+}
@@ -0,0 +1,128 @@
+package statetable;
+
+// A whole state table evaluated 64 rows at a time. Every variable becomes a word holding
+// its value for 64 consecutive rows, so each operator costs one &, | or ~ per block.
+// Columns use the row order of StateTableGenerator: the inputs occupy the low bits of the
+// row index with X0 as the most significant input bit, and the present state sits above them.
+// Columns are filled by ColumnEvaluator, which evaluates each function only once per
+// assignment of the variables it actually reads.
+final class BitSlicedStateTable {
+    // Keeps the number of 64-row words addressable by an int
+    static final int MAX_VARIABLES = 36;
+
+    // Value of row-index bit p (p < 6) for the 64 rows of a block
+    private static final long[] LOW_BIT_PATTERNS = {
+            0xAAAAAAAAAAAAAAAAL,
+            0xCCCCCCCCCCCCCCCCL,
+            0xF0F0F0F0F0F0F0F0L,
+            0xFF00FF00FF00FF00L,
+            0xFFFF0000FFFF0000L,
+            0xFFFFFFFF00000000L
+    };
+
+    private final int flipFlops;
+    private final int inputs;
+    private final long rows;
+    private final long[][] nextStateColumns;
+    private final long[][] outputColumns;
+
+    private BitSlicedStateTable(int flipFlops, int inputs, long rows, long[][] nextStateColumns, long[][] outputColumns) {
+        this.flipFlops = flipFlops;
+        this.inputs = inputs;
+        this.rows = rows;
+        this.nextStateColumns = nextStateColumns;
+        this.outputColumns = outputColumns;
+    }
+
+    public static BitSlicedStateTable generate(Circuit circuit) {
+        if (circuit == null) {
+            throw new IllegalArgumentException("Circuit cannot be null");
+        }
+        int flipFlops = circuit.flipFlops();
+        int inputs = circuit.inputs();
+        CompiledExpression[] outputFunctions = circuit.outputFunctions();
+        if (flipFlops + inputs > MAX_VARIABLES) {
+            throw new IllegalArgumentException("Bit-sliced tables support at most " + MAX_VARIABLES + " variables");
+        }
+
+        long rows = 1L << (inputs + flipFlops);
+        int words = (int) Math.max(1, rows >>> 6);
+        long validMask = rows >= Long.SIZE ? -1L : (1L << rows) - 1;
+
+        long[][] nextStateColumns = new long[flipFlops][words];
+        long[][] outputColumns = new long[outputFunctions.length][words];
+        new ColumnEvaluator(circuit).evaluate(0, words, nextStateColumns, outputColumns);
+        if (validMask != -1L) {
+            for (long[] column : nextStateColumns) column[0] &= validMask;
+            for (long[] column : outputColumns) column[0] &= validMask;
+        }
+
+        return new BitSlicedStateTable(flipFlops, inputs, rows, nextStateColumns, outputColumns);
+    }
+
+    // Values of a single expression over every row, Q variables taken as the present state
+    public static long[] truthTable(CompiledExpression expression, int inputs, int flipFlops) {
+        if (expression.inputCount() > inputs || expression.stateCount() > flipFlops) {
+            throw new IllegalArgumentException("Function uses variables beyond X" + (inputs - 1)
+                    + " and Q" + (flipFlops - 1) + ": " + expression.source());
+        }
+        if (inputs + flipFlops > MAX_VARIABLES) {
+            throw new IllegalArgumentException("Bit-sliced tables support at most " + MAX_VARIABLES + " variables");
+        }
+
+        long rows = 1L << (inputs + flipFlops);
+        int words = (int) Math.max(1, rows >>> 6);
+        long validMask = rows >= Long.SIZE ? -1L : (1L << rows) - 1;
+        long[] table = new long[words];
+        ColumnEvaluator.truthTable(expression, inputs, flipFlops, table);
+        table[0] &= validMask;
+        return table;
+    }
+
+    // Word of row-index bit p for block w (rows 64*w .. 64*w + 63)
+    static long variableWord(int p, long w) {
+        if (p < 6) {
+            return LOW_BIT_PATTERNS[p];
+        }
+        return -((w >>> (p - 6)) & 1L);
+    }
+
+    public int flipFlops() {
+        return flipFlops;
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int outputs() {
+        return outputColumns.length;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public long[] nextStateColumn(int flipFlop) {
+        return nextStateColumns[flipFlop];
+    }
+
+    public long[] outputColumn(int output) {
+        return outputColumns[output];
+    }
+
+    public int nextState(int flipFlop, long row) {
+        return bit(nextStateColumns[flipFlop], row);
+    }
+
+    public int output(int output, long row) {
+        return bit(outputColumns[output], row);
+    }
+
+    private int bit(long[] column, long row) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("Row out of range: " + row);
+        }
+        return (int) ((column[(int) (row >>> 6)] >>> row) & 1L);
+    }
+}
@@ -0,0 +1,75 @@
+package statetable;
+
+class BooleanEvaluator {
+    public static int[] evaluateMultiple(String[] expressions, int[] inputs, int[] states) {
+        // Input validation
+        if (expressions == null) {
+            throw new IllegalArgumentException("Expressions cannot be null");
+        }
+        if (inputs == null || states == null) {
+            throw new IllegalArgumentException("Inputs and states arrays cannot be null");
+        }
+
+        int[] results = new int[expressions.length];
+
+        try {
+            for (int i = 0; i < inputs.length; i++) {
+                validateBinaryValue(inputs[i], "Input X" + i);
+            }
+            for (int i = 0; i < states.length; i++) {
+                validateBinaryValue(states[i], "State Q" + i);
+            }
+
+            for (int i = 0; i < expressions.length; i++) {
+                if (expressions[i] == null) {
+                    throw new IllegalArgumentException("Expression " + i + " cannot be null");
+                }
+                CompiledExpression compiled = compile(expressions[i]);
+                long start = Metrics.ENABLED ? System.nanoTime() : 0;
+                results[i] = compiled.evaluate(inputs, states);
+                if (Metrics.ENABLED) Metrics.recordEvaluation(System.nanoTime() - start);
+            }
+            return results;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error evaluating boolean expressions", e);
+        }
+    }
+
+    // Original evaluate method for single expression backward compatibility
+    public static int evaluate(String expression, int[] inputs, int[] states) {
+        return evaluateMultiple(new String[]{expression}, inputs, states)[0];
+    }
+
+    // Parses an expression once so it can be evaluated repeatedly without re-parsing;
+    // equivalent spellings share one compiled form through the shared ExpressionCache
+    public static CompiledExpression compile(String expression) {
+        if (Metrics.ENABLED) {
+            long start = System.nanoTime();
+            CompiledExpression compiled = ExpressionCache.shared().compile(expression);
+            Metrics.recordParse(System.nanoTime() - start);
+            return compiled;
+        }
+        return ExpressionCache.shared().compile(expression);
+    }
+
+    public static CompiledExpression[] compileAll(String[] expressions) {
+        if (expressions == null) {
+            throw new IllegalArgumentException("Expressions cannot be null");
+        }
+
+        CompiledExpression[] compiled = new CompiledExpression[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            if (expressions[i] == null) {
+                throw new IllegalArgumentException("Expression " + i + " cannot be null");
+            }
+            compiled[i] = compile(expressions[i]);
+        }
+        return compiled;
+    }
+
+    private static void validateBinaryValue(int value, String variableName) {
+        if (value != 0 && value != 1) {
+            throw new IllegalArgumentException(variableName + " must be 0 or 1, got: " + value);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,180 @@
+package statetable;
+
+// A circuit compiled once and validated once: a kind per flip-flop (kinds may be mixed), the
+// excitation functions already split and compiled, and the output functions. nextState()
+// computes every flip-flop for a packed state word in one call, with each flip-flop reading
+// its own present-state bit through its kind's characteristic lookup table.
+final class Circuit {
+    private final int inputs;
+    private final FlipFlopKind[] kinds;
+    private final String[] functions;
+    private final String[] outputSources;
+    private final CompiledExpression[][] excitations;
+    private final CompiledExpression[] excitationA;
+    private final CompiledExpression[] excitationB; // null entries for D and T
+    private final int[] characteristic;
+    private final CompiledExpression[] outputFunctions;
+    private volatile FusedCircuit fused; // built on first use
+
+    private Circuit(int inputs, FlipFlopKind[] kinds, String[] functions, String[] outputSources,
+                    CompiledExpression[][] excitations, CompiledExpression[] outputFunctions) {
+        this.inputs = inputs;
+        this.kinds = kinds;
+        this.functions = functions;
+        this.outputSources = outputSources;
+        this.excitations = excitations;
+        this.outputFunctions = outputFunctions;
+
+        int flipFlops = kinds.length;
+        this.excitationA = new CompiledExpression[flipFlops];
+        this.excitationB = new CompiledExpression[flipFlops];
+        this.characteristic = new int[flipFlops];
+        for (int j = 0; j < flipFlops; j++) {
+            excitationA[j] = excitations[j][0];
+            excitationB[j] = excitations[j].length > 1 ? excitations[j][1] : null;
+            characteristic[j] = kinds[j].characteristic();
+        }
+    }
+
+    // Flip-flop j has kind kinds[j] and function functions[j] (SR/JK: both parts separated by a newline)
+    public static Circuit compile(int inputs, FlipFlopKind[] kinds, String[] functions, String[] outputFunctions) {
+        if (kinds == null || functions == null || outputFunctions == null) {
+            throw new IllegalArgumentException("Flip-flop kinds and functions cannot be null");
+        }
+        int flipFlops = kinds.length;
+        if (flipFlops < 1) {
+            throw new IllegalArgumentException("Number of flip-flops must be at least 1");
+        }
+        if (inputs < 1) {
+            throw new IllegalArgumentException("Number of inputs must be at least 1");
+        }
+        if (flipFlops + inputs > StateTableGenerator.MAX_VARIABLES) {
+            throw new IllegalArgumentException("Flip-flops and inputs together must not exceed " + StateTableGenerator.MAX_VARIABLES);
+        }
+        if (outputFunctions.length > StateTableGenerator.MAX_OUTPUTS) {
+            throw new IllegalArgumentException("Number of outputs must be between 0 and " + StateTableGenerator.MAX_OUTPUTS);
+        }
+        if (functions.length != flipFlops) {
+            throw new IllegalArgumentException("Number of flip-flop functions must match number of flip-flops");
+        }
+
+        CompiledExpression[][] excitations = new CompiledExpression[flipFlops][];
+        for (int j = 0; j < flipFlops; j++) {
+            FlipFlopKind kind = kinds[j];
+            if (kind == null || functions[j] == null) {
+                throw new IllegalArgumentException("Flip-flop kinds and functions cannot be null");
+            }
+            if (kind.excitations() == 2 && functions[j].split("\n").length != 2) {
+                throw new IllegalArgumentException("Each " + kind + " flip-flop requires two functions separated by newline");
+            }
+            excitations[j] = kind.compile(functions[j]);
+            for (CompiledExpression part : excitations[j]) requireVariables(part, inputs, flipFlops);
+        }
+
+        for (String function : outputFunctions) {
+            if (function == null) {
+                throw new IllegalArgumentException("Output functions cannot be null");
+            }
+        }
+        CompiledExpression[] outputs = BooleanEvaluator.compileAll(outputFunctions);
+        for (CompiledExpression output : outputs) requireVariables(output, inputs, flipFlops);
+
+        return new Circuit(inputs, kinds.clone(), functions.clone(), outputFunctions.clone(), excitations, outputs);
+    }
+
+    private static void requireVariables(CompiledExpression expression, int inputs, int flipFlops) {
+        if (expression.inputCount() > inputs || expression.stateCount() > flipFlops) {
+            throw new IllegalArgumentException("Function uses variables beyond X" + (inputs - 1)
+                    + " and Q" + (flipFlops - 1) + ": " + expression.source());
+        }
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int flipFlops() {
+        return kinds.length;
+    }
+
+    public int outputs() {
+        return outputFunctions.length;
+    }
+
+    public FlipFlopKind kind(int flipFlop) {
+        return kinds[flipFlop];
+    }
+
+    // The flip-flop type string accepted by FlipFlopKind.parse
+    public String type() {
+        return FlipFlopKind.describe(kinds);
+    }
+
+    public String[] flipFlopFunctions() {
+        return functions.clone();
+    }
+
+    public String[] outputFunctionSources() {
+        return outputSources.clone();
+    }
+
+    CompiledExpression[] excitations(int flipFlop) {
+        return excitations[flipFlop];
+    }
+
+    CompiledExpression[] outputFunctions() {
+        return outputFunctions;
+    }
+
+    // Every function in one shared DAG, for callers that want the next state and outputs
+    // of a row (or 64 rows) in a single pass. Racing first calls may each build one.
+    public FusedCircuit fused() {
+        FusedCircuit result = fused;
+        if (result == null) {
+            result = new FusedCircuit(this);
+            fused = result;
+        }
+        return result;
+    }
+
+    // Next state of every flip-flop, packed with Q<k> in bit k
+    public long nextState(long inputBits, long stateBits) {
+        if (Metrics.ENABLED) Metrics.recordNextStateEvaluations(kinds.length);
+        long next = 0;
+        for (int j = 0; j < characteristic.length; j++) {
+            int a = excitationA[j].evaluate(inputBits, stateBits);
+            int b = excitationB[j] == null ? 0 : excitationB[j].evaluate(inputBits, stateBits);
+            int q = (int) (stateBits >>> j) & 1;
+            next |= (long) ((characteristic[j] >>> ((q << 2) | (a << 1) | b)) & 1) << j;
+        }
+        return next;
+    }
+
+    // Outputs are functions of the inputs and the next state, packed with output k in bit k
+    public long outputs(long inputBits, long nextStateBits) {
+        long result = 0;
+        for (int k = 0; k < outputFunctions.length; k++) {
+            result |= (long) outputFunctions[k].evaluate(inputBits, nextStateBits) << k;
+        }
+        return result;
+    }
+
+    // Bit-sliced next state of one flip-flop for the 64 rows held in inputWords / stateWords.
+    // The stack must hold maxDepth() words.
+    long nextStateWord(int flipFlop, long[] inputWords, long[] stateWords, long[] stack) {
+        if (Metrics.ENABLED) Metrics.recordNextStateEvaluations(Long.SIZE);
+        long a = excitationA[flipFlop].evaluate(inputWords, stateWords, stack);
+        long b = excitationB[flipFlop] == null ? 0L : excitationB[flipFlop].evaluate(inputWords, stateWords, stack);
+        return kinds[flipFlop].nextStateWord(stateWords[flipFlop], a, b);
+    }
+
+    // Deepest operand stack any of the circuit's expressions needs
+    int maxDepth() {
+        int maxDepth = 1;
+        for (CompiledExpression[] parts : excitations) {
+            for (CompiledExpression part : parts) maxDepth = Math.max(maxDepth, part.maxDepth());
+        }
+        for (CompiledExpression output : outputFunctions) maxDepth = Math.max(maxDepth, output.maxDepth());
+        return maxDepth;
+    }
+}
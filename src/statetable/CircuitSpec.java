@@ -0,0 +1,200 @@
+package statetable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+// A circuit described in a properties file, for non-interactive runs:
+//
+//   type = JK                or a kind per flip-flop, Q0 first: JK,D
+//   flipFlops = 2
+//   inputs = 2
+//   outputs = 1
+//   ff0 = X0*Q1 ; -X0        SR and JK take both functions separated by ';'
+//   ff1 = Q0 ; X1
+//   out0 = X0*Q0+Q1
+//   format = csv             optional: text, csv, tsv, jsonl or binary
+//   initialState = 00        optional: Q0 first; only rows reachable from it are generated
+//   minimize = true          optional: merge equivalent states and write the reduced table
+final class CircuitSpec {
+    private final String name;
+    private final String flipFlopType;
+    private final int flipFlops;
+    private final int inputs;
+    private final String[] flipFlopFunctions;
+    private final String[] outputFunctions;
+    private final String format;
+    private final long initialState;
+    private final boolean minimize;
+
+    CircuitSpec(String name, String flipFlopType, int flipFlops, int inputs, String[] flipFlopFunctions, String[] outputFunctions, String format, long initialState, boolean minimize) {
+        this.name = name;
+        this.flipFlopType = flipFlopType;
+        this.flipFlops = flipFlops;
+        this.inputs = inputs;
+        this.flipFlopFunctions = flipFlopFunctions;
+        this.outputFunctions = outputFunctions;
+        this.format = format;
+        this.initialState = initialState;
+        this.minimize = minimize;
+    }
+
+    public static CircuitSpec load(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        String name = dot > 0 ? fileName.substring(0, dot) : fileName;
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(name, reader);
+        }
+    }
+
+    public static CircuitSpec parse(String name, String text) {
+        try {
+            return parse(name, new StringReader(text));
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading circuit spec " + name, e);
+        }
+    }
+
+    public static CircuitSpec parse(String name, Reader reader) throws IOException {
+        Properties properties = new Properties();
+        properties.load(reader);
+
+        int flipFlops = count(properties, "flipFlops");
+        if (flipFlops < 1) {
+            throw new IllegalArgumentException("Number of flip-flops must be at least 1");
+        }
+        FlipFlopKind[] kinds = FlipFlopKind.parse(required(properties, "type"), flipFlops);
+        String type = FlipFlopKind.describe(kinds);
+        int inputs = count(properties, "inputs");
+        int outputs = properties.containsKey("outputs") ? count(properties, "outputs") : 0;
+
+        String[] functions = new String[flipFlops];
+        for (int i = 0; i < flipFlops; i++) {
+            String function = required(properties, "ff" + i);
+            if (kinds[i].excitations() == 2) {
+                String kind = kinds[i].name();
+                String[] parts = function.split(";");
+                if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                    throw new IllegalArgumentException("ff" + i + " needs " + kind.charAt(0) + " and " + kind.charAt(1)
+                            + " functions separated by ';'");
+                }
+                function = parts[0].trim() + "\n" + parts[1].trim();
+            }
+            functions[i] = function;
+        }
+
+        String[] outputFunctions = new String[outputs];
+        for (int i = 0; i < outputs; i++) {
+            outputFunctions[i] = required(properties, "out" + i);
+        }
+
+        String format = properties.getProperty("format");
+        if (format != null) {
+            format = checkFormat(format);
+        }
+        String initial = properties.getProperty("initialState");
+        long initialState = initial == null || initial.isBlank() ? -1 : parseState(initial, flipFlops);
+        String minimize = properties.getProperty("minimize", "false").trim();
+        if (!minimize.equalsIgnoreCase("true") && !minimize.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("Invalid minimize in circuit spec: " + minimize);
+        }
+        return new CircuitSpec(name, type, flipFlops, inputs, functions, outputFunctions, format, initialState,
+                minimize.equalsIgnoreCase("true"));
+    }
+
+    // A state written as 0/1 digits, Q0 first, packed with Q<k> in bit k
+    static long parseState(String text, int flipFlops) {
+        String digits = text.replace(" ", "").trim();
+        if (digits.length() != flipFlops) {
+            throw new IllegalArgumentException("State " + text.trim() + " needs exactly " + flipFlops + " digits");
+        }
+        long state = 0;
+        for (int k = 0; k < flipFlops; k++) {
+            char digit = digits.charAt(k);
+            if (digit != '0' && digit != '1') {
+                throw new IllegalArgumentException("Invalid digit in state: " + digit);
+            }
+            state |= (long) (digit - '0') << k;
+        }
+        return state;
+    }
+
+    // Normalizes an output format name: one of the StateTableWriter formats, or "binary" for StateTableFile
+    static String checkFormat(String format) {
+        String normalized = format.trim().toLowerCase(Locale.ROOT);
+        if (!normalized.equals("binary")) {
+            StateTableWriter.Format.fromName(normalized);
+        }
+        return normalized;
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + key + " in circuit spec");
+        }
+        return value.trim();
+    }
+
+    private static int count(Properties properties, String key) {
+        String value = required(properties, key);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + key + " in circuit spec: " + value);
+        }
+    }
+
+    public StateTableGenerator toGenerator() {
+        return new StateTableGenerator(flipFlops, inputs, outputFunctions.length, flipFlopType, flipFlopFunctions, outputFunctions);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String flipFlopType() {
+        return flipFlopType;
+    }
+
+    public int flipFlops() {
+        return flipFlops;
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int outputs() {
+        return outputFunctions.length;
+    }
+
+    public String[] flipFlopFunctions() {
+        return flipFlopFunctions.clone();
+    }
+
+    public String[] outputFunctions() {
+        return outputFunctions.clone();
+    }
+
+    // "text", "csv", "tsv", "jsonl" or "binary"; null when the spec leaves it to the caller
+    public String format() {
+        return format;
+    }
+
+    // Packed initial state for reachable-only generation; -1 when the spec asks for the full table
+    public long initialState() {
+        return initialState;
+    }
+
+    // Whether equivalent states are merged (over the reachable states when initialState is set)
+    public boolean minimize() {
+        return minimize;
+    }
+}
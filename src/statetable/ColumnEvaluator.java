@@ -0,0 +1,298 @@
+package statetable;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+// Column-wise evaluation pruned to each function's support set. A function that reads only
+// some of the variables takes the same value for every assignment of the others, so it is
+// evaluated once per assignment of its support (2^|support| points, 64 rows per word) and
+// the results are broadcast into the full column.
+//
+// Each column is a range of 64-row words. Support variables on row-index bits 0..5 vary
+// inside a word and are covered by a single bit-sliced evaluation; the others pick which of
+// the distinct words a block receives. A next-state column depends on its excitation
+// functions' support plus its own present state (except for D); an output depends on its
+// inputs and on the support of every next-state bit it reads.
+//
+// Up to ExpressionCache.MAX_TABLE_VARIABLES variables, next-state columns are not evaluated at
+// all: each excitation function's truth table comes from the shared ExpressionCache, where
+// functions recurring across flip-flops, circuits, chunks and session edits are computed once,
+// and the flip-flop's equation combines them with its present-state column word by word.
+//
+// Columns that depend on every block bit of the range gain nothing from pruning; they are
+// evaluated together instead, one pass of the circuit's fused DAG per word restricted to
+// those columns, so subterms they share are computed once.
+//
+// Instances keep scratch buffers and are not thread-safe; use one per worker.
+final class ColumnEvaluator {
+    private static final int WORD_BITS = 6;
+
+    private final Circuit circuit;
+    private final CompiledExpression expression; // set instead of circuit for a single truth table
+    private final int inputs;
+    private final int flipFlops;
+    private final long[] nextStateSupport; // row-index bits each column depends on
+    private final long[] outputSupport;
+    private final LongBuffer[][] excitationTables; // per flip-flop and excitation; null when not cached
+    private final long[] inputWords;
+    private final long[] stateWords;
+    private final long[] nextWords;
+    private final long[] stack;
+    private final int[] positions = new int[Long.SIZE];
+    private long[] distinct = new long[1];
+
+    // Fused program for the columns that depend on every block bit, cached per range size
+    private int denseWords;
+    private long denseNextStates;
+    private long denseOutputs;
+    private FusedCircuit dense;
+    private long[] registers;
+
+    ColumnEvaluator(Circuit circuit) {
+        this(circuit, null, circuit.inputs(), circuit.flipFlops(), circuit.maxDepth());
+    }
+
+    private ColumnEvaluator(Circuit circuit, CompiledExpression expression, int inputs, int flipFlops, int maxDepth) {
+        this.circuit = circuit;
+        this.expression = expression;
+        this.inputs = inputs;
+        this.flipFlops = flipFlops;
+        this.inputWords = new long[inputs];
+        this.stateWords = new long[flipFlops];
+        this.nextWords = new long[flipFlops];
+        this.stack = new long[Math.max(1, maxDepth)];
+
+        if (circuit == null) {
+            this.nextStateSupport = new long[0];
+            this.outputSupport = new long[]{rowSupport(expression)};
+            this.excitationTables = null;
+            return;
+        }
+
+        if (inputs + flipFlops <= ExpressionCache.MAX_TABLE_VARIABLES) {
+            this.excitationTables = new LongBuffer[flipFlops][];
+            for (int j = 0; j < flipFlops; j++) {
+                CompiledExpression[] parts = circuit.excitations(j);
+                excitationTables[j] = new LongBuffer[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    excitationTables[j][i] = ExpressionCache.shared().truthTable(parts[i].source(), inputs, flipFlops);
+                }
+            }
+        } else {
+            this.excitationTables = null;
+        }
+
+        this.nextStateSupport = new long[flipFlops];
+        for (int j = 0; j < flipFlops; j++) {
+            long support = circuit.kind(j) == FlipFlopKind.D ? 0 : stateBit(j);
+            for (CompiledExpression part : circuit.excitations(j)) support |= rowSupport(part);
+            nextStateSupport[j] = support;
+        }
+
+        CompiledExpression[] outputFunctions = circuit.outputFunctions();
+        this.outputSupport = new long[outputFunctions.length];
+        for (int k = 0; k < outputFunctions.length; k++) {
+            long support = rowSupport(outputFunctions[k].inputSupport(), 0);
+            long nextStates = outputFunctions[k].stateSupport();
+            for (int j = 0; j < flipFlops; j++) {
+                if (((nextStates >>> j) & 1L) != 0) support |= nextStateSupport[j];
+            }
+            outputSupport[k] = support;
+        }
+    }
+
+    // Values of one expression over every row, Q variables taken as the present state.
+    // Covers min(rows, 64) rows per word; unused high bits of a single short word are garbage.
+    static void truthTable(CompiledExpression expression, int inputs, int flipFlops, long[] table) {
+        ColumnEvaluator evaluator = new ColumnEvaluator(null, expression, inputs, flipFlops, expression.maxDepth());
+        evaluator.fill(-1, evaluator.outputSupport[0], 0, table.length, table, null);
+    }
+
+    // Fills words firstWord .. firstWord + words - 1 of every next-state and output column.
+    // words must be a power of two and firstWord a multiple of it, so that the range is
+    // exactly the blocks sharing firstWord's high bits.
+    void evaluate(long firstWord, int words, long[][] nextStateColumns, long[][] outputColumns) {
+        if (Integer.bitCount(words) != 1 || (firstWord & (words - 1)) != 0) {
+            throw new IllegalArgumentException("Word range must be an aligned power of two: " + firstWord + " + " + words);
+        }
+        if (words != denseWords || dense == null) {
+            selectDense(words);
+        }
+        for (int j = 0; j < flipFlops; j++) {
+            if (excitationTables != null) {
+                fillFromTables(j, firstWord, words, nextStateColumns[j]);
+            } else if (((denseNextStates >>> j) & 1L) == 0) {
+                fill(j, nextStateSupport[j], firstWord, words, nextStateColumns[j], null);
+            }
+        }
+        if (dense != null) {
+            fillDense(firstWord, words, nextStateColumns, outputColumns);
+        }
+        // Outputs read the next-state columns just computed
+        for (int k = 0; k < outputSupport.length; k++) {
+            if (((denseOutputs >>> k) & 1L) == 0) {
+                fill(-1 - k, outputSupport[k], firstWord, words, outputColumns[k], nextStateColumns);
+            }
+        }
+    }
+
+    private void selectDense(int words) {
+        long blockBits = (long) (words - 1) << WORD_BITS;
+        long nextStates = 0;
+        for (int j = 0; j < flipFlops && excitationTables == null; j++) {
+            if ((nextStateSupport[j] & blockBits) == blockBits) nextStates |= 1L << j;
+        }
+        long outputs = 0;
+        for (int k = 0; k < outputSupport.length; k++) {
+            if ((outputSupport[k] & blockBits) == blockBits) outputs |= 1L << k;
+        }
+
+        denseWords = words;
+        denseNextStates = nextStates;
+        denseOutputs = outputs;
+        dense = nextStates == 0 && outputs == 0 ? null : circuit.fused().restrict(nextStates, outputs);
+        if (dense != null && (registers == null || registers.length < dense.size())) {
+            registers = dense.newRegisters();
+        }
+    }
+
+    private void fillDense(long firstWord, int words, long[][] nextStateColumns, long[][] outputColumns) {
+        long inputMask = dense.inputSupport();
+        long stateMask = dense.stateSupport();
+        for (int w = 0; w < words; w++) {
+            long block = firstWord + w;
+            for (long rest = inputMask; rest != 0; rest &= rest - 1) {
+                int k = Long.numberOfTrailingZeros(rest);
+                inputWords[k] = BitSlicedStateTable.variableWord(inputs - 1 - k, block);
+            }
+            for (long rest = stateMask; rest != 0; rest &= rest - 1) {
+                int k = Long.numberOfTrailingZeros(rest);
+                stateWords[k] = BitSlicedStateTable.variableWord(inputs + flipFlops - 1 - k, block);
+            }
+            dense.evaluate(inputWords, stateWords, registers);
+            for (long rest = denseNextStates; rest != 0; rest &= rest - 1) {
+                int j = Long.numberOfTrailingZeros(rest);
+                nextStateColumns[j][w] = dense.nextStateWord(registers, j);
+            }
+            for (long rest = denseOutputs; rest != 0; rest &= rest - 1) {
+                int k = Long.numberOfTrailingZeros(rest);
+                outputColumns[k][w] = dense.outputWord(registers, k);
+            }
+        }
+    }
+
+    // Whole-table forms for a single column, as used by StateTableSession after an edit
+    void fillNextState(int flipFlop, int words, long[] column) {
+        if (excitationTables != null) {
+            fillFromTables(flipFlop, 0, words, column);
+            return;
+        }
+        fill(flipFlop, nextStateSupport[flipFlop], 0, words, column, null);
+    }
+
+    void fillOutput(int output, int words, long[] column, long[][] nextStateColumns) {
+        fill(-1 - output, outputSupport[output], 0, words, column, nextStateColumns);
+    }
+
+    // Output word for block w of a whole table whose next-state columns are already filled
+    long outputWord(int output, int w, long[][] nextStateColumns) {
+        return word(-1 - output, outputSupport[output], w, w, nextStateColumns);
+    }
+
+    // Next state from the cached excitation truth tables and the flip-flop's own present state
+    private void fillFromTables(int flipFlop, long firstWord, int words, long[] target) {
+        LongBuffer a = excitationTables[flipFlop][0];
+        LongBuffer b = excitationTables[flipFlop].length > 1 ? excitationTables[flipFlop][1] : null;
+        FlipFlopKind kind = circuit.kind(flipFlop);
+        int stateBit = inputs + flipFlops - 1 - flipFlop;
+        if (Metrics.ENABLED) Metrics.recordNextStateEvaluations((long) words << WORD_BITS);
+        for (int w = 0; w < words; w++) {
+            int block = (int) (firstWord + w);
+            long q = BitSlicedStateTable.variableWord(stateBit, block);
+            target[w] = kind.nextStateWord(q, a.get(block), b == null ? 0L : b.get(block));
+        }
+    }
+
+    private void fill(int column, long support, long firstWord, int words, long[] target, long[][] nextStateColumns) {
+        // Support bits that select among the blocks of this range
+        long varying = (support >>> WORD_BITS) & (words - 1);
+        int bits = 0;
+        for (long rest = varying; rest != 0; rest &= rest - 1) {
+            positions[bits++] = Long.numberOfTrailingZeros(rest);
+        }
+
+        if (1 << bits == words) {
+            // Depends on every block bit: nothing to share
+            for (int w = 0; w < words; w++) {
+                target[w] = word(column, support, firstWord + w, w, nextStateColumns);
+            }
+            return;
+        }
+
+        int points = 1 << bits;
+        if (distinct.length < points) {
+            distinct = new long[points];
+        }
+        for (int key = 0; key < points; key++) {
+            int offset = 0;
+            for (int i = 0; i < bits; i++) offset |= ((key >>> i) & 1) << positions[i];
+            distinct[key] = word(column, support, firstWord + offset, offset, nextStateColumns);
+        }
+
+        if (bits == 0) {
+            Arrays.fill(target, 0, words, distinct[0]);
+            return;
+        }
+        for (int w = 0; w < words; w++) {
+            int key = 0;
+            for (int i = 0; i < bits; i++) key |= ((w >>> positions[i]) & 1) << i;
+            target[w] = distinct[key];
+        }
+    }
+
+    // One bit-sliced evaluation for block w, which is word offset of the range being filled.
+    // Only the support variables are loaded; the function never reads the others.
+    private long word(int column, long support, long w, int offset, long[][] nextStateColumns) {
+        for (long rest = support; rest != 0; rest &= rest - 1) {
+            int p = Long.numberOfTrailingZeros(rest);
+            if (p < inputs) {
+                inputWords[inputs - 1 - p] = BitSlicedStateTable.variableWord(p, w);
+            } else {
+                stateWords[inputs + flipFlops - 1 - p] = BitSlicedStateTable.variableWord(p, w);
+            }
+        }
+
+        if (column >= 0) {
+            return circuit.nextStateWord(column, inputWords, stateWords, stack);
+        }
+        if (circuit == null) {
+            return expression.evaluate(inputWords, stateWords, stack);
+        }
+        CompiledExpression output = circuit.outputFunctions()[-1 - column];
+        for (long rest = output.stateSupport(); rest != 0; rest &= rest - 1) {
+            int j = Long.numberOfTrailingZeros(rest);
+            nextWords[j] = nextStateColumns[j][offset];
+        }
+        return output.evaluate(inputWords, nextWords, stack);
+    }
+
+    private long rowSupport(CompiledExpression expression) {
+        return rowSupport(expression.inputSupport(), expression.stateSupport());
+    }
+
+    // Row-index bits of the variables in the masks: X<k> sits at bit inputs-1-k, Q<k> above the inputs
+    private long rowSupport(long inputMask, long stateMask) {
+        long support = 0;
+        for (long rest = inputMask; rest != 0; rest &= rest - 1) {
+            support |= 1L << (inputs - 1 - Long.numberOfTrailingZeros(rest));
+        }
+        for (long rest = stateMask; rest != 0; rest &= rest - 1) {
+            support |= stateBit(Long.numberOfTrailingZeros(rest));
+        }
+        return support;
+    }
+
+    private long stateBit(int flipFlop) {
+        return 1L << (inputs + flipFlops - 1 - flipFlop);
+    }
+}
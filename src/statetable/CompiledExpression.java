@@ -0,0 +1,358 @@
+package statetable;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// A Boolean expression parsed once into a flat postfix program over variable indices.
+// Evaluation works on primitive values only: no string building, boxing or exceptions per call.
+final class CompiledExpression {
+    static final int OP_INPUT = 0; // push X<operand>
+    static final int OP_STATE = 1; // push Q<operand>
+    static final int OP_CONST = 2; // push <operand> (0 or 1)
+    static final int OP_NOT = 3;
+    static final int OP_AND = 4;
+    static final int OP_OR = 5;
+
+    static final int MAX_VARIABLE_INDEX = 63;
+
+    private static final int OP_BITS = 3;
+    private static final int OP_MASK = (1 << OP_BITS) - 1;
+
+    private final String source;
+    private final int[] program;
+    private final int maxDepth;
+    private final int inputCount;
+    private final int stateCount;
+    private final long inputSupport; // bit k set when X<k> occurs in the program
+    private final long stateSupport; // bit k set when Q<k> occurs in the program
+    private final LongAdder evaluations; // null unless Metrics.ENABLED
+
+    private CompiledExpression(String source, int[] program, int maxDepth, int inputCount, int stateCount) {
+        this.source = source;
+        this.program = program;
+        this.maxDepth = maxDepth;
+        this.inputCount = inputCount;
+        this.stateCount = stateCount;
+
+        long inputMask = 0;
+        long stateMask = 0;
+        for (int insn : program) {
+            switch (insn & OP_MASK) {
+                case OP_INPUT -> inputMask |= 1L << (insn >>> OP_BITS);
+                case OP_STATE -> stateMask |= 1L << (insn >>> OP_BITS);
+                default -> { }
+            }
+        }
+        this.inputSupport = inputMask;
+        this.stateSupport = stateMask;
+        this.evaluations = Metrics.ENABLED ? Metrics.expressionCounter(source) : null;
+    }
+
+    public static CompiledExpression compile(String expression) {
+        if (expression == null || expression.isEmpty()) {
+            throw new IllegalArgumentException("Expression cannot be null or empty");
+        }
+
+        try {
+            if (Metrics.ENABLED) {
+                Metrics.ExpressionCompiledEvent event = Metrics.beginCompile();
+                CompiledExpression compiled = new Parser(expression).parse();
+                Metrics.endCompile(event, compiled);
+                return compiled;
+            }
+            return new Parser(expression).parse();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error compiling expression: " + expression, e);
+        }
+    }
+
+    public String source() {
+        return source;
+    }
+
+    // Number of input variables the expression needs (highest X index + 1)
+    public int inputCount() {
+        return inputCount;
+    }
+
+    // Number of state variables the expression needs (highest Q index + 1)
+    public int stateCount() {
+        return stateCount;
+    }
+
+    // Support set: the variables the value can actually depend on. Unlike inputCount() /
+    // stateCount() these are exact masks, so "X0 * X5" depends on two inputs, not six.
+    public long inputSupport() {
+        return inputSupport;
+    }
+
+    public long stateSupport() {
+        return stateSupport;
+    }
+
+    int length() {
+        return program.length;
+    }
+
+    int maxDepth() {
+        return maxDepth;
+    }
+
+    int opcode(int pc) {
+        return program[pc] & OP_MASK;
+    }
+
+    int operand(int pc) {
+        return program[pc] >>> OP_BITS;
+    }
+
+    // Evaluates against arrays of 0/1 values, as used by BooleanEvaluator
+    public int evaluate(int[] inputs, int[] states) {
+        if (inputs.length < inputCount || states.length < stateCount) {
+            throw new IllegalArgumentException("Not enough variables supplied for expression: " + source);
+        }
+        return evaluate(pack(inputs), pack(states));
+    }
+
+    // Evaluates against packed words where bit k holds X<k> / Q<k>
+    public int evaluate(long inputs, long states) {
+        if (Metrics.ENABLED) evaluations.increment();
+        if (maxDepth > Long.SIZE) {
+            return evaluateDeep(inputs, states);
+        }
+
+        // The operand stack fits in one word: bit 0 is the top of the stack
+        long stack = 0;
+        for (int insn : program) {
+            switch (insn & OP_MASK) {
+                case OP_INPUT -> stack = (stack << 1) | ((inputs >>> (insn >>> OP_BITS)) & 1L);
+                case OP_STATE -> stack = (stack << 1) | ((states >>> (insn >>> OP_BITS)) & 1L);
+                case OP_CONST -> stack = (stack << 1) | (insn >>> OP_BITS);
+                case OP_NOT -> stack ^= 1L;
+                case OP_AND -> stack = (stack >>> 1) & (stack | ~1L);
+                default -> stack = (stack >>> 1) | (stack & 1L); // OP_OR
+            }
+        }
+        return (int) (stack & 1L);
+    }
+
+    // Bit-sliced evaluation: inputWords[k] / stateWords[k] hold X<k> / Q<k> for 64 rows at once,
+    // so AND/OR/NOT become word-wide &, |, ~. The stack must hold at least maxDepth() words.
+    public long evaluate(long[] inputWords, long[] stateWords, long[] stack) {
+        if (Metrics.ENABLED) evaluations.add(Long.SIZE);
+        int top = -1;
+        for (int insn : program) {
+            switch (insn & OP_MASK) {
+                case OP_INPUT -> stack[++top] = inputWords[insn >>> OP_BITS];
+                case OP_STATE -> stack[++top] = stateWords[insn >>> OP_BITS];
+                case OP_CONST -> stack[++top] = -(long) (insn >>> OP_BITS);
+                case OP_NOT -> stack[top] = ~stack[top];
+                case OP_AND -> {
+                    top--;
+                    stack[top] &= stack[top + 1];
+                }
+                default -> {
+                    top--;
+                    stack[top] |= stack[top + 1];
+                }
+            }
+        }
+        return stack[0];
+    }
+
+    // Fallback for expressions nested deeper than a single stack word can hold
+    private int evaluateDeep(long inputs, long states) {
+        boolean[] stack = new boolean[maxDepth];
+        int top = -1;
+        for (int insn : program) {
+            int operand = insn >>> OP_BITS;
+            switch (insn & OP_MASK) {
+                case OP_INPUT -> stack[++top] = ((inputs >>> operand) & 1L) != 0;
+                case OP_STATE -> stack[++top] = ((states >>> operand) & 1L) != 0;
+                case OP_CONST -> stack[++top] = operand != 0;
+                case OP_NOT -> stack[top] = !stack[top];
+                case OP_AND -> {
+                    top--;
+                    stack[top] = stack[top] & stack[top + 1];
+                }
+                default -> {
+                    top--;
+                    stack[top] = stack[top] | stack[top + 1];
+                }
+            }
+        }
+        return stack[0] ? 1 : 0;
+    }
+
+    private static long pack(int[] values) {
+        long packed = 0;
+        int count = Math.min(values.length, Long.SIZE);
+        for (int i = 0; i < count; i++) {
+            packed |= (long) (values[i] & 1) << i;
+        }
+        return packed;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // Shunting-yard parser for the +, *, - grammar used by BooleanEvaluator.
+    // Operand counts are tracked statically, so the lenient cases of the original
+    // evaluator (a binary operator with a single operand passes it through) are
+    // resolved here instead of at evaluation time.
+    private static final class Parser {
+        private final String source;
+        private final int[] program;
+        private int length;
+        private final char[] operators;
+        private int operatorCount;
+        private int depth;
+        private int maxDepth;
+        private int inputCount;
+        private int stateCount;
+
+        Parser(String source) {
+            this.source = source;
+            this.program = new int[source.length()];
+            this.operators = new char[source.length()];
+        }
+
+        CompiledExpression parse() {
+            String expression = source;
+            int i = 0;
+            boolean blank = true;
+
+            while (i < expression.length()) {
+                char ch = expression.charAt(i);
+
+                if (Character.isWhitespace(ch) || ch == '_') {
+                    if (ch == '_') blank = false;
+                    i++;
+                    continue;
+                }
+                blank = false;
+
+                if (ch == 'X' || ch == 'Q') {
+                    i++;
+                    int index = 0;
+                    int digits = 0;
+                    // An underscore ends the index: the original evaluator substituted variables
+                    // before stripping underscores, so "X_0" and "X1_0" never named X0 or X10
+                    while (i < expression.length() && Character.isDigit(expression.charAt(i))) {
+                        char digit = expression.charAt(i++);
+                        index = index * 10 + (digit - '0');
+                        digits++;
+                        if (index > MAX_VARIABLE_INDEX) {
+                            throw new IllegalArgumentException("Variable index out of range: " + ch + index);
+                        }
+                    }
+                    if (digits == 0) {
+                        throw new IllegalArgumentException("Missing index for variable: " + ch);
+                    }
+                    if (ch == 'X') {
+                        emit(OP_INPUT, index);
+                        inputCount = Math.max(inputCount, index + 1);
+                    } else {
+                        emit(OP_STATE, index);
+                        stateCount = Math.max(stateCount, index + 1);
+                    }
+                    push();
+                    continue;
+                }
+
+                if (Character.isDigit(ch)) {
+                    int value = ch - '0';
+                    if (value != 0 && value != 1) {
+                        throw new IllegalArgumentException("Invalid binary value in expression: " + value);
+                    }
+                    emit(OP_CONST, value);
+                    push();
+                } else if (ch == '(') {
+                    operators[operatorCount++] = ch;
+                } else if (ch == ')') {
+                    while (operatorCount > 0 && operators[operatorCount - 1] != '(') {
+                        applyTopOperator();
+                    }
+                    if (operatorCount == 0) {
+                        throw new IllegalArgumentException("Mismatched parentheses in expression");
+                    }
+                    operatorCount--; // Pop '('
+                } else if (isOperator(ch)) {
+                    while (operatorCount > 0 && precedence(operators[operatorCount - 1]) >= precedence(ch)) {
+                        applyTopOperator();
+                    }
+                    operators[operatorCount++] = ch;
+                } else {
+                    throw new IllegalArgumentException("Invalid character in expression: " + ch);
+                }
+                i++;
+            }
+
+            // A whitespace-only expression evaluates to 0, as in BooleanEvaluator
+            if (blank) {
+                emit(OP_CONST, 0);
+                push();
+            }
+
+            while (operatorCount > 0) {
+                if (operators[operatorCount - 1] == '(') {
+                    throw new IllegalArgumentException("Mismatched parentheses in expression");
+                }
+                applyTopOperator();
+            }
+
+            if (depth == 0) {
+                throw new IllegalArgumentException("Expression evaluation resulted in no value");
+            }
+            if (depth > 1) {
+                throw new IllegalArgumentException("Invalid expression: too many operands");
+            }
+
+            int[] code = Arrays.copyOf(program, length);
+            return new CompiledExpression(source, code, maxDepth, inputCount, stateCount);
+        }
+
+        private void applyTopOperator() {
+            char operator = operators[--operatorCount];
+            if (depth == 0) {
+                throw new IllegalArgumentException("Not enough operands for operator: " + operator);
+            }
+
+            switch (operator) {
+                case '-' -> emit(OP_NOT, 0);
+                case '*', '+' -> {
+                    // With a single operand the binary operator passes it through unchanged
+                    if (depth > 1) {
+                        emit(operator == '*' ? OP_AND : OP_OR, 0);
+                        depth--;
+                    }
+                }
+                default -> throw new IllegalArgumentException("Invalid operator: " + operator);
+            }
+        }
+
+        private void emit(int opcode, int operand) {
+            program[length++] = opcode | (operand << OP_BITS);
+        }
+
+        private void push() {
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private static boolean isOperator(char ch) {
+            return ch == '+' || ch == '*' || ch == '-';
+        }
+
+        private static int precedence(char operator) {
+            return switch (operator) {
+                case '-' -> 3; // NOT
+                case '*' -> 2; // AND
+                case '+' -> 1; // OR
+                default -> 0;
+            };
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package statetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Checks whether two circuits behave the same, without printing either table.
+//
+// checkAll() compares next state and outputs on every (input, state) row. Workers claim
+// aligned blocks of 64-row words in ascending order and evaluate both circuits column-wise
+// (ColumnEvaluator), so each word compares 64 rows with a few XORs. Once a block holds a
+// difference no new blocks are claimed; blocks below it are still finished, so the reported
+// counterexample is always the lowest differing row.
+//
+// checkSymbolic() answers the same question as checkAll() without enumerating rows: both
+// circuits are built as BDDs on one manager (SymbolicCircuit), where equal functions are the
+// same node. It suits circuits too wide to enumerate whose functions still have small BDDs;
+// its counterexample is some differing row, not necessarily the lowest.
+//
+// checkReachable() compares only observable behavior: from a pair of initial states it walks
+// the product machine breadth-first and requires equal outputs for every input in every
+// reachable state pair. The two circuits may then encode their states differently, or use a
+// different number of flip-flops. Circuits without outputs have nothing else to observe, so
+// their next states must match instead, which needs the same number of flip-flops. Each
+// level's pairs are split across the workers, and the inputs of one pair are evaluated 64 at a
+// time; all workers stop once one finds a difference, so the counterexample is reached in as
+// few cycles as possible. Workers list each new successor pair once, and the merge keeps the
+// first of those found by several workers.
+final class EquivalenceChecker {
+    static final int BLOCK_WORDS = 1 << 12;
+    static final int MAX_PAIRS = 1 << 28;
+    // Above this many variables the command line compares every row symbolically
+    static final int SYMBOLIC_VARIABLES = 36;
+
+    private final Circuit first;
+    private final Circuit second;
+    private final int parallelism;
+
+    public EquivalenceChecker(Circuit first, Circuit second, int parallelism) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Circuits cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (first.inputs() != second.inputs() || first.outputs() != second.outputs()) {
+            throw new IllegalArgumentException("Circuits differ in inputs or outputs: " + first.inputs() + "/" + first.outputs()
+                    + " vs " + second.inputs() + "/" + second.outputs());
+        }
+        this.first = first;
+        this.second = second;
+        this.parallelism = parallelism;
+    }
+
+    public EquivalenceChecker(CircuitSpec first, CircuitSpec second) {
+        this(first.toGenerator().circuit(), second.toGenerator().circuit(), Runtime.getRuntime().availableProcessors());
+    }
+
+    // Every row of the state table: the circuits must agree state for state
+    public Result checkAll() {
+        if (first.flipFlops() != second.flipFlops()) {
+            throw new IllegalArgumentException("Circuits differ in flip-flops (" + first.flipFlops() + " vs "
+                    + second.flipFlops() + "); compare reachable behavior instead");
+        }
+        int inputs = first.inputs();
+        int flipFlops = first.flipFlops();
+        int variables = inputs + flipFlops;
+        long totalWords = variables <= 6 ? 1 : 1L << (variables - 6);
+        int blockWords = (int) Math.min(BLOCK_WORDS, totalWords);
+        long blocks = totalWords / blockWords;
+        long validMask = variables >= 6 ? -1L : (1L << (1 << variables)) - 1;
+
+        AtomicLong nextBlock = new AtomicLong();
+        AtomicLong firstDifference = new AtomicLong(-1); // unsigned minimum; -1 while none
+        AtomicLong rowsChecked = new AtomicLong();
+
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(() -> {
+                ColumnEvaluator evaluatorA = new ColumnEvaluator(first);
+                ColumnEvaluator evaluatorB = new ColumnEvaluator(second);
+                long[][] nextA = new long[flipFlops][blockWords];
+                long[][] nextB = new long[flipFlops][blockWords];
+                long[][] outA = new long[first.outputs()][blockWords];
+                long[][] outB = new long[second.outputs()][blockWords];
+
+                while (firstDifference.get() == -1) {
+                    long block = nextBlock.getAndIncrement();
+                    if (block >= blocks) break;
+                    long firstWord = block * blockWords;
+                    evaluatorA.evaluate(firstWord, blockWords, nextA, outA);
+                    evaluatorB.evaluate(firstWord, blockWords, nextB, outB);
+
+                    for (int w = 0; w < blockWords; w++) {
+                        long diff = 0;
+                        for (int j = 0; j < flipFlops; j++) diff |= nextA[j][w] ^ nextB[j][w];
+                        for (int k = 0; k < outA.length; k++) diff |= outA[k][w] ^ outB[k][w];
+                        diff &= validMask;
+                        if (diff != 0) {
+                            long row = ((firstWord + w) << 6) | Long.numberOfTrailingZeros(diff);
+                            firstDifference.accumulateAndGet(row, (a, b) -> Long.compareUnsigned(a, b) <= 0 ? a : b);
+                            break;
+                        }
+                    }
+                    rowsChecked.addAndGet((long) blockWords << 6);
+                }
+                return null;
+            });
+        }
+        run(workers);
+
+        long rows = 1L << variables;
+        long checked = Long.compareUnsigned(rowsChecked.get(), rows) < 0 ? rowsChecked.get() : rows;
+        long row = firstDifference.get();
+        if (row == -1) {
+            return new Result(checked, 0, null);
+        }
+        long inputBits = StateTableGenerator.inputBits(row, inputs);
+        long stateBits = StateTableGenerator.stateBits(row, inputs, flipFlops);
+        return new Result(checked, 0, counterexample(inputBits, stateBits, stateBits, -1));
+    }
+
+    // Every row, decided on BDDs instead of by enumeration
+    public Result checkSymbolic() {
+        if (first.flipFlops() != second.flipFlops()) {
+            throw new IllegalArgumentException("Circuits differ in flip-flops (" + first.flipFlops() + " vs "
+                    + second.flipFlops() + "); compare reachable behavior instead");
+        }
+        int inputs = first.inputs();
+        int flipFlops = first.flipFlops();
+        Bdd bdd = SymbolicCircuit.manager(inputs, flipFlops);
+        long row = SymbolicCircuit.build(bdd, first).counterexample(SymbolicCircuit.build(bdd, second));
+        long rows = 1L << (inputs + flipFlops);
+        if (row == -1) {
+            return new Result(rows, 0, null);
+        }
+        long stateBits = StateTableGenerator.stateBits(row, inputs, flipFlops);
+        return new Result(rows, 0, counterexample(StateTableGenerator.inputBits(row, inputs), stateBits, stateBits, -1));
+    }
+
+    // Observable behavior from the given initial states (bit k = Q<k> of each circuit)
+    public Result checkReachable(long firstInitial, long secondInitial) {
+        checkState(firstInitial, first);
+        checkState(secondInitial, second);
+        if (first.outputs() == 0 && first.flipFlops() != second.flipFlops()) {
+            throw new IllegalArgumentException("Circuits without outputs are compared state for state, but differ in flip-flops ("
+                    + first.flipFlops() + " vs " + second.flipFlops() + ")");
+        }
+
+        PairSet visited = new PairSet(1 << 12);
+        visited.add(firstInitial, secondInitial);
+        long[] level = {firstInitial, secondInitial};
+        int levelPairs = 1;
+        int depth = 0;
+        AtomicBoolean found = new AtomicBoolean();
+
+        while (levelPairs > 0) {
+            int slices = Math.min(parallelism, levelPairs);
+            List<Callable<ProductStep>> tasks = new ArrayList<>(slices);
+            for (int s = 0; s < slices; s++) {
+                int from = (int) ((long) levelPairs * s / slices);
+                int to = (int) ((long) levelPairs * (s + 1) / slices);
+                long[] pairs = level;
+                int currentDepth = depth;
+                tasks.add(() -> new ProductStep().expand(pairs, from, to, currentDepth, found, visited));
+            }
+
+            // Merge in slice order so the next level is deterministic
+            long[] next = new long[16];
+            int nextPairs = 0;
+            for (ProductStep step : run(tasks)) {
+                if (step.counterexample != null) {
+                    return new Result(0, visited.size(), step.counterexample);
+                }
+                for (int i = 0; i < step.count; i++) {
+                    long a = step.successors[2 * i];
+                    long b = step.successors[2 * i + 1];
+                    if (!visited.add(a, b)) continue;
+                    if (2 * nextPairs + 2 > next.length) next = Arrays.copyOf(next, next.length * 2);
+                    next[2 * nextPairs] = a;
+                    next[2 * nextPairs + 1] = b;
+                    nextPairs++;
+                }
+            }
+            level = next;
+            levelPairs = nextPairs;
+            depth++;
+        }
+        return new Result(0, visited.size(), null);
+    }
+
+    private static void checkState(long state, Circuit circuit) {
+        if (circuit.flipFlops() < Long.SIZE && (state >>> circuit.flipFlops()) != 0) {
+            throw new IllegalArgumentException("Initial state has bits beyond Q" + (circuit.flipFlops() - 1));
+        }
+    }
+
+    private Counterexample counterexample(long inputBits, long firstState, long secondState, int depth) {
+        long firstNext = first.nextState(inputBits, firstState);
+        long secondNext = second.nextState(inputBits, secondState);
+        return new Counterexample(first, second, inputBits, firstState, secondState, firstNext, secondNext,
+                first.outputs(inputBits, firstNext), second.outputs(inputBits, secondNext), depth);
+    }
+
+    private <T> List<T> run(List<Callable<T>> tasks) {
+        if (tasks.size() == 1) {
+            try {
+                return Collections.singletonList(tasks.get(0).call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Error checking equivalence: " + e.getMessage(), e);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException("Error checking equivalence: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Equivalence check interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // One worker's share of a product-machine level: checks the outputs (the next states when
+    // there are none) of every input in its pairs and lists each successor not yet visited once.
+    // The visited set is only read here; the merge after the level adds to it.
+    private final class ProductStep {
+        private final int inputs = first.inputs();
+        private final long[] inputWords;
+        private final long[] stateWordsA;
+        private final long[] stateWordsB;
+        private final FusedCircuit fusedA = first.fused();
+        private final FusedCircuit fusedB = second.fused();
+        private final long[] registersA = fusedA.newRegisters();
+        private final long[] registersB = fusedB.newRegisters();
+        private final PairSet listed = new PairSet(1 << 4);
+        long[] successors = new long[64];
+        int count;
+        Counterexample counterexample;
+
+        ProductStep() {
+            this.inputWords = new long[inputs];
+            this.stateWordsA = new long[first.flipFlops()];
+            this.stateWordsB = new long[second.flipFlops()];
+        }
+
+        ProductStep expand(long[] pairs, int from, int to, int depth, AtomicBoolean found, PairSet visited) {
+            long inputBlocks = inputs <= 6 ? 1 : 1L << (inputs - 6);
+            int lanes = inputs < 6 ? 1 << inputs : Long.SIZE;
+            long validMask = lanes == Long.SIZE ? -1L : (1L << lanes) - 1;
+            int outputs = first.outputs();
+            int comparedStates = outputs == 0 ? stateWordsA.length : 0; // checkReachable made the counts equal
+
+            for (int p = from; p < to && !found.get(); p++) {
+                long stateA = pairs[2 * p];
+                long stateB = pairs[2 * p + 1];
+                for (int k = 0; k < stateWordsA.length; k++) stateWordsA[k] = -((stateA >>> k) & 1L);
+                for (int k = 0; k < stateWordsB.length; k++) stateWordsB[k] = -((stateB >>> k) & 1L);
+
+                for (long block = 0; block < inputBlocks; block++) {
+                    for (int k = 0; k < inputs; k++) inputWords[k] = BitSlicedStateTable.variableWord(inputs - 1 - k, block);
+                    fusedA.evaluate(inputWords, stateWordsA, registersA);
+                    fusedB.evaluate(inputWords, stateWordsB, registersB);
+
+                    long diff = 0;
+                    for (int k = 0; k < outputs; k++) {
+                        diff |= fusedA.outputWord(registersA, k) ^ fusedB.outputWord(registersB, k);
+                    }
+                    for (int j = 0; j < comparedStates; j++) {
+                        diff |= fusedA.nextStateWord(registersA, j) ^ fusedB.nextStateWord(registersB, j);
+                    }
+                    diff &= validMask;
+                    if (diff != 0) {
+                        long row = (block << 6) | Long.numberOfTrailingZeros(diff);
+                        counterexample = counterexample(StateTableGenerator.inputBits(row, inputs), stateA, stateB, depth);
+                        found.set(true);
+                        return this;
+                    }
+
+                    for (int lane = 0; lane < lanes; lane++) {
+                        long nextA = 0;
+                        for (int j = 0; j < stateWordsA.length; j++) nextA |= ((fusedA.nextStateWord(registersA, j) >>> lane) & 1L) << j;
+                        long nextB = 0;
+                        for (int j = 0; j < stateWordsB.length; j++) nextB |= ((fusedB.nextStateWord(registersB, j) >>> lane) & 1L) << j;
+                        // listed caps count at MAX_PAIRS, so the buffer stays below 2^29 longs
+                        if (visited.contains(nextA, nextB) || !listed.add(nextA, nextB)) continue;
+                        if (2 * count + 2 > successors.length) successors = Arrays.copyOf(successors, successors.length * 2);
+                        successors[2 * count] = nextA;
+                        successors[2 * count + 1] = nextB;
+                        count++;
+                    }
+                }
+            }
+            return this;
+        }
+    }
+
+    // Open-addressing set of state pairs, kept at most half full
+    private static final class PairSet {
+        private long[] keys;
+        private boolean[] used;
+        private int size;
+
+        // capacity: a power of two
+        PairSet(int capacity) {
+            this.keys = new long[2 * capacity];
+            this.used = new boolean[capacity];
+        }
+
+        boolean contains(long a, long b) {
+            int mask = used.length - 1;
+            int slot = hash(a, b) & mask;
+            while (used[slot]) {
+                if (keys[2 * slot] == a && keys[2 * slot + 1] == b) return true;
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        boolean add(long a, long b) {
+            int mask = used.length - 1;
+            int slot = hash(a, b) & mask;
+            while (used[slot]) {
+                if (keys[2 * slot] == a && keys[2 * slot + 1] == b) return false;
+                slot = (slot + 1) & mask;
+            }
+            if (size == MAX_PAIRS) {
+                throw new IllegalStateException("Too many reachable state pairs: " + size);
+            }
+            used[slot] = true;
+            keys[2 * slot] = a;
+            keys[2 * slot + 1] = b;
+            if (++size > used.length >>> 1) grow();
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            used = new boolean[oldUsed.length * 2];
+            int mask = used.length - 1;
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (!oldUsed[i]) continue;
+                long a = oldKeys[2 * i];
+                long b = oldKeys[2 * i + 1];
+                int slot = hash(a, b) & mask;
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                keys[2 * slot] = a;
+                keys[2 * slot + 1] = b;
+            }
+        }
+
+        private static int hash(long a, long b) {
+            long h = (a * 0x9E3779B97F4A7C15L + b) * 0xC2B2AE3D27D4EB4FL;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    static final class Result {
+        private final long rowsChecked;
+        private final long statePairs;
+        private final Counterexample counterexample;
+
+        Result(long rowsChecked, long statePairs, Counterexample counterexample) {
+            this.rowsChecked = rowsChecked;
+            this.statePairs = statePairs;
+            this.counterexample = counterexample;
+        }
+
+        public boolean equivalent() {
+            return counterexample == null;
+        }
+
+        // Null when the circuits are equivalent
+        public Counterexample counterexample() {
+            return counterexample;
+        }
+
+        // Rows compared by checkAll(); may exceed the rows before the counterexample
+        public long rowsChecked() {
+            return rowsChecked;
+        }
+
+        // Distinct state pairs reached by checkReachable()
+        public long statePairs() {
+            return statePairs;
+        }
+
+        @Override
+        public String toString() {
+            String scope = statePairs > 0 ? statePairs + " reachable state pairs" : Long.toUnsignedString(rowsChecked) + " rows";
+            return equivalent() ? "Equivalent (" + scope + ")" : "Not equivalent: " + counterexample;
+        }
+    }
+
+    // An input and present state (one per circuit) on which the circuits disagree
+    static final class Counterexample {
+        private final Circuit first;
+        private final Circuit second;
+        final long inputBits;
+        final long firstState;
+        final long secondState;
+        final long firstNextState;
+        final long secondNextState;
+        final long firstOutputs;
+        final long secondOutputs;
+        final int depth; // cycles from the initial states, or -1 when comparing all rows
+
+        Counterexample(Circuit first, Circuit second, long inputBits, long firstState, long secondState,
+                       long firstNextState, long secondNextState, long firstOutputs, long secondOutputs, int depth) {
+            this.first = first;
+            this.second = second;
+            this.inputBits = inputBits;
+            this.firstState = firstState;
+            this.secondState = secondState;
+            this.firstNextState = firstNextState;
+            this.secondNextState = secondNextState;
+            this.firstOutputs = firstOutputs;
+            this.secondOutputs = secondOutputs;
+            this.depth = depth;
+        }
+
+        // Bits are listed X0 / Q0 / output 0 first, as in spec files
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder("X=").append(digits(inputBits, first.inputs()));
+            if (depth < 0) {
+                text.append(" Q=").append(digits(firstState, first.flipFlops()));
+            } else {
+                text.append(" Q=").append(digits(firstState, first.flipFlops()))
+                        .append(" / ").append(digits(secondState, second.flipFlops()))
+                        .append(" (reached after ").append(depth).append(depth == 1 ? " cycle)" : " cycles)");
+            }
+            text.append(": next state ").append(digits(firstNextState, first.flipFlops()))
+                    .append(" vs ").append(digits(secondNextState, second.flipFlops()));
+            if (first.outputs() > 0) {
+                text.append(", outputs ").append(digits(firstOutputs, first.outputs()))
+                        .append(" vs ").append(digits(secondOutputs, second.outputs()));
+            }
+            return text.toString();
+        }
+
+        private static String digits(long bits, int count) {
+            StringBuilder text = new StringBuilder(count);
+            for (int k = 0; k < count; k++) text.append((bits >>> k) & 1L);
+            return text.toString();
+        }
+    }
+}
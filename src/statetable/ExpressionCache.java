@@ -0,0 +1,205 @@
+package statetable;
+
+import java.nio.LongBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Shared, size-bounded LRU cache of compiled expressions and their truth tables. Keys are
+// normalized, so "X0 * Q1", "X0*Q1" and "X0_*Q01" share one entry. Safe for concurrent use.
+final class ExpressionCache {
+    static final int DEFAULT_CAPACITY = 4096;
+    static final int DEFAULT_TABLE_CAPACITY = 256;
+    // Truth tables above this many variables are computed but not kept
+    static final int MAX_TABLE_VARIABLES = 20;
+
+    private static final ExpressionCache SHARED = new ExpressionCache(
+            Integer.getInteger("statetable.expressionCache.size", DEFAULT_CAPACITY),
+            Integer.getInteger("statetable.expressionCache.tables", DEFAULT_TABLE_CAPACITY));
+
+    private final Lru<String, CompiledExpression> expressions;
+    private final Lru<String, long[]> tables;
+
+    public ExpressionCache(int capacity, int tableCapacity) {
+        if (capacity < 1 || tableCapacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be at least 1");
+        }
+        this.expressions = new Lru<>(capacity);
+        this.tables = new Lru<>(tableCapacity);
+    }
+
+    public static ExpressionCache shared() {
+        return SHARED;
+    }
+
+    public CompiledExpression compile(String expression) {
+        if (expression == null || expression.isEmpty()) {
+            throw new IllegalArgumentException("Expression cannot be null or empty");
+        }
+
+        String key = normalize(expression);
+        // Blank and underscore-only expressions have no normalized form worth sharing
+        if (key.isEmpty()) {
+            return CompiledExpression.compile(expression);
+        }
+
+        CompiledExpression compiled = expressions.get(key);
+        if (compiled == null) {
+            // Parsed outside the lock; a concurrent miss on the same key just parses twice
+            compiled = CompiledExpression.compile(expression);
+            expressions.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    // Values of the expression over every row of a table with the given inputs and flip-flops,
+    // one bit per row in StateTableGenerator row order, as a read-only view of the shared table.
+    // ColumnEvaluator reads excitation functions' next-state columns from here.
+    public LongBuffer truthTable(String expression, int inputs, int flipFlops) {
+        CompiledExpression compiled = compile(expression);
+        String normalized = normalize(expression);
+        if (inputs + flipFlops > MAX_TABLE_VARIABLES || normalized.isEmpty()) {
+            return LongBuffer.wrap(BitSlicedStateTable.truthTable(compiled, inputs, flipFlops)).asReadOnlyBuffer();
+        }
+
+        String key = normalized + '|' + inputs + '|' + flipFlops;
+        long[] table = tables.get(key);
+        if (table == null) {
+            table = BitSlicedStateTable.truthTable(compiled, inputs, flipFlops);
+            tables.put(key, table);
+        }
+        return LongBuffer.wrap(table).asReadOnlyBuffer();
+    }
+
+    // Canonical spelling of an expression: whitespace and '_' dropped and variable indices
+    // without leading zeros. Token boundaries are kept, so neither "X1 0" nor "X1_0" becomes
+    // "X10".
+    static String normalize(String expression) {
+        StringBuilder normalized = new StringBuilder(expression.length());
+        boolean afterOperand = false;
+        int i = 0;
+        while (i < expression.length()) {
+            char ch = expression.charAt(i);
+            if (Character.isWhitespace(ch) || ch == '_') {
+                i++;
+                continue;
+            }
+
+            if (ch == 'X' || ch == 'Q') {
+                normalized.append(ch);
+                i++;
+                int digits = 0;
+                boolean significant = false;
+                while (i < expression.length() && Character.isDigit(expression.charAt(i))) {
+                    char digit = expression.charAt(i++);
+                    digits++;
+                    if (digit != '0' || significant) {
+                        normalized.append(digit);
+                        significant = true;
+                    }
+                }
+                if (digits > 0 && !significant) {
+                    normalized.append('0');
+                }
+                afterOperand = true;
+                continue;
+            }
+
+            // Constants are single digits; keep them apart from a preceding operand
+            if (Character.isDigit(ch) && afterOperand) {
+                normalized.append(' ');
+            }
+            normalized.append(ch);
+            afterOperand = Character.isDigit(ch);
+            i++;
+        }
+        return normalized.toString();
+    }
+
+    public long hits() {
+        return expressions.hits.sum();
+    }
+
+    public long misses() {
+        return expressions.misses.sum();
+    }
+
+    public long evictions() {
+        return expressions.evictions.sum();
+    }
+
+    public long tableHits() {
+        return tables.hits.sum();
+    }
+
+    public long tableMisses() {
+        return tables.misses.sum();
+    }
+
+    public long tableEvictions() {
+        return tables.evictions.sum();
+    }
+
+    public int size() {
+        return expressions.size();
+    }
+
+    public void clear() {
+        expressions.clear();
+        tables.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("expressions: %d hits, %d misses, %d evictions; truth tables: %d hits, %d misses, %d evictions",
+                hits(), misses(), evictions(), tableHits(), tableMisses(), tableEvictions());
+    }
+
+    // Access-ordered LinkedHashMap behind one lock, with hit/miss/eviction counters
+    private static final class Lru<K, V> {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+        private final Map<K, V> map;
+
+        Lru(int capacity) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        V get(K key) {
+            V value;
+            synchronized (map) {
+                value = map.get(key);
+            }
+            (value != null ? hits : misses).increment();
+            return value;
+        }
+
+        void put(K key, V value) {
+            synchronized (map) {
+                map.putIfAbsent(key, value);
+            }
+        }
+
+        int size() {
+            synchronized (map) {
+                return map.size();
+            }
+        }
+
+        void clear() {
+            synchronized (map) {
+                map.clear();
+            }
+        }
+    }
+}
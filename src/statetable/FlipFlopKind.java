@@ -0,0 +1,131 @@
+package statetable;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// The four flip-flop kinds with their characteristic equations. Each kind carries an 8-entry
+// lookup table indexed by (q << 2) | (a << 1) | b, where q is the flip-flop's present state and
+// a, b its excitation values (S/R or J/K; D and T only use a).
+enum FlipFlopKind {
+    SR(2, 0b1101_0100), // S = R = 1 holds, as in FlipFlopLogic.evaluateSR
+    JK(2, 0b0101_1100),
+    D(1, 0b1100_1100),
+    T(1, 0b0011_1100);
+
+    private final int excitations;
+    private final int characteristic;
+
+    FlipFlopKind(int excitations, int characteristic) {
+        this.excitations = excitations;
+        this.characteristic = characteristic;
+    }
+
+    // Number of excitation functions: 2 for SR and JK, 1 for D and T
+    public int excitations() {
+        return excitations;
+    }
+
+    // The lookup table as a bit mask: bit ((q << 2) | (a << 1) | b) is the next state
+    public int characteristic() {
+        return characteristic;
+    }
+
+    public int nextState(int q, int a, int b) {
+        return (characteristic >>> ((q << 2) | (a << 1) | b)) & 1;
+    }
+
+    // Bitwise form, one row per bit
+    public long nextStateWord(long q, long a, long b) {
+        return switch (this) {
+            case SR -> (a & ~b) | (q & (a | ~b));
+            case JK -> (a & ~q) | (~b & q);
+            case D -> a;
+            case T -> a ^ q;
+        };
+    }
+
+    // The same equations over BDD nodes
+    public int nextState(Bdd bdd, int q, int a, int b) {
+        return switch (this) {
+            case SR -> bdd.or(bdd.and(a, bdd.not(b)), bdd.and(q, bdd.or(a, bdd.not(b))));
+            case JK -> bdd.or(bdd.and(a, bdd.not(q)), bdd.and(bdd.not(b), q));
+            case D -> a;
+            case T -> bdd.xor(a, q);
+        };
+    }
+
+    // And over the nodes of a fused circuit DAG
+    public int nextState(FusedCircuit.Builder dag, int q, int a, int b) {
+        return switch (this) {
+            case SR -> dag.or(dag.and(a, dag.not(b)), dag.and(q, dag.or(a, dag.not(b))));
+            case JK -> dag.or(dag.and(a, dag.not(q)), dag.and(dag.not(b), q));
+            case D -> a;
+            case T -> dag.xor(a, q);
+        };
+    }
+
+    // Splits an SR/JK function pair on its newline and compiles each part
+    public CompiledExpression[] compile(String function) {
+        if (function == null) {
+            throw new IllegalArgumentException("Flip-flop function cannot be null");
+        }
+        if (excitations == 2) {
+            String[] parts = function.split("\n");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException(name() + " flip-flop requires both "
+                        + name().charAt(0) + " and " + name().charAt(1) + " functions");
+            }
+            return BooleanEvaluator.compileAll(parts);
+        }
+        return new CompiledExpression[]{BooleanEvaluator.compile(function)};
+    }
+
+    public static FlipFlopKind of(String name) {
+        if (name != null) {
+            switch (name.trim().toUpperCase(Locale.ROOT)) {
+                case "SR" -> { return SR; }
+                case "JK" -> { return JK; }
+                case "D" -> { return D; }
+                case "T" -> { return T; }
+                default -> { }
+            }
+        }
+        throw new IllegalArgumentException("Invalid flip-flop type: " + name);
+    }
+
+    // A flip-flop type string: one kind for every flip-flop ("JK"), or one kind per
+    // flip-flop separated by commas ("JK,D,D"), Q0 first
+    public static FlipFlopKind[] parse(String type, int flipFlops) {
+        if (type == null) {
+            throw new IllegalArgumentException("Flip-flop type cannot be null");
+        }
+        FlipFlopKind[] kinds = new FlipFlopKind[flipFlops];
+        if (type.indexOf(',') < 0) {
+            Arrays.fill(kinds, of(type));
+            return kinds;
+        }
+
+        String[] names = type.split(",", -1);
+        if (names.length != flipFlops) {
+            throw new IllegalArgumentException("Flip-flop type lists " + names.length + " kinds for " + flipFlops + " flip-flops");
+        }
+        for (int j = 0; j < flipFlops; j++) kinds[j] = of(names[j]);
+        return kinds;
+    }
+
+    // Inverse of parse: a single name when every flip-flop has the same kind
+    public static String describe(FlipFlopKind[] kinds) {
+        boolean uniform = true;
+        for (FlipFlopKind kind : kinds) uniform &= kind == kinds[0];
+        if (uniform) {
+            return kinds[0].name();
+        }
+
+        StringBuilder type = new StringBuilder();
+        for (FlipFlopKind kind : kinds) {
+            if (type.length() > 0) type.append(',');
+            type.append(kind.name());
+        }
+        return type.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package statetable;
+
+class FlipFlopLogic {
+        public static int getNextState(String flipFlopType, int[] inputs, int[] currentState, String function) {
+            if (flipFlopType == null || function == null) {
+                throw new IllegalArgumentException("Flip-flop type and function cannot be null");
+            }
+            if (inputs == null || currentState == null) {
+                throw new IllegalArgumentException("Inputs and current state arrays cannot be null");
+            }
+            if (currentState.length == 0) {
+                throw new IllegalArgumentException("Current state array cannot be empty");
+            }
+
+            if (!isValidFlipFlopType(flipFlopType)) {
+                throw new IllegalArgumentException("Invalid flip-flop type: " + flipFlopType);
+            }
+
+            CompiledExpression[] functions;
+            try {
+                for (int i = 0; i < inputs.length; i++) validateBinaryValue(inputs[i], "X" + i);
+                for (int i = 0; i < currentState.length; i++) validateBinaryValue(currentState[i], "Q" + i);
+                functions = compileFunctions(flipFlopType, function);
+            } catch (Exception e) {
+                throw new IllegalStateException("Error evaluating flip-flop state: " + e.getMessage(), e);
+            }
+            return getNextState(flipFlopType, inputs, currentState, functions);
+        }
+
+        // Same as above, for excitation functions that were compiled once up front
+        public static int getNextState(String flipFlopType, int[] inputs, int[] currentState, CompiledExpression[] functions) {
+            if (flipFlopType == null || functions == null) {
+                throw new IllegalArgumentException("Flip-flop type and functions cannot be null");
+            }
+            validateArrays(inputs, currentState);
+
+            try {
+                return switch (flipFlopType) {
+                    case "SR" -> evaluateSR(inputs, currentState, functions);
+                    case "JK" -> evaluateJK(inputs, currentState, functions);
+                    case "D" -> evaluateD(inputs, currentState, functions);
+                    case "T" -> evaluateT(inputs, currentState, functions);
+                    default -> throw new IllegalArgumentException("Unsupported flip-flop type: " + flipFlopType);
+                };
+            } catch (Exception e) {
+                throw new IllegalStateException("Error evaluating flip-flop state: " + e.getMessage(), e);
+            }
+        }
+
+        // Packed form: bit k of inputs / currentState holds X<k> / Q<k>, and the flip-flop's own
+        // present state is bit flipFlop. Circuit.nextState evaluates every flip-flop of a circuit
+        // in one call.
+        public static int getNextState(String flipFlopType, int flipFlop, long inputs, long currentState, CompiledExpression[] functions) {
+            if (flipFlop < 0 || flipFlop >= Long.SIZE) {
+                throw new IllegalArgumentException("Flip-flop index out of range: " + flipFlop);
+            }
+            if (Metrics.ENABLED) Metrics.recordNextStateEvaluations(1);
+            long a = functions[0].evaluate(inputs, currentState);
+            long b = functions.length > 1 ? functions[1].evaluate(inputs, currentState) : 0L;
+            return (int) (nextStateWord(flipFlopType, (currentState >>> flipFlop) & 1L, a, b) & 1L);
+        }
+
+        // Splits an SR/JK function pair on its newline and compiles each part
+        public static CompiledExpression[] compileFunctions(String flipFlopType, String function) {
+            if (flipFlopType == null || function == null) {
+                throw new IllegalArgumentException("Flip-flop type and function cannot be null");
+            }
+            if (!isValidFlipFlopType(flipFlopType)) {
+                throw new IllegalArgumentException("Invalid flip-flop type: " + flipFlopType);
+            }
+            return FlipFlopKind.of(flipFlopType).compile(function);
+        }
+
+        // Characteristic equations in bitwise form, one row per bit: q is the present state,
+        // a and b the excitation values (S/R or J/K; D and T only use a).
+        public static long nextStateWord(String flipFlopType, long q, long a, long b) {
+            if (!isValidFlipFlopType(flipFlopType)) {
+                throw new IllegalArgumentException("Unsupported flip-flop type: " + flipFlopType);
+            }
+            return FlipFlopKind.of(flipFlopType).nextStateWord(q, a, b);
+        }
+
+        private static boolean isValidFlipFlopType(String type) {
+            return type != null && (type.equals("SR") || type.equals("JK") || type.equals("D") || type.equals("T"));
+        }
+
+        private static int evaluateSR(int[] inputs, int[] currentState, CompiledExpression[] functions) {
+            if (functions.length != 2) {
+                throw new IllegalArgumentException("SR flip-flop requires both S and R functions");
+            }
+
+            // Evaluate both S and R functions
+            int S = functions[0].evaluate(inputs, currentState);
+            int R = functions[1].evaluate(inputs, currentState);
+
+            validateBinaryValue(S, "S");
+            validateBinaryValue(R, "R");
+
+            // SR logic
+            if (S == 1 && R == 1) return currentState[0]; // Hold state instead of error
+            if (S == 1) return 1;
+            if (R == 1) return 0;
+            return currentState[0];
+        }
+
+        private static int evaluateJK(int[] inputs, int[] currentState, CompiledExpression[] functions) {
+            if (functions.length != 2) {
+                throw new IllegalArgumentException("JK flip-flop requires both J and K functions");
+            }
+
+            // Evaluate both J and K functions
+            int J = functions[0].evaluate(inputs, currentState);
+            int K = functions[1].evaluate(inputs, currentState);
+
+            validateBinaryValue(J, "J");
+            validateBinaryValue(K, "K");
+
+            // JK logic
+            if (J == 1 && K == 1) return 1 - currentState[0];
+            if (J == 1) return 1;
+            if (K == 1) return 0;
+            return currentState[0];
+        }
+
+    private static int evaluateD(int[] inputs, int[] currentState, CompiledExpression[] functions) {
+        int D = functions[0].evaluate(inputs, currentState);
+        validateBinaryValue(D, "D");
+        return D;
+    }
+
+    private static int evaluateT(int[] inputs, int[] currentState, CompiledExpression[] functions) {
+        int T = functions[0].evaluate(inputs, currentState);
+        validateBinaryValue(T, "T");
+        return T == 1 ? 1 - currentState[0] : currentState[0];
+    }
+
+    private static void validateArrays(int[] inputs, int[] currentState) {
+        if (inputs == null || currentState == null) {
+            throw new IllegalArgumentException("Input and current state arrays cannot be null");
+        }
+        if (inputs.length == 0 || currentState.length == 0) {
+            throw new IllegalArgumentException("Input and current state arrays cannot be empty");
+        }
+    }
+
+    private static void validateBinaryValue(int value, String inputName) {
+        if (value != 0 && value != 1) {
+            throw new IllegalStateException("Invalid " + inputName + " input: must be 0 or 1, got " + value);
+        }
+    }
+}
\ No newline at end of file
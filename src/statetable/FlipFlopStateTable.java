@@ -0,0 +1,358 @@
+package statetable;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+public class FlipFlopStateTable {
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.exit(switch (args[0]) {
+                case "--equivalence" -> runEquivalence(args);
+                case "--serve" -> runServer(args);
+                case "--simulate" -> runSimulation(args);
+                default -> runBatch(args);
+            });
+        }
+
+        Scanner scanner = new Scanner(System.in);
+
+        try {
+            // Input: Flip-Flop Type
+            System.out.println("=== Flip-Flop State Table Generator ===");
+            System.out.println("1. SR Flip-Flop");
+            System.out.println("2. JK Flip-Flop");
+            System.out.println("3. D Flip-Flop");
+            System.out.println("4. T Flip-Flop");
+
+            int choice = 0;
+            String flipFlopType = "";
+            while (true) {
+                System.out.print("Select the flip-flop type (1-4): ");
+                if (scanner.hasNextInt()) {
+                    choice = scanner.nextInt();
+                    scanner.nextLine(); // Consume the newline
+                    switch (choice) {
+                        case 1 -> flipFlopType = "SR";
+                        case 2 -> flipFlopType = "JK";
+                        case 3 -> flipFlopType = "D";
+                        case 4 -> flipFlopType = "T";
+                        default -> {
+                            System.out.println("Invalid choice! Please enter a number between 1 and 4.");
+                            continue;
+                        }
+                    }
+                    break;
+                } else {
+                    System.out.println("Invalid input! Please enter a valid integer.");
+                    scanner.next(); // Clear invalid input
+                }
+            }
+
+            // Input: Number of flip-flops
+            int maxFlipFlops = StateTableGenerator.MAX_VARIABLES - 1;
+            int flipFlops = 0;
+            while (true) {
+                System.out.printf("Enter the number of flip-flops (1-%d): ", maxFlipFlops);
+                if (scanner.hasNextInt()) {
+                    flipFlops = scanner.nextInt();
+                    scanner.nextLine(); // Consume the newline
+                    if (flipFlops >= 1 && flipFlops <= maxFlipFlops) {
+                        break;
+                    } else {
+                        System.out.printf("Invalid number of flip-flops! Enter 1 to %d.%n", maxFlipFlops);
+                    }
+                } else {
+                    System.out.println("Invalid input! Please enter a valid integer.");
+                    scanner.next(); // Clear invalid input
+                }
+            }
+
+            // Input: Number of input variables
+            int maxInputs = StateTableGenerator.MAX_VARIABLES - flipFlops;
+            int inputs = 0;
+            while (true) {
+                System.out.printf("Enter the number of input variables (1-%d): ", maxInputs);
+                if (scanner.hasNextInt()) {
+                    inputs = scanner.nextInt();
+                    scanner.nextLine(); // Consume the newline
+                    if (inputs >= 1 && inputs <= maxInputs) {
+                        break;
+                    } else {
+                        System.out.printf("Invalid number of input variables! Enter 1 to %d.%n", maxInputs);
+                    }
+                } else {
+                    System.out.println("Invalid input! Please enter a valid integer.");
+                    scanner.next(); // Clear invalid input
+                }
+            }
+
+            // Input: Number of output variables
+            int outputs = 0;
+            while (true) {
+                System.out.printf("Enter the number of output variables (0-%d): ", StateTableGenerator.MAX_OUTPUTS);
+                if (scanner.hasNextInt()) {
+                    outputs = scanner.nextInt();
+                    scanner.nextLine(); // Consume the newline
+                    if (outputs >= 0 && outputs <= StateTableGenerator.MAX_OUTPUTS) {
+                        break;
+                    } else {
+                        System.out.printf("Invalid number of output variables! Enter 0 to %d.%n", StateTableGenerator.MAX_OUTPUTS);
+                    }
+                } else {
+                    System.out.println("Invalid input! Please enter a valid integer.");
+                    scanner.next(); // Clear invalid input
+                }
+            }
+
+            // Input: Flip-Flop Input Functions and Output Function
+            String[] flipFlopFunctions = new String[flipFlops];
+            for (int i = 0; i < flipFlops; i++) {
+                StringBuilder functionBuilder = new StringBuilder();
+                System.out.printf("Enter the functions for flip-flop %d:%n", i);
+
+                if (flipFlopType.equals("SR") || flipFlopType.equals("JK")) {
+                    System.out.printf("Enter %s function:%n", flipFlopType.charAt(0));
+                    String firstFunc = scanner.nextLine().trim();
+                    System.out.printf("Enter %s function:%n", flipFlopType.charAt(1));
+                    String secondFunc = scanner.nextLine().trim();
+
+                    if (firstFunc.isEmpty() || secondFunc.isEmpty()) {
+                        System.out.println("Functions cannot be blank. Please try again.");
+                        i--; // Retry this flip-flop
+                        continue;
+                    }
+
+                    functionBuilder.append(firstFunc).append("\n").append(secondFunc);
+                } else {
+                    System.out.println("Enter the function:");
+                    String function = scanner.nextLine().trim();
+                    if (function.isEmpty()) {
+                        System.out.println("Function cannot be blank. Please try again.");
+                        i--; // Retry this flip-flop
+                        continue;
+                    }
+                    functionBuilder.append(function);
+                }
+
+                flipFlopFunctions[i] = functionBuilder.toString();
+            }
+
+            String[] outputFunctions = new String[outputs];
+            for (int i = 0; i < outputs; i++) {
+                while (true) {
+                    if (outputs == 1) {
+                        System.out.println("Enter the Boolean function for the output:");
+                    } else {
+                        System.out.printf("Enter the Boolean function for output %d:%n", i);
+                    }
+                    outputFunctions[i] = scanner.nextLine();
+                    if (!outputFunctions[i].isBlank()) {
+                        break;
+                    } else {
+                        System.out.println("Function cannot be blank. Please try again.");
+                    }
+                }
+            }
+
+            // Generate and print the state table
+            StateTableGenerator generator = new StateTableGenerator(flipFlops, inputs, outputs, flipFlopType, flipFlopFunctions, outputFunctions);
+            generator.generateStateTable();
+            Metrics.printSummary(System.err);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid input: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            System.err.println("State table generation error: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Unexpected error: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            scanner.close();
+        }
+    }
+
+    // Non-interactive mode: --batch <spec directory or manifest> [--out <dir>] [--writers <n>] [--format <name>]
+    static int runBatch(String[] args) {
+        Path source = null;
+        Path output = Path.of(".");
+        int writers = Runtime.getRuntime().availableProcessors();
+        String format = "text";
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--batch" -> source = Path.of(value);
+                    case "--out" -> output = Path.of(value);
+                    case "--writers" -> writers = Integer.parseInt(value);
+                    case "--format" -> format = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("--batch is required");
+            }
+
+            List<BatchRunner.Result> results = new BatchRunner(output, writers, format).run(source);
+            BatchRunner.printReport(results, System.out);
+            Metrics.printSummary(System.out);
+            return results.stream().allMatch(BatchRunner.Result::succeeded) ? 0 : 1;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid input: " + e.getMessage());
+            System.err.println("Usage: FlipFlopStateTable --batch <spec directory or manifest> [--out <dir>] [--writers <n>] [--format text|csv|tsv|jsonl|binary]");
+            return 2;
+        } catch (Exception e) {
+            System.err.println("Batch error: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    // --equivalence <spec> <spec> [--reachable] [--symbolic] [--threads <n>]: exit code 0 when equivalent, 1 when not.
+    // With --reachable only states reachable from each spec's initialState (default all zeros) count.
+    // Otherwise every row is compared, on BDDs with --symbolic or above SYMBOLIC_VARIABLES variables.
+    static int runEquivalence(String[] args) {
+        try {
+            if (args.length < 3) {
+                throw new IllegalArgumentException("--equivalence needs two spec files");
+            }
+            CircuitSpec first = CircuitSpec.load(Path.of(args[1]));
+            CircuitSpec second = CircuitSpec.load(Path.of(args[2]));
+            boolean reachable = false;
+            boolean symbolic = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            for (int i = 3; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--reachable" -> reachable = true;
+                    case "--symbolic" -> symbolic = true;
+                    case "--threads" -> {
+                        if (i + 1 >= args.length) {
+                            throw new IllegalArgumentException("Missing value for --threads");
+                        }
+                        threads = Integer.parseInt(args[++i]);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            Circuit firstCircuit = first.toGenerator().circuit();
+            EquivalenceChecker checker = new EquivalenceChecker(firstCircuit, second.toGenerator().circuit(), threads);
+            EquivalenceChecker.Result result;
+            if (reachable) {
+                result = checker.checkReachable(Math.max(0, first.initialState()), Math.max(0, second.initialState()));
+            } else if (symbolic || firstCircuit.inputs() + firstCircuit.flipFlops() > EquivalenceChecker.SYMBOLIC_VARIABLES) {
+                result = checker.checkSymbolic();
+            } else {
+                result = checker.checkAll();
+            }
+            System.out.println(first.name() + " vs " + second.name() + ": " + result);
+            return result.equivalent() ? 0 : 1;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid input: " + e.getMessage());
+            System.err.println("Usage: FlipFlopStateTable --equivalence <spec> <spec> [--reachable] [--symbolic] [--threads <n>]");
+            return 2;
+        } catch (Exception e) {
+            System.err.println("Equivalence error: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    // --simulate <spec> <stimulus file or -> [--trace <file>] [--format <name>]: clocks the spec's circuit
+    // from its initialState (default all zeros) through every stimulus vector, optionally tracing each cycle
+    static int runSimulation(String[] args) {
+        try {
+            if (args.length < 3) {
+                throw new IllegalArgumentException("--simulate needs a spec file and a stimulus file");
+            }
+            CircuitSpec spec = CircuitSpec.load(Path.of(args[1]));
+            Path trace = null;
+            String format = "text";
+            for (int i = 3; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--trace" -> trace = Path.of(value);
+                    case "--format" -> format = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+
+            StateTableGenerator generator = spec.toGenerator();
+            Simulator simulator = new Simulator(generator);
+            simulator.reset(Math.max(0, spec.initialState()));
+            long start = System.nanoTime();
+            long cycles;
+            try (InputStream in = args[2].equals("-") ? System.in : Files.newInputStream(Path.of(args[2]));
+                 StimulusReader stimulus = new StimulusReader(in, generator.inputs());
+                 StateTableWriter writer = trace == null ? null
+                         : StateTableWriter.open(StateTableWriter.Format.fromName(format), generator, trace)) {
+                if (writer != null) writer.writeHeader();
+                cycles = simulator.run(stimulus, writer);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf(Locale.ROOT, "%s: %d cycles in %.3f s (%.1f Mcycles/s), state Q=%s, outputs %s%n",
+                    spec.name(), cycles, seconds, cycles / seconds / 1e6,
+                    digits(simulator.state(), generator.flipFlops()), digits(simulator.outputs(), generator.outputs()));
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid input: " + e.getMessage());
+            System.err.println("Usage: FlipFlopStateTable --simulate <spec> <stimulus file or -> [--trace <file>] [--format text|csv|tsv|jsonl]");
+            return 2;
+        } catch (Exception e) {
+            System.err.println("Simulation error: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    // Packed bits as 0/1 digits, bit 0 first as in the table columns
+    private static String digits(long bits, int count) {
+        StringBuilder text = new StringBuilder(count);
+        for (int k = 0; k < count; k++) text.append((bits >>> k) & 1L);
+        return text.toString();
+    }
+
+    // --serve [--port <n>] [--workers <n>] [--queue <n>]: runs TableServer on localhost until the JVM is stopped
+    static int runServer(String[] args) {
+        int port = TableServer.DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queue = TableServer.DEFAULT_QUEUE_CAPACITY;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                int value = Integer.parseInt(args[++i]);
+                switch (option) {
+                    case "--port" -> port = value;
+                    case "--workers" -> workers = value;
+                    case "--queue" -> queue = value;
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+
+            TableServer server = TableServer.start(port, workers, queue, TableServer.DEFAULT_CACHE_BYTES);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            System.out.println("Serving state tables on http://localhost:" + server.port() + "/table");
+            Thread.currentThread().join();
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid input: " + e.getMessage());
+            System.err.println("Usage: FlipFlopStateTable --serve [--port <n>] [--workers <n>] [--queue <n>]");
+            return 2;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            System.err.println("Server error: " + e.getMessage());
+            return 2;
+        }
+    }
+}
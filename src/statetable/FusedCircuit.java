@@ -0,0 +1,339 @@
+package statetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Every function of a circuit compiled into one shared DAG: the excitation functions, each
+// flip-flop's characteristic equation over them, and the output functions, whose Q variables
+// are wired straight to the next-state nodes. Subterms are hash-consed, so "X0 * -Q1" is
+// computed once per row however many functions contain it, and small identities (double
+// negation, constants, x * x, x * -x) are folded while building.
+//
+// The DAG is stored as a straight-line program in topological order with one register per
+// node. A single pass over it yields every next-state bit and output, either for one row or
+// bit-sliced for 64 rows. Instances are immutable; callers own the register arrays.
+//
+// With metrics enabled, a pass counts as one evaluation of every source expression behind the
+// roots it keeps, so the per-expression totals read as if each had been evaluated on its own.
+final class FusedCircuit {
+    private final int[] ops; // CompiledExpression opcodes
+    private final int[] left; // variable index, constant, or operand register
+    private final int[] right;
+    private final int[] nextStateRoots; // register of each flip-flop's next state, -1 when not kept
+    private final int[] outputRoots;
+    private final long inputSupport;
+    private final long stateSupport;
+
+    // Metrics counters of each root's source expressions; null unless Metrics.ENABLED
+    private final LongAdder[][] nextStateCounters;
+    private final LongAdder[] outputCounters;
+    private final LongAdder[] keptCounters; // those of the kept roots
+    private final int keptNextStates;
+
+    FusedCircuit(Circuit circuit) {
+        this(build(circuit), circuit);
+    }
+
+    private FusedCircuit(Builder dag, Circuit circuit) {
+        this(dag.ops, dag.left, dag.right, dag.size, dag.nextStateRoots, dag.outputRoots,
+                Metrics.ENABLED ? nextStateCounters(circuit) : null, Metrics.ENABLED ? outputCounters(circuit) : null);
+    }
+
+    // Keeps only the nodes the given roots reach, renumbered in their original order
+    private FusedCircuit(int[] ops, int[] left, int[] right, int size, int[] nextStateRoots, int[] outputRoots,
+                         LongAdder[][] nextStateCounters, LongAdder[] outputCounters) {
+        boolean[] live = new boolean[size];
+        for (int root : nextStateRoots) if (root >= 0) live[root] = true;
+        for (int root : outputRoots) if (root >= 0) live[root] = true;
+        int count = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            if (!live[i]) continue;
+            count++;
+            if (ops[i] >= CompiledExpression.OP_NOT) live[left[i]] = true;
+            if (ops[i] >= CompiledExpression.OP_AND) live[right[i]] = true;
+        }
+
+        int[] renumbered = new int[size];
+        this.ops = new int[count];
+        this.left = new int[count];
+        this.right = new int[count];
+        long inputMask = 0;
+        long stateMask = 0;
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!live[i]) continue;
+            renumbered[i] = n;
+            this.ops[n] = ops[i];
+            this.left[n] = ops[i] >= CompiledExpression.OP_NOT ? renumbered[left[i]] : left[i];
+            this.right[n] = ops[i] >= CompiledExpression.OP_AND ? renumbered[right[i]] : 0;
+            if (ops[i] == CompiledExpression.OP_INPUT) inputMask |= 1L << left[i];
+            if (ops[i] == CompiledExpression.OP_STATE) stateMask |= 1L << left[i];
+            n++;
+        }
+        this.inputSupport = inputMask;
+        this.stateSupport = stateMask;
+        this.nextStateRoots = new int[nextStateRoots.length];
+        for (int j = 0; j < nextStateRoots.length; j++) {
+            this.nextStateRoots[j] = nextStateRoots[j] < 0 ? -1 : renumbered[nextStateRoots[j]];
+        }
+        this.outputRoots = new int[outputRoots.length];
+        for (int k = 0; k < outputRoots.length; k++) {
+            this.outputRoots[k] = outputRoots[k] < 0 ? -1 : renumbered[outputRoots[k]];
+        }
+
+        this.nextStateCounters = nextStateCounters;
+        this.outputCounters = outputCounters;
+        List<LongAdder> kept = new ArrayList<>();
+        int keptNext = 0;
+        for (int j = 0; j < nextStateRoots.length; j++) {
+            if (nextStateRoots[j] < 0) continue;
+            keptNext++;
+            if (nextStateCounters != null) kept.addAll(Arrays.asList(nextStateCounters[j]));
+        }
+        for (int k = 0; k < outputRoots.length; k++) {
+            if (outputRoots[k] >= 0 && outputCounters != null) kept.add(outputCounters[k]);
+        }
+        this.keptNextStates = keptNext;
+        this.keptCounters = kept.toArray(new LongAdder[0]);
+    }
+
+    private static LongAdder[][] nextStateCounters(Circuit circuit) {
+        LongAdder[][] counters = new LongAdder[circuit.flipFlops()][];
+        for (int j = 0; j < counters.length; j++) {
+            CompiledExpression[] parts = circuit.excitations(j);
+            counters[j] = new LongAdder[parts.length];
+            for (int i = 0; i < parts.length; i++) counters[j][i] = Metrics.expressionCounter(parts[i].source());
+        }
+        return counters;
+    }
+
+    private static LongAdder[] outputCounters(Circuit circuit) {
+        CompiledExpression[] outputs = circuit.outputFunctions();
+        LongAdder[] counters = new LongAdder[outputs.length];
+        for (int k = 0; k < outputs.length; k++) counters[k] = Metrics.expressionCounter(outputs[k].source());
+        return counters;
+    }
+
+    private void recordPass(long rows) {
+        Metrics.recordNextStateEvaluations(keptNextStates * rows);
+        for (LongAdder counter : keptCounters) counter.add(rows);
+    }
+
+    private static Builder build(Circuit circuit) {
+        Builder dag = new Builder(circuit.flipFlops(), circuit.outputs());
+        int[] presentState = new int[circuit.flipFlops()];
+        for (int j = 0; j < presentState.length; j++) presentState[j] = dag.state(j);
+
+        for (int j = 0; j < presentState.length; j++) {
+            CompiledExpression[] parts = circuit.excitations(j);
+            int a = dag.add(parts[0], presentState);
+            int b = parts.length > 1 ? dag.add(parts[1], presentState) : dag.constant(0);
+            dag.nextStateRoots[j] = circuit.kind(j).nextState(dag, presentState[j], a, b);
+        }
+        CompiledExpression[] outputs = circuit.outputFunctions();
+        for (int k = 0; k < outputs.length; k++) {
+            dag.outputRoots[k] = dag.add(outputs[k], dag.nextStateRoots);
+        }
+        return dag;
+    }
+
+    // The part of the DAG that the selected roots need; the others read as -1 roots and must
+    // not be asked for. Bit j / k of the masks selects next state j / output k.
+    FusedCircuit restrict(long nextStates, long outputs) {
+        int[] nextRoots = nextStateRoots.clone();
+        for (int j = 0; j < nextRoots.length; j++) {
+            if (((nextStates >>> j) & 1L) == 0) nextRoots[j] = -1;
+        }
+        int[] outputRootsKept = outputRoots.clone();
+        for (int k = 0; k < outputRootsKept.length; k++) {
+            if (((outputs >>> k) & 1L) == 0) outputRootsKept[k] = -1;
+        }
+        return new FusedCircuit(ops, left, right, ops.length, nextRoots, outputRootsKept, nextStateCounters, outputCounters);
+    }
+
+    // Number of nodes, leaves included; also the register count
+    public int size() {
+        return ops.length;
+    }
+
+    // Variables the program loads: bit k set when X<k> / present-state Q<k> is read
+    public long inputSupport() {
+        return inputSupport;
+    }
+
+    public long stateSupport() {
+        return stateSupport;
+    }
+
+    long[] newRegisters() {
+        return new long[Math.max(1, ops.length)];
+    }
+
+    // One row: fills the registers and returns the next state packed with Q<k> in bit k.
+    // outputBits(registers) then reads the same row's outputs without evaluating again.
+    public long nextState(long inputBits, long stateBits, long[] registers) {
+        if (Metrics.ENABLED) recordPass(1);
+        for (int i = 0; i < ops.length; i++) {
+            int a = left[i];
+            registers[i] = switch (ops[i]) {
+                case CompiledExpression.OP_INPUT -> -((inputBits >>> a) & 1L);
+                case CompiledExpression.OP_STATE -> -((stateBits >>> a) & 1L);
+                case CompiledExpression.OP_CONST -> -(long) a;
+                case CompiledExpression.OP_NOT -> ~registers[a];
+                case CompiledExpression.OP_AND -> registers[a] & registers[right[i]];
+                default -> registers[a] | registers[right[i]];
+            };
+        }
+
+        long next = 0;
+        for (int j = 0; j < nextStateRoots.length; j++) {
+            next |= (registers[nextStateRoots[j]] & 1L) << j;
+        }
+        return next;
+    }
+
+    public long outputBits(long[] registers) {
+        long result = 0;
+        for (int k = 0; k < outputRoots.length; k++) {
+            result |= (registers[outputRoots[k]] & 1L) << k;
+        }
+        return result;
+    }
+
+    // Bit-sliced: inputWords[k] / stateWords[k] hold X<k> / Q<k> for 64 rows; only the
+    // variables in inputSupport() / stateSupport() are read
+    public void evaluate(long[] inputWords, long[] stateWords, long[] registers) {
+        if (Metrics.ENABLED) recordPass(Long.SIZE);
+        for (int i = 0; i < ops.length; i++) {
+            int a = left[i];
+            registers[i] = switch (ops[i]) {
+                case CompiledExpression.OP_INPUT -> inputWords[a];
+                case CompiledExpression.OP_STATE -> stateWords[a];
+                case CompiledExpression.OP_CONST -> -(long) a;
+                case CompiledExpression.OP_NOT -> ~registers[a];
+                case CompiledExpression.OP_AND -> registers[a] & registers[right[i]];
+                default -> registers[a] | registers[right[i]];
+            };
+        }
+    }
+
+    public long nextStateWord(long[] registers, int flipFlop) {
+        return registers[nextStateRoots[flipFlop]];
+    }
+
+    public long outputWord(long[] registers, int output) {
+        return registers[outputRoots[output]];
+    }
+
+    // Hash-consing DAG builder. Nodes are appended after their operands, so node order is
+    // already a topological order; and / or operands are sorted so either order shares a node.
+    static final class Builder {
+        private int[] ops = new int[64];
+        private int[] left = new int[64];
+        private int[] right = new int[64];
+        private int size;
+        private final Map<Long, Integer> nodes = new HashMap<>();
+        private final int[] nextStateRoots;
+        private final int[] outputRoots;
+        private int[] stack = new int[16];
+
+        private Builder(int flipFlops, int outputs) {
+            this.nextStateRoots = new int[flipFlops];
+            this.outputRoots = new int[outputs];
+        }
+
+        // Translates a postfix program, reading Q<k> as node states[k]
+        int add(CompiledExpression expression, int[] states) {
+            if (stack.length < expression.maxDepth()) {
+                stack = new int[expression.maxDepth()];
+            }
+            int top = -1;
+            for (int pc = 0; pc < expression.length(); pc++) {
+                int operand = expression.operand(pc);
+                switch (expression.opcode(pc)) {
+                    case CompiledExpression.OP_INPUT -> stack[++top] = input(operand);
+                    case CompiledExpression.OP_STATE -> stack[++top] = states[operand];
+                    case CompiledExpression.OP_CONST -> stack[++top] = constant(operand);
+                    case CompiledExpression.OP_NOT -> stack[top] = not(stack[top]);
+                    case CompiledExpression.OP_AND -> {
+                        top--;
+                        stack[top] = and(stack[top], stack[top + 1]);
+                    }
+                    default -> {
+                        top--;
+                        stack[top] = or(stack[top], stack[top + 1]);
+                    }
+                }
+            }
+            return stack[0];
+        }
+
+        int input(int k) {
+            return node(CompiledExpression.OP_INPUT, k, 0);
+        }
+
+        int state(int k) {
+            return node(CompiledExpression.OP_STATE, k, 0);
+        }
+
+        int constant(int value) {
+            return node(CompiledExpression.OP_CONST, value, 0);
+        }
+
+        public int not(int f) {
+            if (ops[f] == CompiledExpression.OP_NOT) return left[f];
+            if (ops[f] == CompiledExpression.OP_CONST) return constant(left[f] ^ 1);
+            return node(CompiledExpression.OP_NOT, f, 0);
+        }
+
+        public int and(int f, int g) {
+            if (f == g) return f;
+            if (isConstant(f, 0) || isConstant(g, 0) || complements(f, g)) return constant(0);
+            if (isConstant(f, 1)) return g;
+            if (isConstant(g, 1)) return f;
+            return node(CompiledExpression.OP_AND, Math.min(f, g), Math.max(f, g));
+        }
+
+        public int or(int f, int g) {
+            if (f == g) return f;
+            if (isConstant(f, 1) || isConstant(g, 1) || complements(f, g)) return constant(1);
+            if (isConstant(f, 0)) return g;
+            if (isConstant(g, 0)) return f;
+            return node(CompiledExpression.OP_OR, Math.min(f, g), Math.max(f, g));
+        }
+
+        public int xor(int f, int g) {
+            return or(and(f, not(g)), and(not(f), g));
+        }
+
+        private boolean isConstant(int f, int value) {
+            return ops[f] == CompiledExpression.OP_CONST && left[f] == value;
+        }
+
+        private boolean complements(int f, int g) {
+            return (ops[f] == CompiledExpression.OP_NOT && left[f] == g) || (ops[g] == CompiledExpression.OP_NOT && left[g] == f);
+        }
+
+        private int node(int op, int a, int b) {
+            long key = ((long) op << 60) | ((long) a << 30) | b;
+            Integer existing = nodes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                left = Arrays.copyOf(left, size * 2);
+                right = Arrays.copyOf(right, size * 2);
+            }
+            ops[size] = op;
+            left[size] = a;
+            right[size] = b;
+            nodes.put(key, size);
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package statetable;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Opt-in instrumentation of the generation hot paths, switched on with -Dstatetable.metrics=true.
+// ENABLED is a compile-time constant for the JIT: with it false every guarded block is dead
+// code, so the hot paths do no clock reads, counter updates or string work.
+//
+// When enabled, counters are kept in LongAdders (safe from the parallel generator's workers),
+// each table generation and expression compilation is also emitted as a JFR event, and
+// snapshot() / printSummary() report the totals.
+final class Metrics {
+    static final boolean ENABLED = Boolean.getBoolean("statetable.metrics");
+
+    private static final int SUMMARY_EXPRESSIONS = 10;
+
+    private static final LongAdder generations = new LongAdder();
+    private static final LongAdder rows = new LongAdder();
+    private static final LongAdder generationNanos = new LongAdder();
+    private static final LongAdder evaluateNanos = new LongAdder();
+    private static final LongAdder formatNanos = new LongAdder();
+    private static final LongAdder bytesWritten = new LongAdder();
+    private static final LongAdder parseCalls = new LongAdder();
+    private static final LongAdder parseNanos = new LongAdder();
+    private static final LongAdder compilations = new LongAdder();
+    private static final LongAdder nextStateEvaluations = new LongAdder(); // bits computed, 64 per bit-sliced word
+    private static final Map<String, LongAdder> expressionEvaluations = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    @Name("statetable.TableGenerated")
+    @Label("State Table Generated")
+    @Category("State Table")
+    static final class TableGeneratedEvent extends Event {
+        @Label("Flip-Flop Type")
+        String flipFlopType;
+
+        @Label("Flip-Flops")
+        int flipFlops;
+
+        @Label("Inputs")
+        int inputs;
+
+        @Label("Outputs")
+        int outputs;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Evaluation Time")
+        @Timespan
+        long evaluateTime;
+
+        @Label("Formatting Time")
+        @Timespan
+        long formatTime;
+
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        @Label("Parallel")
+        boolean parallel;
+    }
+
+    @Name("statetable.ExpressionCompiled")
+    @Label("Expression Compiled")
+    @Category("State Table")
+    static final class ExpressionCompiledEvent extends Event {
+        @Label("Expression")
+        String source;
+
+        @Label("Instructions")
+        int instructions;
+    }
+
+    // Counter for the evaluations of one expression, shared by every compiled copy of its source
+    static LongAdder expressionCounter(String source) {
+        return expressionEvaluations.computeIfAbsent(source, key -> new LongAdder());
+    }
+
+    static ExpressionCompiledEvent beginCompile() {
+        ExpressionCompiledEvent event = new ExpressionCompiledEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endCompile(ExpressionCompiledEvent event, CompiledExpression expression) {
+        compilations.increment();
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = expression.source();
+            event.instructions = expression.length();
+            event.commit();
+        }
+    }
+
+    static void recordParse(long nanos) {
+        parseCalls.increment();
+        parseNanos.add(nanos);
+    }
+
+    static void recordEvaluation(long nanos) {
+        evaluateNanos.add(nanos);
+    }
+
+    static void recordNextStateEvaluations(long flipFlops) {
+        nextStateEvaluations.add(flipFlops);
+    }
+
+    static void recordBytes(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    static TableGeneratedEvent beginGeneration() {
+        TableGeneratedEvent event = new TableGeneratedEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endGeneration(TableGeneratedEvent event, StateTableGenerator generator, long startNanos, long rowCount,
+                              long evaluate, long format, long bytes, boolean parallel) {
+        generations.increment();
+        rows.add(rowCount);
+        generationNanos.add(System.nanoTime() - startNanos);
+        formatNanos.add(format);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.flipFlopType = generator.flipFlopType();
+            event.flipFlops = generator.flipFlops();
+            event.inputs = generator.inputs();
+            event.outputs = generator.outputs();
+            event.rows = rowCount;
+            event.evaluateTime = evaluate;
+            event.formatTime = format;
+            event.bytes = bytes;
+            event.parallel = parallel;
+            event.commit();
+        }
+    }
+
+    public static Snapshot snapshot() {
+        List<Map.Entry<String, LongAdder>> entries = new ArrayList<>(expressionEvaluations.entrySet());
+        entries.sort(Collections.reverseOrder(Map.Entry.comparingByValue((a, b) -> Long.compare(a.sum(), b.sum()))));
+        Map<String, Long> perExpression = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<String, LongAdder> entry : entries) {
+            long count = entry.getValue().sum();
+            perExpression.put(entry.getKey(), count);
+            total += count;
+        }
+
+        return new Snapshot(generations.sum(), rows.sum(), generationNanos.sum(), evaluateNanos.sum(), formatNanos.sum(),
+                bytesWritten.sum(), parseCalls.sum(), parseNanos.sum(), compilations.sum(), nextStateEvaluations.sum(),
+                total, Collections.unmodifiableMap(perExpression));
+    }
+
+    public static void reset() {
+        for (LongAdder adder : List.of(generations, rows, generationNanos, evaluateNanos, formatNanos, bytesWritten,
+                parseCalls, parseNanos, compilations, nextStateEvaluations)) {
+            adder.reset();
+        }
+        expressionEvaluations.values().forEach(LongAdder::reset);
+    }
+
+    // End-of-run report; prints nothing unless metrics are enabled
+    public static void printSummary(PrintStream out) {
+        if (ENABLED) {
+            out.print(snapshot());
+        }
+    }
+
+    // Totals since startup or the last reset(); times are in nanoseconds
+    static final class Snapshot {
+        final long generations;
+        final long rows;
+        final long generationNanos;
+        final long evaluateNanos;
+        final long formatNanos;
+        final long bytesWritten;
+        final long parseCalls;
+        final long parseNanos;
+        final long compilations;
+        final long nextStateEvaluations;
+        final long expressionEvaluations;
+        final Map<String, Long> evaluationsPerExpression; // most evaluated first
+
+        Snapshot(long generations, long rows, long generationNanos, long evaluateNanos, long formatNanos, long bytesWritten,
+                 long parseCalls, long parseNanos, long compilations, long nextStateEvaluations, long expressionEvaluations,
+                 Map<String, Long> evaluationsPerExpression) {
+            this.generations = generations;
+            this.rows = rows;
+            this.generationNanos = generationNanos;
+            this.evaluateNanos = evaluateNanos;
+            this.formatNanos = formatNanos;
+            this.bytesWritten = bytesWritten;
+            this.parseCalls = parseCalls;
+            this.parseNanos = parseNanos;
+            this.compilations = compilations;
+            this.nextStateEvaluations = nextStateEvaluations;
+            this.expressionEvaluations = expressionEvaluations;
+            this.evaluationsPerExpression = evaluationsPerExpression;
+        }
+
+        public double rowsPerSecond() {
+            return generationNanos == 0 ? 0 : rows * 1e9 / generationNanos;
+        }
+
+        @Override
+        public String toString() {
+            String newline = System.lineSeparator();
+            StringBuilder summary = new StringBuilder("=== State table metrics ===").append(newline);
+            summary.append(String.format("Tables generated:        %d (%d rows, %.0f rows/s)%n", generations, rows, rowsPerSecond()));
+            summary.append(String.format("Generation time:         %.2f ms%n", generationNanos / 1e6));
+            summary.append(String.format("Evaluation time:         %.2f ms (summed over threads)%n", evaluateNanos / 1e6));
+            summary.append(String.format("Formatting time:         %.2f ms%n", formatNanos / 1e6));
+            summary.append(String.format("Bytes written:           %d%n", bytesWritten));
+            summary.append(String.format("Parse time:              %.2f ms over %d lookups, %d compiled%n", parseNanos / 1e6, parseCalls, compilations));
+            summary.append(String.format("Next-state evaluations:  %d%n", nextStateEvaluations));
+            summary.append(String.format("Expression evaluations:  %d%n", expressionEvaluations));
+            int shown = 0;
+            for (Map.Entry<String, Long> entry : evaluationsPerExpression.entrySet()) {
+                if (shown++ == SUMMARY_EXPRESSIONS) break;
+                summary.append(String.format("  %14d  %s%n", entry.getValue(), entry.getKey().replace("\n", " ; ")));
+            }
+            return summary.toString();
+        }
+    }
+}
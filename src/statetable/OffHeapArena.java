@@ -0,0 +1,125 @@
+package statetable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Owner of off-heap memory for PackedBitStore and OffHeapStateTable. Everything allocated from
+// an arena is released together by close(), without waiting for the garbage collector. Direct
+// memory counts against -XX:MaxDirectMemorySize, not the heap.
+//
+// Freeing memory that another thread is still reading would crash the JVM, so every access
+// runs between acquire() and release(), and close() frees nothing until all accesses in
+// progress have released. Accesses that start after close() fail with IllegalStateException.
+// The in-use count is striped by thread over separate cache lines, so concurrent readers do
+// not contend, but each single get or set still pays two atomic updates, which roughly triples
+// its cost; bulk reads and appenders pay them once per call or per fill instead.
+//
+// The release level is Java 17, where MemorySegment is still incubating, so memory comes from
+// direct ByteBuffers and is freed through the JDK's buffer cleaner. If that is unavailable,
+// closing only drops the references and the collector frees the buffers later.
+final class OffHeapArena implements AutoCloseable {
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+    private static final int STRIPES = 16;
+    private static final int STRIPE_LONGS = 8; // one cache line per stripe
+
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private long allocatedBytes;
+    private volatile boolean open = true;
+    // A thread always counts on the same stripe, so a stripe is never below its accesses in progress
+    private final AtomicLongArray inUse = new AtomicLongArray(STRIPES * STRIPE_LONGS);
+
+    synchronized ByteBuffer allocate(int bytes) {
+        checkOpen();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        buffers.add(buffer);
+        allocatedBytes += bytes;
+        return buffer;
+    }
+
+    public synchronized long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("Off-heap arena is closed");
+        }
+    }
+
+    // Starts an access to this arena's memory; pass the result to release() when done
+    int acquire() {
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_LONGS;
+        inUse.getAndIncrement(stripe);
+        // Counted before reading open, and close() clears open before reading the counts, so
+        // either this access sees the arena closed or close() sees the access
+        if (!open) {
+            inUse.getAndDecrement(stripe);
+            throw new IllegalStateException("Off-heap arena is closed");
+        }
+        return stripe;
+    }
+
+    void release(int stripe) {
+        inUse.getAndDecrement(stripe);
+    }
+
+    // Waits for accesses in progress, then frees every buffer; later accesses fail
+    @Override
+    public synchronized void close() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        for (int stripe = 0; stripe < inUse.length(); stripe += STRIPE_LONGS) {
+            while (inUse.get(stripe) != 0) {
+                Thread.yield();
+            }
+        }
+        for (ByteBuffer buffer : buffers) {
+            free(buffer);
+        }
+        buffers.clear();
+        allocatedBytes = 0;
+    }
+
+    // Without a cleaner, or if it refuses the buffer, the collector frees it once unreachable
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (Throwable e) {
+            // left to the collector
+        }
+    }
+
+    // ByteBuffer has no public way to free its memory, and the API that has one, MemorySegment
+    // with Arena.close(), is not final before Java 22 and cannot be used under --release 17.
+    // Unsafe.invokeCleaner in jdk.unsupported runs a direct buffer's cleaner at once. It is looked
+    // up reflectively so the build needs no internal API; when the module or method is missing,
+    // close() falls back to dropping the references.
+    private static MethodHandle findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package statetable;
+
+// A whole state table kept in memory outside the Java heap, for tables too large for the heap
+// or for int-indexed arrays. Each row's next state and outputs are stored as packed fields of
+// flipFlops and outputs bits in PackedBitStores, indexed by the long row number, so a table
+// of 2^32 rows with 4 flip-flops and 2 outputs takes 3 GiB of direct memory and no GC time.
+//
+// close() frees the memory at once when the table owns its arena; tables built in a shared
+// arena are freed when that arena is closed.
+final class OffHeapStateTable implements AutoCloseable {
+    private static final int READ_BLOCK = 4096;
+
+    private final OffHeapArena arena;
+    private final boolean ownsArena;
+    private final int inputs;
+    private final int flipFlops;
+    private final int outputs;
+    private final long rows;
+    private final PackedBitStore nextStates;
+    private final PackedBitStore outputBits; // null without outputs
+
+    private OffHeapStateTable(OffHeapArena arena, boolean ownsArena, StateTableGenerator generator) {
+        this.arena = arena;
+        this.ownsArena = ownsArena;
+        this.inputs = generator.inputs();
+        this.flipFlops = generator.flipFlops();
+        this.outputs = generator.outputs();
+        this.rows = generator.rowCount();
+        if (rows < 0) {
+            throw new IllegalArgumentException("Table has too many rows to store: 2^" + (inputs + flipFlops));
+        }
+        this.nextStates = new PackedBitStore(arena, rows, flipFlops);
+        this.outputBits = outputs == 0 ? null : new PackedBitStore(arena, rows, outputs);
+    }
+
+    // Computes the table into a private arena with one worker per processor
+    public static OffHeapStateTable generate(StateTableGenerator generator) {
+        OffHeapArena arena = new OffHeapArena();
+        try {
+            OffHeapStateTable table = new OffHeapStateTable(arena, true, generator);
+            table.fill(generator, Runtime.getRuntime().availableProcessors());
+            return table;
+        } catch (RuntimeException | OutOfMemoryError e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    // Computes the table into memory owned by the caller's arena
+    public static OffHeapStateTable generate(StateTableGenerator generator, OffHeapArena arena, int parallelism) {
+        if (generator == null || arena == null) {
+            throw new IllegalArgumentException("Generator and arena cannot be null");
+        }
+        OffHeapStateTable table = new OffHeapStateTable(arena, false, generator);
+        table.fill(generator, parallelism);
+        return table;
+    }
+
+    // Rows are computed in chunks across workers and packed in row order on the calling thread.
+    // The appenders hold the arena until flushed, so they are flushed even when generation fails.
+    private void fill(StateTableGenerator generator, int parallelism) {
+        PackedBitStore.Appender nextAppender = nextStates.appender(0);
+        try {
+            PackedBitStore.Appender outputAppender = outputBits == null ? null : outputBits.appender(0);
+            try {
+                new ParallelStateTableGenerator(generator, parallelism, ParallelStateTableGenerator.DEFAULT_CHUNK_SIZE).generate(chunk -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        nextAppender.put(chunk.nextStateBits(i));
+                        if (outputAppender != null) outputAppender.put(chunk.outputBits(i));
+                    }
+                });
+            } finally {
+                if (outputAppender != null) outputAppender.flush();
+            }
+        } finally {
+            nextAppender.flush();
+        }
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int flipFlops() {
+        return flipFlops;
+    }
+
+    public int outputs() {
+        return outputs;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    // Bytes of direct memory held by this table's arena
+    public long allocatedBytes() {
+        return arena.allocatedBytes();
+    }
+
+    // Packed words: bit k holds Q<k> (next state) or output k
+    public long nextStateBits(long row) {
+        return nextStates.get(row);
+    }
+
+    public long outputBits(long row) {
+        if (outputBits == null) {
+            nextStates.get(row); // same range and arena checks as with outputs
+            return 0;
+        }
+        return outputBits.get(row);
+    }
+
+    // Next state for packed input and present-state words, as StateTableGenerator.nextState
+    public long nextState(long inputBits, long stateBits) {
+        return nextStateBits(StateTableGenerator.rowIndex(inputBits, stateBits, inputs, flipFlops));
+    }
+
+    // Streams the header and every stored row into the writer, reading the stores a block at a time
+    public void writeTable(StateTableWriter writer) {
+        writer.writeHeader();
+        long[] next = new long[READ_BLOCK];
+        long[] out = new long[READ_BLOCK];
+        for (long first = 0; first < rows; first += READ_BLOCK) {
+            int count = (int) Math.min(READ_BLOCK, rows - first);
+            nextStates.get(first, next, 0, count);
+            if (outputBits != null) outputBits.get(first, out, 0, count);
+            for (int i = 0; i < count; i++) {
+                writer.writeRow(first + i, next[i], out[i]);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsArena) {
+            arena.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package statetable;
+
+import java.nio.LongBuffer;
+
+// A long-indexed array of fixed-width unsigned fields (1 to 64 bits) packed end to end in
+// off-heap memory from an OffHeapArena. A field may straddle two longs; a long never straddles
+// two buffers, since each buffer holds a whole number of longs. Every access holds the arena
+// (acquire/release), so closing the arena from another thread cannot free memory mid-read.
+// Random get/set acquire per call; bulk reads acquire once per call and an Appender once for
+// its whole run, so sequential fills and scans do not pay the atomic updates per field.
+final class PackedBitStore {
+    // 2^27 longs = 1 GiB per buffer, the largest power of two a ByteBuffer can hold
+    static final int DEFAULT_BUFFER_SHIFT = 27;
+
+    private final OffHeapArena arena;
+    private final long size;
+    private final int width;
+    private final long mask;
+    private final int bufferShift;
+    private final int bufferMask;
+    private final LongBuffer[] buffers;
+
+    PackedBitStore(OffHeapArena arena, long size, int width) {
+        this(arena, size, width, DEFAULT_BUFFER_SHIFT);
+    }
+
+    PackedBitStore(OffHeapArena arena, long size, int width, int bufferShift) {
+        if (arena == null) {
+            throw new IllegalArgumentException("Arena cannot be null");
+        }
+        if (width < 1 || width > Long.SIZE) {
+            throw new IllegalArgumentException("Field width must be between 1 and " + Long.SIZE + ": " + width);
+        }
+        if (size < 0 || size > (Long.MAX_VALUE - Long.SIZE) / width) {
+            throw new IllegalArgumentException("Store size out of range: " + size);
+        }
+        if (bufferShift < 0 || bufferShift > DEFAULT_BUFFER_SHIFT) {
+            throw new IllegalArgumentException("Buffer shift out of range: " + bufferShift);
+        }
+
+        this.arena = arena;
+        this.size = size;
+        this.width = width;
+        this.mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+        this.bufferShift = bufferShift;
+        this.bufferMask = (1 << bufferShift) - 1;
+
+        // One spare long so a straddling read of the last field stays in bounds
+        long longs = (size * width + Long.SIZE - 1) / Long.SIZE + 1;
+        long count = ((longs - 1) >>> bufferShift) + 1;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Store size out of range: " + size);
+        }
+        this.buffers = new LongBuffer[(int) count];
+        for (int i = 0; i < buffers.length; i++) {
+            long remaining = longs - ((long) i << bufferShift);
+            int length = (int) Math.min(remaining, 1L << bufferShift);
+            buffers[i] = arena.allocate(length * Long.BYTES).asLongBuffer();
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public long get(long index) {
+        checkIndex(index);
+        long bit = index * width;
+        long word = bit >>> 6;
+        int offset = (int) bit & 63;
+        int stripe = arena.acquire();
+        try {
+            long value = longAt(word) >>> offset;
+            if (offset + width > Long.SIZE) {
+                value |= longAt(word + 1) << (Long.SIZE - offset);
+            }
+            return value & mask;
+        } finally {
+            arena.release(stripe);
+        }
+    }
+
+    public void set(long index, long value) {
+        checkIndex(index);
+        value &= mask;
+        long bit = index * width;
+        long word = bit >>> 6;
+        int offset = (int) bit & 63;
+        int stripe = arena.acquire();
+        try {
+            setLong(word, (longAt(word) & ~(mask << offset)) | (value << offset));
+            if (offset + width > Long.SIZE) {
+                int high = Long.SIZE - offset;
+                setLong(word + 1, (longAt(word + 1) & ~(mask >>> high)) | (value >>> high));
+            }
+        } finally {
+            arena.release(stripe);
+        }
+    }
+
+    // Fields first .. first + count - 1 into values[offset ..], under a single acquire
+    public void get(long first, long[] values, int offset, int count) {
+        if (count < 0 || offset < 0 || offset > values.length - count) {
+            throw new IllegalArgumentException("Invalid range: " + offset + " + " + count);
+        }
+        if (count == 0) {
+            return;
+        }
+        checkIndex(first);
+        checkIndex(first + count - 1);
+        int stripe = arena.acquire();
+        try {
+            long bit = first * width;
+            for (int i = 0; i < count; i++, bit += width) {
+                long word = bit >>> 6;
+                int shift = (int) bit & 63;
+                long value = longAt(word) >>> shift;
+                if (shift + width > Long.SIZE) {
+                    value |= longAt(word + 1) << (Long.SIZE - shift);
+                }
+                values[offset + i] = value & mask;
+            }
+        } finally {
+            arena.release(stripe);
+        }
+    }
+
+    // Sequential writer for bulk fills: packs fields into whole longs before storing them.
+    // It holds the arena until flush(), so close() on another thread waits for it; flush it
+    // on every path, failures included.
+    Appender appender(long first) {
+        checkIndex(first);
+        return new Appender(first);
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Index out of range: " + index);
+        }
+    }
+
+    private long longAt(long word) {
+        return buffers[(int) (word >>> bufferShift)].get((int) word & bufferMask);
+    }
+
+    private void setLong(long word, long value) {
+        buffers[(int) (word >>> bufferShift)].put((int) word & bufferMask, value);
+    }
+
+    final class Appender {
+        private long index;
+        private long word;
+        private int bits; // bits of pending already used
+        private long pending;
+        private final int stripe;
+        private boolean flushed;
+
+        private Appender(long first) {
+            long bit = first * width;
+            this.index = first;
+            this.word = bit >>> 6;
+            this.bits = (int) bit & 63;
+            this.stripe = arena.acquire();
+            this.pending = bits == 0 ? 0 : longAt(word) & ((1L << bits) - 1);
+        }
+
+        void put(long value) {
+            if (flushed) {
+                throw new IllegalStateException("Appender already flushed");
+            }
+            if (index >= size) {
+                throw new IllegalArgumentException("Index out of range: " + index);
+            }
+            value &= mask;
+            pending |= value << bits;
+            int used = bits + width;
+            if (used >= Long.SIZE) {
+                setLong(word, pending);
+                word++;
+                used -= Long.SIZE;
+                pending = used == 0 ? 0 : value >>> (width - used);
+            }
+            bits = used;
+            index++;
+        }
+
+        // Stores the partly filled last long, keeping whatever follows it, and releases the arena
+        void flush() {
+            if (flushed) {
+                throw new IllegalStateException("Appender already flushed");
+            }
+            flushed = true;
+            try {
+                if (bits > 0) {
+                    setLong(word, (longAt(word) & (-1L << bits)) | pending);
+                }
+            } finally {
+                arena.release(stripe);
+            }
+        }
+    }
+}
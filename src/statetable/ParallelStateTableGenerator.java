@@ -0,0 +1,95 @@
+package statetable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+// Splits the row range of a StateTableGenerator into chunks computed on a ForkJoinPool.
+// Rows are independent, so chunks run concurrently; they are still handed to the consumer
+// strictly in row order. At most two chunks per worker are in flight, and their buffers
+// are recycled, so memory stays bounded however large the table is.
+final class ParallelStateTableGenerator {
+    static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final StateTableGenerator generator;
+    private final int parallelism;
+    private final int chunkSize;
+
+    public ParallelStateTableGenerator(StateTableGenerator generator) {
+        this(generator, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public ParallelStateTableGenerator(StateTableGenerator generator, int parallelism, int chunkSize) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Generator cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        this.generator = generator;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    public void generate(Consumer<StateTableChunk> consumer) {
+        generate(0, generator.rowCount(), consumer);
+    }
+
+    // Rows from (inclusive) to (exclusive), compared as unsigned row indices
+    public void generate(long from, long to, Consumer<StateTableChunk> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("Consumer cannot be null");
+        }
+
+        int window = parallelism * 2;
+        BlockingQueue<StateTableChunk> free = new ArrayBlockingQueue<>(window);
+        for (int i = 0; i < window; i++) {
+            free.add(new StateTableChunk(chunkSize));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ArrayDeque<ForkJoinTask<StateTableChunk>> pending = new ArrayDeque<>(window);
+        try {
+            long next = from;
+            while (Long.compareUnsigned(next, to) < 0 || !pending.isEmpty()) {
+                // Keep the window full, then hand the oldest chunk over in order
+                while (Long.compareUnsigned(next, to) < 0 && pending.size() < window) {
+                    long remaining = to - next;
+                    int size = Long.compareUnsigned(remaining, chunkSize) < 0 ? (int) remaining : chunkSize;
+                    StateTableChunk chunk = free.poll();
+                    long first = next;
+                    pending.add(pool.submit(() -> {
+                        chunk.fill(generator, first, size);
+                        return chunk;
+                    }));
+                    next += size;
+                }
+
+                StateTableChunk done = pending.poll().join();
+                consumer.accept(done);
+                free.add(done);
+            }
+        } catch (RuntimeException e) {
+            for (ForkJoinTask<StateTableChunk> task : pending) {
+                task.cancel(true);
+            }
+            throw new IllegalStateException("Error generating state table rows: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+}
@@ -0,0 +1,243 @@
+package statetable;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Breadth-first search of the states reachable from an initial state. Only reachable
+// states are expanded, so a controller that touches a few thousand of its 2^40 states
+// costs a few thousand * 2^inputs evaluations instead of the full table.
+//
+// The visited set is a lazily paged bitset for up to PAGED_FLIP_FLOPS flip-flops and an
+// open-addressing set of longs beyond that; the frontier is a queue of pages of longs.
+// Both are indexed by long, so neither stops at 2^31 states, and neither allocates per state.
+final class ReachableStateExplorer {
+    static final int PAGED_FLIP_FLOPS = 40;
+
+    private final FusedCircuit fused;
+    private final int inputs;
+    private final int flipFlops;
+
+    public ReachableStateExplorer(StateTableGenerator generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Generator cannot be null");
+        }
+        this.fused = generator.circuit().fused();
+        this.inputs = generator.inputs();
+        this.flipFlops = generator.flipFlops();
+    }
+
+    // Size of the explored state graph
+    static final class Result {
+        final long states;
+        final long rows;
+        final int depth;
+
+        Result(long states, long rows, int depth) {
+            this.states = states;
+            this.rows = rows;
+            this.depth = depth;
+        }
+
+        // Number of reachable states, the initial state included
+        public long states() {
+            return states;
+        }
+
+        // Rows of the reachable table: states * 2^inputs
+        public long rows() {
+            return rows;
+        }
+
+        // Largest BFS distance from the initial state
+        public int depth() {
+            return depth;
+        }
+
+        @Override
+        public String toString() {
+            return states + " reachable states, depth " + depth + ", " + rows + " rows";
+        }
+    }
+
+    public Result explore(long initialState) {
+        return explore(initialState, null);
+    }
+
+    // Writes every row whose present state is reachable, in BFS order, when a writer is given
+    public Result explore(long initialState, StateTableWriter writer) {
+        return explore(initialState, writer, null);
+    }
+
+    // As above, also handing each reachable state to the visitor once, in BFS order
+    public Result explore(long initialState, StateTableWriter writer, LongConsumer visitor) {
+        if (flipFlops < Long.SIZE && (initialState >>> flipFlops) != 0) {
+            throw new IllegalArgumentException("Initial state has bits beyond Q" + (flipFlops - 1));
+        }
+
+        long[] registers = fused.newRegisters();
+        StateSet visited = flipFlops <= PAGED_FLIP_FLOPS ? new PagedBitSet() : new OpenAddressingSet();
+        LongQueue frontier = new LongQueue();
+        visited.add(initialState);
+        frontier.add(initialState);
+
+        long inputCombinations = 1L << inputs;
+        long states = 0;
+        int depth = 0;
+        long levelEnd = 1; // states dequeued when the current level is done
+
+        if (writer != null) writer.writeHeader();
+        while (!frontier.isEmpty()) {
+            long state = frontier.remove();
+            states++;
+            if (visitor != null) visitor.accept(state);
+            for (long inputBits = 0; Long.compareUnsigned(inputBits, inputCombinations) < 0; inputBits++) {
+                long next = fused.nextState(inputBits, state, registers);
+                if (writer != null) {
+                    writer.writeRow(StateTableGenerator.rowIndex(inputBits, state, inputs, flipFlops),
+                            next, fused.outputBits(registers));
+                }
+                if (visited.add(next)) {
+                    frontier.add(next);
+                }
+            }
+
+            if (states == levelEnd && !frontier.isEmpty()) {
+                depth++;
+                levelEnd = states + frontier.size();
+            }
+        }
+        return new Result(states, states << inputs, depth);
+    }
+
+    // Set of states; add returns false when the state was already present
+    private abstract static class StateSet {
+        abstract boolean add(long state);
+    }
+
+    // Bitset split into 2^PAGE_BITS-bit pages that are only allocated once a state lands in them
+    private final class PagedBitSet extends StateSet {
+        private static final int PAGE_BITS = 22;
+        private final long[][] pages;
+
+        PagedBitSet() {
+            int pageCount = flipFlops <= PAGE_BITS ? 1 : 1 << (flipFlops - PAGE_BITS);
+            this.pages = new long[pageCount][];
+        }
+
+        @Override
+        boolean add(long state) {
+            int pageIndex = (int) (state >>> PAGE_BITS);
+            long[] page = pages[pageIndex];
+            if (page == null) {
+                int bits = flipFlops <= PAGE_BITS ? 1 << flipFlops : 1 << PAGE_BITS;
+                page = new long[Math.max(1, bits >>> 6)];
+                pages[pageIndex] = page;
+            }
+            int bit = (int) state & ((1 << PAGE_BITS) - 1);
+            long mask = 1L << bit;
+            long word = page[bit >>> 6];
+            if ((word & mask) != 0) return false;
+            page[bit >>> 6] = word | mask;
+            return true;
+        }
+    }
+
+    // Linear-probing hash set of longs, kept at most half full; -1 marks an empty slot
+    // (no reachable state can be all ones, since states have at most 62 bits). Slots are
+    // long-indexed and kept in fixed-size pages, so the table can pass 2^31 slots.
+    private static final class OpenAddressingSet extends StateSet {
+        private static final long EMPTY = -1L;
+        private static final int PAGE_BITS = 20;
+        private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+        private static final long MAX_CAPACITY = 1L << 40;
+        private long capacity = 1 << 16;
+        private long[][] table = newTable(capacity);
+        private long size;
+
+        @Override
+        boolean add(long state) {
+            long mask = capacity - 1;
+            long slot = hash(state) & mask;
+            long value;
+            while ((value = table[(int) (slot >>> PAGE_BITS)][(int) slot & PAGE_MASK]) != EMPTY) {
+                if (value == state) return false;
+                slot = (slot + 1) & mask;
+            }
+            table[(int) (slot >>> PAGE_BITS)][(int) slot & PAGE_MASK] = state;
+            if (++size > capacity >>> 1) grow();
+            return true;
+        }
+
+        private void grow() {
+            if (capacity == MAX_CAPACITY) {
+                throw new IllegalStateException("Too many reachable states for the visited set: " + size);
+            }
+            long[][] old = table;
+            capacity <<= 1;
+            table = newTable(capacity);
+            long mask = capacity - 1;
+            for (long[] page : old) {
+                for (long state : page) {
+                    if (state == EMPTY) continue;
+                    long slot = hash(state) & mask;
+                    while (table[(int) (slot >>> PAGE_BITS)][(int) slot & PAGE_MASK] != EMPTY) slot = (slot + 1) & mask;
+                    table[(int) (slot >>> PAGE_BITS)][(int) slot & PAGE_MASK] = state;
+                }
+            }
+        }
+
+        private static long[][] newTable(long capacity) {
+            long[][] table = new long[(int) Math.max(1, capacity >>> PAGE_BITS)][];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = new long[(int) Math.min(capacity, 1 << PAGE_BITS)];
+                Arrays.fill(table[i], EMPTY);
+            }
+            return table;
+        }
+
+        private static long hash(long state) {
+            long h = state * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+
+    // FIFO of longs in fixed-size pages, so it is not limited to 2^31 states; the page
+    // emptied last is kept for the next one the tail needs
+    private static final class LongQueue {
+        private static final int PAGE_SIZE = 1 << 16;
+        private final ArrayDeque<long[]> pages = new ArrayDeque<>();
+        private long[] spare;
+        private int head; // next read in the first page
+        private int tail = PAGE_SIZE; // next write in the last page
+        private long size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long size() {
+            return size;
+        }
+
+        void add(long value) {
+            if (tail == PAGE_SIZE) {
+                pages.addLast(spare != null ? spare : new long[PAGE_SIZE]);
+                spare = null;
+                tail = 0;
+            }
+            pages.peekLast()[tail++] = value;
+            size++;
+        }
+
+        long remove() {
+            long value = pages.peekFirst()[head++];
+            size--;
+            if (head == PAGE_SIZE) {
+                spare = pages.removeFirst();
+                head = 0;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package statetable;
+
+// Clocked simulation of a circuit over a stream of input vectors. The state lives in a
+// primitive long (bit k = Q<k>) and every cycle advances all flip-flops at once.
+//
+// For circuits of up to LOOKUP_VARIABLES variables the whole transition table is computed
+// once with BitSlicedStateTable, and a cycle is a single array lookup indexed by
+// (state << inputs) | inputs. Wider circuits evaluate the circuit's fused DAG every cycle, or
+// read an OffHeapStateTable computed beforehand when one is supplied.
+// Either way a cycle allocates nothing.
+final class Simulator {
+    static final int LOOKUP_VARIABLES = 20;
+    static final int DEFAULT_BATCH_SIZE = 8192;
+
+    private final FusedCircuit fused;
+    private final long[] registers;
+    private final int inputs;
+    private final int flipFlops;
+    private final long inputMask;
+    private final long[] nextStateLookup;
+    private final long[] outputLookup;
+    private final OffHeapStateTable table; // null unless simulating from a stored table
+    private long state;
+    private long outputs;
+    private long cycles;
+
+    public Simulator(StateTableGenerator generator) {
+        this(generator, generator != null && generator.inputs() + generator.flipFlops() <= LOOKUP_VARIABLES);
+    }
+
+    public Simulator(StateTableGenerator generator, boolean precompute) {
+        this(generator, precompute, null);
+    }
+
+    // Steps by looking rows up in a table already computed for this generator's circuit
+    public Simulator(StateTableGenerator generator, OffHeapStateTable table) {
+        this(generator, false, table);
+        if (table == null) {
+            throw new IllegalArgumentException("Table cannot be null");
+        }
+        if (table.inputs() != inputs || table.flipFlops() != flipFlops || table.outputs() != generator.outputs()) {
+            throw new IllegalArgumentException("Table does not match the circuit's inputs, flip-flops and outputs");
+        }
+    }
+
+    private Simulator(StateTableGenerator generator, boolean precompute, OffHeapStateTable stored) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Generator cannot be null");
+        }
+        if (precompute && generator.inputs() + generator.flipFlops() > LOOKUP_VARIABLES) {
+            throw new IllegalArgumentException("Transition lookup supports at most " + LOOKUP_VARIABLES + " variables");
+        }
+
+        this.fused = generator.circuit().fused();
+        this.registers = fused.newRegisters();
+        this.inputs = generator.inputs();
+        this.flipFlops = generator.flipFlops();
+        this.inputMask = inputs == Long.SIZE ? -1L : (1L << inputs) - 1;
+        this.table = stored;
+
+        if (precompute) {
+            BitSlicedStateTable table = generator.generateBitSliced();
+            int rows = (int) table.rows();
+            nextStateLookup = new long[rows];
+            outputLookup = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                long next = 0;
+                for (int j = 0; j < flipFlops; j++) next |= (long) table.nextState(j, row) << j;
+                long out = 0;
+                for (int k = 0; k < table.outputs(); k++) out |= (long) table.output(k, row) << k;
+
+                int index = (int) lookupIndex(StateTableGenerator.stateBits(row, inputs, flipFlops),
+                        StateTableGenerator.inputBits(row, inputs));
+                nextStateLookup[index] = next;
+                outputLookup[index] = out;
+            }
+        } else {
+            nextStateLookup = null;
+            outputLookup = null;
+        }
+    }
+
+    public void reset(long initialState) {
+        if (flipFlops < Long.SIZE && (initialState >>> flipFlops) != 0) {
+            throw new IllegalArgumentException("Initial state has bits beyond Q" + (flipFlops - 1));
+        }
+        state = initialState;
+        outputs = 0;
+        cycles = 0;
+    }
+
+    public long state() {
+        return state;
+    }
+
+    // Outputs of the most recent cycle (functions of its inputs and the state it produced)
+    public long outputs() {
+        return outputs;
+    }
+
+    public long cycles() {
+        return cycles;
+    }
+
+    public boolean isPrecomputed() {
+        return nextStateLookup != null;
+    }
+
+    // Applies one input vector (bit k = X<k>) and returns the new state
+    public long step(long inputBits) {
+        inputBits &= inputMask;
+        if (nextStateLookup != null) {
+            int index = (int) lookupIndex(state, inputBits);
+            outputs = outputLookup[index];
+            state = nextStateLookup[index];
+        } else if (table != null) {
+            long row = StateTableGenerator.rowIndex(inputBits, state, inputs, flipFlops);
+            outputs = table.outputBits(row);
+            state = table.nextStateBits(row);
+        } else {
+            state = fused.nextState(inputBits, state, registers);
+            outputs = fused.outputBits(registers);
+        }
+        cycles++;
+        return state;
+    }
+
+    // Runs count vectors from a batch; each cycle is written to the trace as a table row when one is given
+    public void run(long[] batch, int count, StateTableWriter trace) {
+        if (trace == null) {
+            for (int i = 0; i < count; i++) {
+                step(batch[i]);
+            }
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long present = state;
+            long inputBits = batch[i] & inputMask;
+            step(inputBits);
+            trace.writeRow(StateTableGenerator.rowIndex(inputBits, present, inputs, flipFlops), state, outputs);
+        }
+    }
+
+    // Runs the whole stimulus; returns the number of cycles simulated
+    public long run(StimulusReader stimulus, StateTableWriter trace) {
+        if (stimulus == null) {
+            throw new IllegalArgumentException("Stimulus cannot be null");
+        }
+
+        long start = cycles;
+        long[] batch = new long[DEFAULT_BATCH_SIZE];
+        int count;
+        while ((count = stimulus.read(batch)) >= 0) {
+            run(batch, count, trace);
+        }
+        return cycles - start;
+    }
+
+    private long lookupIndex(long stateBits, long inputBits) {
+        return (stateBits << inputs) | inputBits;
+    }
+}
@@ -0,0 +1,391 @@
+package statetable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// Merges equivalent states of a generated table with Hopcroft's partition refinement.
+// The circuit is treated as a Mealy machine whose symbols are the 2^inputs input vectors:
+// two states are equivalent when every input sequence drives them through the same outputs.
+//
+// States start out grouped by their output rows, then blocks are split against (block, input)
+// splitters, always queueing the smaller half, which gives O(n k log n) for n states and k
+// inputs. Everything lives in int/long arrays: transitions, their inverse in CSR form, and a
+// refinable partition in which each block is a contiguous range of one element array.
+final class StateMinimizer {
+    // Upper bound on states * 2^inputs, keeping every array index an int
+    static final long MAX_TRANSITIONS = 1L << 28;
+
+    private StateMinimizer() {
+    }
+
+    // Minimizes over all 2^flipFlops states
+    public static Result minimize(StateTableGenerator generator) {
+        int inputs = generator.inputs();
+        int flipFlops = generator.flipFlops();
+        checkSize(1L << flipFlops, inputs);
+
+        int symbols = 1 << inputs;
+        int[] next = new int[(1 << flipFlops) * symbols];
+        long[] outputs = generator.outputs() > 0 ? new long[next.length] : null;
+        new ParallelStateTableGenerator(generator).generate(chunk -> {
+            for (int i = 0; i < chunk.size(); i++) {
+                long row = chunk.row(i);
+                int transition = (int) StateTableGenerator.stateBits(row, inputs, flipFlops) * symbols
+                        + (int) StateTableGenerator.inputBits(row, inputs);
+                next[transition] = (int) chunk.nextStateBits(i);
+                if (outputs != null) outputs[transition] = chunk.outputBits(i);
+            }
+        });
+        return refine(generator, null, next, outputs);
+    }
+
+    // Minimizes over the states reachable from initialState
+    public static Result minimize(StateTableGenerator generator, long initialState) {
+        int inputs = generator.inputs();
+        StateList reachable = new StateList();
+        ReachableStateExplorer.Result explored = new ReachableStateExplorer(generator).explore(initialState, null, reachable);
+        checkSize(explored.states(), inputs);
+
+        long[] states = Arrays.copyOf(reachable.states, reachable.size);
+        Arrays.sort(states);
+        int symbols = 1 << inputs;
+        int[] next = new int[states.length * symbols];
+        long[] outputs = generator.outputs() > 0 ? new long[next.length] : null;
+        for (int s = 0; s < states.length; s++) {
+            for (int a = 0; a < symbols; a++) {
+                long nextState = generator.nextState(a, states[s]);
+                next[s * symbols + a] = Arrays.binarySearch(states, nextState);
+                if (outputs != null) outputs[s * symbols + a] = generator.outputs(a, nextState);
+            }
+        }
+        return refine(generator, states, next, outputs);
+    }
+
+    private static void checkSize(long states, int inputs) {
+        if (inputs >= Integer.SIZE - 1 || states > MAX_TRANSITIONS >>> inputs) {
+            throw new IllegalArgumentException("Too many transitions to minimize: states * 2^inputs is limited to " + MAX_TRANSITIONS);
+        }
+    }
+
+    // Minimized machine. States are numbered 0..states()-1 (the state code itself over the full
+    // state space, otherwise the position among the sorted reachable codes); classes are numbered
+    // in order of their first state, and each is represented by that state.
+    static final class Result {
+        private final StateTableGenerator generator;
+        private final long[] stateCodes; // null when state i has code i
+        private final int symbols;
+        private final int[] classOf;
+        private final int[] representatives;
+        private final int[] classNext;
+        private final long[] classOutputs;
+
+        Result(StateTableGenerator generator, long[] stateCodes, int symbols, int[] classOf, int[] representatives, int[] classNext, long[] classOutputs) {
+            this.generator = generator;
+            this.stateCodes = stateCodes;
+            this.symbols = symbols;
+            this.classOf = classOf;
+            this.representatives = representatives;
+            this.classNext = classNext;
+            this.classOutputs = classOutputs;
+        }
+
+        public int states() {
+            return classOf.length;
+        }
+
+        public int classes() {
+            return representatives.length;
+        }
+
+        // Packed code of state s
+        public long state(int s) {
+            return stateCodes == null ? s : stateCodes[s];
+        }
+
+        public int classOf(int s) {
+            return classOf[s];
+        }
+
+        // Class of a packed state code, or -1 if the state was not part of the minimized machine
+        public int classOfState(long code) {
+            int s = stateCodes == null ? (code >= 0 && code < classOf.length ? (int) code : -1) : Arrays.binarySearch(stateCodes, code);
+            return s < 0 ? -1 : classOf[s];
+        }
+
+        // Packed code of the state representing class c
+        public long representative(int c) {
+            return state(representatives[c]);
+        }
+
+        public int next(int c, long inputBits) {
+            return classNext[c * symbols + (int) inputBits];
+        }
+
+        public long outputs(int c, long inputBits) {
+            return classOutputs == null ? 0 : classOutputs[c * symbols + (int) inputBits];
+        }
+
+        // The reduced table: one row per class and input, using the representatives' state codes
+        public void writeTable(StateTableWriter writer) {
+            int inputs = generator.inputs();
+            int flipFlops = generator.flipFlops();
+            writer.writeHeader();
+            for (int c = 0; c < classes(); c++) {
+                long present = representative(c);
+                for (int a = 0; a < symbols; a++) {
+                    writer.writeRow(StateTableGenerator.rowIndex(a, present, inputs, flipFlops),
+                            representative(next(c, a)), outputs(c, a));
+                }
+            }
+        }
+
+        // One line per state: its code and the code of its representative, Q0 first
+        public void writeMapping(Appendable out) throws IOException {
+            int flipFlops = generator.flipFlops();
+            char[] line = new char[2 * flipFlops + 4];
+            line[flipFlops] = ' ';
+            line[flipFlops + 1] = '-';
+            line[flipFlops + 2] = '>';
+            line[flipFlops + 3] = ' ';
+            for (int s = 0; s < states(); s++) {
+                long code = state(s);
+                long merged = representative(classOf[s]);
+                for (int k = 0; k < flipFlops; k++) {
+                    line[k] = (char) ('0' + ((code >>> k) & 1));
+                    line[flipFlops + 4 + k] = (char) ('0' + ((merged >>> k) & 1));
+                }
+                out.append(new String(line)).append(System.lineSeparator());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return states() + " states -> " + classes() + " classes";
+        }
+    }
+
+    private static Result refine(StateTableGenerator generator, long[] stateCodes, int[] next, long[] outputs) {
+        int symbols = 1 << generator.inputs();
+        int n = next.length / symbols;
+
+        // Refinable partition: block b holds elements[blockStart[b] .. blockEnd[b])
+        int[] elements = new int[n];
+        int[] location = new int[n];
+        int[] blockOf = new int[n];
+        int[] blockStart = new int[n];
+        int[] blockEnd = new int[n];
+        int[] marked = new int[n];
+        int blocks = initialPartition(n, symbols, outputs, elements, blockOf, blockStart, blockEnd);
+        for (int i = 0; i < n; i++) location[elements[i]] = i;
+
+        // Inverse transitions: sources of (a, t) are inverseSources[inverseStart[a*n+t] .. inverseStart[a*n+t+1])
+        int[] inverseStart = new int[next.length + 1];
+        for (int s = 0; s < n; s++) {
+            for (int a = 0; a < symbols; a++) inverseStart[a * n + next[s * symbols + a] + 1]++;
+        }
+        for (int i = 0; i < next.length; i++) inverseStart[i + 1] += inverseStart[i];
+        int[] inverseSources = new int[next.length];
+        int[] fill = Arrays.copyOf(inverseStart, next.length);
+        for (int s = 0; s < n; s++) {
+            for (int a = 0; a < symbols; a++) inverseSources[fill[a * n + next[s * symbols + a]]++] = s;
+        }
+        fill = null;
+
+        // Every block but the largest starts out as a splitter for every input
+        Worklist work = new Worklist(n * symbols);
+        int largest = 0;
+        for (int b = 1; b < blocks; b++) {
+            if (blockEnd[b] - blockStart[b] > blockEnd[largest] - blockStart[largest]) largest = b;
+        }
+        for (int b = 0; b < blocks; b++) {
+            if (b == largest) continue;
+            for (int a = 0; a < symbols; a++) work.push(b * symbols + a);
+        }
+
+        int[] predecessors = new int[n];
+        int[] touched = new int[n];
+        while (!work.isEmpty()) {
+            int splitter = work.pop();
+            int splitterBlock = splitter / symbols;
+            int a = splitter % symbols;
+
+            // Collect first: marking reorders elements, possibly inside the splitter block
+            int count = 0;
+            for (int i = blockStart[splitterBlock]; i < blockEnd[splitterBlock]; i++) {
+                int key = a * n + elements[i];
+                for (int j = inverseStart[key]; j < inverseStart[key + 1]; j++) {
+                    predecessors[count++] = inverseSources[j];
+                }
+            }
+
+            // Move each predecessor into the marked prefix of its block
+            int touchedCount = 0;
+            for (int i = 0; i < count; i++) {
+                int s = predecessors[i];
+                int b = blockOf[s];
+                if (marked[b] == 0) touched[touchedCount++] = b;
+                int target = blockStart[b] + marked[b]++;
+                int displaced = elements[target];
+                int from = location[s];
+                elements[from] = displaced;
+                location[displaced] = from;
+                elements[target] = s;
+                location[s] = target;
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                int b = touched[i];
+                int markedCount = marked[b];
+                marked[b] = 0;
+                int size = blockEnd[b] - blockStart[b];
+                if (markedCount == size) continue;
+
+                // The smaller half becomes the new block, so each state is relabelled O(log n) times
+                int split = blockStart[b] + markedCount;
+                int newBlock = blocks++;
+                if (markedCount <= size - markedCount) {
+                    blockStart[newBlock] = blockStart[b];
+                    blockEnd[newBlock] = split;
+                    blockStart[b] = split;
+                } else {
+                    blockStart[newBlock] = split;
+                    blockEnd[newBlock] = blockEnd[b];
+                    blockEnd[b] = split;
+                }
+                for (int j = blockStart[newBlock]; j < blockEnd[newBlock]; j++) blockOf[elements[j]] = newBlock;
+
+                // Hopcroft: queue the new block whether or not b is pending, since it is the smaller half
+                for (int x = 0; x < symbols; x++) work.push(newBlock * symbols + x);
+            }
+        }
+
+        // Number classes by their first state and take that state as representative
+        int[] classId = new int[blocks];
+        Arrays.fill(classId, -1);
+        int[] classOf = new int[n];
+        int[] representatives = new int[blocks];
+        int classes = 0;
+        for (int s = 0; s < n; s++) {
+            int b = blockOf[s];
+            if (classId[b] < 0) {
+                classId[b] = classes;
+                representatives[classes++] = s;
+            }
+            classOf[s] = classId[b];
+        }
+
+        int[] classNext = new int[classes * symbols];
+        long[] classOutputs = outputs == null ? null : new long[classes * symbols];
+        for (int c = 0; c < classes; c++) {
+            int s = representatives[c];
+            for (int a = 0; a < symbols; a++) {
+                classNext[c * symbols + a] = classOf[next[s * symbols + a]];
+                if (classOutputs != null) classOutputs[c * symbols + a] = outputs[s * symbols + a];
+            }
+        }
+        return new Result(generator, stateCodes, symbols, classOf, representatives, classNext, classOutputs);
+    }
+
+    // Groups states with identical output rows: sort by a hash of the row (with the state index in
+    // the low bits), then split each run of equal hashes by exact comparison. Returns the block count.
+    private static int initialPartition(int n, int symbols, long[] outputs, int[] elements, int[] blockOf, int[] blockStart, int[] blockEnd) {
+        if (outputs == null) {
+            for (int s = 0; s < n; s++) elements[s] = s;
+            blockStart[0] = 0;
+            blockEnd[0] = n;
+            return 1;
+        }
+
+        int indexBits = n == 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(n - 1);
+        long indexMask = (1L << indexBits) - 1;
+        long[] keys = new long[n];
+        for (int s = 0; s < n; s++) {
+            long hash = 0;
+            for (int a = 0; a < symbols; a++) {
+                hash = (hash + outputs[s * symbols + a]) * 0x9E3779B97F4A7C15L;
+                hash ^= hash >>> 29;
+            }
+            keys[s] = (hash & ~indexMask) | s;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < n; i++) elements[i] = (int) (keys[i] & indexMask);
+
+        int blocks = 0;
+        int runStart = 0;
+        for (int i = 1; i <= n; i++) {
+            if (i < n && (keys[i] & ~indexMask) == (keys[runStart] & ~indexMask)) {
+                continue;
+            }
+            // elements[runStart .. i) share a hash; peel off one exact class at a time
+            int start = runStart;
+            while (start < i) {
+                int representative = elements[start];
+                int end = start + 1;
+                for (int j = start + 1; j < i; j++) {
+                    int s = elements[j];
+                    if (Arrays.equals(outputs, s * symbols, (s + 1) * symbols,
+                            outputs, representative * symbols, (representative + 1) * symbols)) {
+                        elements[j] = elements[end];
+                        elements[end++] = s;
+                    }
+                }
+                for (int j = start; j < end; j++) blockOf[elements[j]] = blocks;
+                blockStart[blocks] = start;
+                blockEnd[blocks++] = end;
+                start = end;
+            }
+            runStart = i;
+        }
+        return blocks;
+    }
+
+    // Stack of pending (block * symbols + input) splitters with a membership bitset
+    private static final class Worklist {
+        private int[] stack = new int[1024];
+        private int size;
+        private final long[] present;
+
+        Worklist(int capacity) {
+            this.present = new long[(capacity + 63) >>> 6];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(int splitter) {
+            return (present[splitter >>> 6] & (1L << splitter)) != 0;
+        }
+
+        void push(int splitter) {
+            if (contains(splitter)) return;
+            present[splitter >>> 6] |= 1L << splitter;
+            if (size == stack.length) stack = Arrays.copyOf(stack, size * 2);
+            stack[size++] = splitter;
+        }
+
+        int pop() {
+            int splitter = stack[--size];
+            present[splitter >>> 6] &= ~(1L << splitter);
+            return splitter;
+        }
+    }
+
+    // Collects the states reported by the explorer
+    private static final class StateList implements LongConsumer {
+        long[] states = new long[1024];
+        int size;
+
+        @Override
+        public void accept(long state) {
+            if (size == states.length) {
+                if (size == Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Too many reachable states to minimize");
+                }
+                states = Arrays.copyOf(states, (int) Math.min(Integer.MAX_VALUE - 8, (long) size * 2));
+            }
+            states[size++] = state;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package statetable;
+
+// A contiguous block of computed rows. Chunks are pooled by ParallelStateTableGenerator,
+// so consumers must copy anything they need before returning from accept().
+final class StateTableChunk {
+    private final long[] nextStates;
+    private final long[] outputs;
+    private long firstRow;
+    private int size;
+    private long fillNanos;
+
+    // Column scratch for fillColumns, built for the circuit last filled
+    private Circuit evaluatorCircuit;
+    private ColumnEvaluator evaluator;
+    private long[][] nextStateColumns;
+    private long[][] outputColumns;
+    private long[] registers; // fused-circuit registers for fillRows
+
+    StateTableChunk(int capacity) {
+        this.nextStates = new long[capacity];
+        this.outputs = new long[capacity];
+    }
+
+    // Computes rows firstRow .. firstRow + size - 1 into this chunk's buffers
+    void fill(StateTableGenerator generator, long firstRow, int size) {
+        this.firstRow = firstRow;
+        this.size = size;
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+
+        // Aligned power-of-two blocks of whole words go column-wise, pruned to each function's support
+        if (size >= Long.SIZE && Integer.bitCount(size) == 1 && (firstRow & (size - 1)) == 0) {
+            fillColumns(generator.circuit(), firstRow, size);
+        } else {
+            fillRows(generator, firstRow, size);
+        }
+
+        if (Metrics.ENABLED) {
+            fillNanos = System.nanoTime() - start;
+            Metrics.recordEvaluation(fillNanos);
+        }
+    }
+
+    private void fillRows(StateTableGenerator generator, long firstRow, int size) {
+        int inputs = generator.inputs();
+        int flipFlops = generator.flipFlops();
+        FusedCircuit fused = generator.circuit().fused();
+        if (registers == null || registers.length < fused.size()) {
+            registers = fused.newRegisters();
+        }
+        for (int i = 0; i < size; i++) {
+            long row = firstRow + i;
+            long inputBits = StateTableGenerator.inputBits(row, inputs);
+            nextStates[i] = fused.nextState(inputBits, StateTableGenerator.stateBits(row, inputs, flipFlops), registers);
+            outputs[i] = fused.outputBits(registers);
+        }
+    }
+
+    private void fillColumns(Circuit circuit, long firstRow, int size) {
+        int words = size >>> 6;
+        if (evaluator == null || evaluatorCircuit != circuit) {
+            int wordCapacity = nextStates.length >>> 6;
+            evaluator = new ColumnEvaluator(circuit);
+            evaluatorCircuit = circuit;
+            nextStateColumns = new long[circuit.flipFlops()][wordCapacity];
+            outputColumns = new long[circuit.outputs()][wordCapacity];
+        }
+        evaluator.evaluate(firstRow >>> 6, words, nextStateColumns, outputColumns);
+
+        // Transpose the columns back into packed per-row words
+        for (int w = 0; w < words; w++) {
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                long next = 0;
+                for (int j = 0; j < nextStateColumns.length; j++) next |= ((nextStateColumns[j][w] >>> bit) & 1L) << j;
+                long out = 0;
+                for (int k = 0; k < outputColumns.length; k++) out |= ((outputColumns[k][w] >>> bit) & 1L) << k;
+                nextStates[(w << 6) | bit] = next;
+                outputs[(w << 6) | bit] = out;
+            }
+        }
+    }
+
+    // Time the last fill took; only measured when Metrics.ENABLED
+    long fillNanos() {
+        return fillNanos;
+    }
+
+    public int capacity() {
+        return nextStates.length;
+    }
+
+    public long firstRow() {
+        return firstRow;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long row(int i) {
+        return firstRow + i;
+    }
+
+    // Packed words: bit k holds Q<k> (next state) or output k
+    public long nextStateBits(int i) {
+        return nextStates[i];
+    }
+
+    public long outputBits(int i) {
+        return outputs[i];
+    }
+}
@@ -0,0 +1,82 @@
+package statetable;
+
+// Lazily walks a range of rows of a StateTableGenerator. The cursor is reused for every
+// row, so callers can stream tables far larger than memory without allocating per row.
+final class StateTableCursor {
+    private final FusedCircuit fused;
+    private final long[] registers;
+    private final int inputs;
+    private final int flipFlops;
+    private final long end;
+    private long row;
+    private boolean started;
+    private long inputBits;
+    private long stateBits;
+    private long nextStateBits;
+    private long outputBits;
+
+    StateTableCursor(StateTableGenerator generator, long from, long to) {
+        this.fused = generator.circuit().fused();
+        this.registers = fused.newRegisters();
+        this.inputs = generator.inputs();
+        this.flipFlops = generator.flipFlops();
+        this.end = to;
+        this.row = from;
+    }
+
+    // Advances to the next row; returns false once the range is exhausted
+    public boolean next() {
+        if (started) {
+            row++;
+        }
+        started = true;
+        if (Long.compareUnsigned(row, end) >= 0) {
+            started = false;
+            row = end;
+            return false;
+        }
+
+        inputBits = StateTableGenerator.inputBits(row, inputs);
+        stateBits = StateTableGenerator.stateBits(row, inputs, flipFlops);
+        nextStateBits = fused.nextState(inputBits, stateBits, registers);
+        outputBits = fused.outputBits(registers);
+        return true;
+    }
+
+    public long row() {
+        return row;
+    }
+
+    // Packed words: bit k holds X<k>, Q<k> (present / next) or output k
+    public long inputBits() {
+        return inputBits;
+    }
+
+    public long presentStateBits() {
+        return stateBits;
+    }
+
+    public long nextStateBits() {
+        return nextStateBits;
+    }
+
+    public long outputBits() {
+        return outputBits;
+    }
+
+    public int input(int k) {
+        return (int) ((inputBits >>> k) & 1L);
+    }
+
+    public int presentState(int k) {
+        return (int) ((stateBits >>> k) & 1L);
+    }
+
+    public int nextState(int k) {
+        return (int) ((nextStateBits >>> k) & 1L);
+    }
+
+    public int output(int k) {
+        return (int) ((outputBits >>> k) & 1L);
+    }
+}
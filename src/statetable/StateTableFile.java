@@ -0,0 +1,431 @@
+package statetable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+// Packed binary state table file, written and read through memory-mapped FileChannels.
+//
+// Layout (little-endian):
+//   header   magic "STBL", version, header length, flip-flop type, inputs, flip-flops, outputs,
+//            flip-flop functions, output functions, row count, column offsets, CRC32C of the header
+//            (up to the checksum itself) and the columns
+//   columns  next-state bits (flip-flops bits per row), then output bits (outputs bits per row),
+//            each packed LSB first into 64-bit words, 8-byte aligned and followed by one padding word
+//
+// Opening a file only parses the header; rows are read straight from the mapping by index.
+final class StateTableFile implements Closeable {
+    static final int MAGIC = 0x4C425453; // "STBL"
+    static final int VERSION = 1;
+
+    // Mapped window size; a multiple of 8 so aligned words never straddle two windows
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final String flipFlopType;
+    private final int inputs;
+    private final int flipFlops;
+    private final int outputs;
+    private final String[] flipFlopFunctions;
+    private final String[] outputFunctions;
+    private final long rows;
+    private final long nextStateOffset;
+    private final long outputOffset;
+    private final long dataEnd;
+    private final int headerSize;
+    private final long checksum;
+
+    private StateTableFile(FileChannel channel, MappedByteBuffer[] segments, Header header) {
+        this.channel = channel;
+        this.segments = segments;
+        this.flipFlopType = header.flipFlopType;
+        this.inputs = header.inputs;
+        this.flipFlops = header.flipFlops;
+        this.outputs = header.outputs;
+        this.flipFlopFunctions = header.flipFlopFunctions;
+        this.outputFunctions = header.outputFunctions;
+        this.rows = header.rows;
+        this.nextStateOffset = header.nextStateOffset;
+        this.outputOffset = header.outputOffset;
+        this.dataEnd = header.dataEnd;
+        this.headerSize = header.size;
+        this.checksum = header.checksum;
+    }
+
+    public static void write(StateTableGenerator generator, Path file) throws IOException {
+        write(generator, file, 1, ParallelStateTableGenerator.DEFAULT_CHUNK_SIZE);
+    }
+
+    // Rows are computed by ParallelStateTableGenerator and packed into the mapped columns in order
+    public static void write(StateTableGenerator generator, Path file, int parallelism, int chunkSize) throws IOException {
+        if (generator == null || file == null) {
+            throw new IllegalArgumentException("Generator and file cannot be null");
+        }
+
+        Header header = Header.of(generator);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_WRITE, header.dataEnd);
+
+            ColumnPacker nextStates = new ColumnPacker(segments, header.nextStateOffset, header.flipFlops);
+            ColumnPacker outputs = new ColumnPacker(segments, header.outputOffset, header.outputs);
+            if (parallelism == 1) {
+                StateTableCursor cursor = generator.cursor();
+                while (cursor.next()) {
+                    nextStates.append(cursor.nextStateBits());
+                    outputs.append(cursor.outputBits());
+                }
+            } else {
+                new ParallelStateTableGenerator(generator, parallelism, chunkSize).generate(chunk -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        nextStates.append(chunk.nextStateBits(i));
+                        outputs.append(chunk.outputBits(i));
+                    }
+                });
+            }
+            nextStates.finish();
+            outputs.finish();
+
+            CRC32C crc = new CRC32C();
+            ByteBuffer encoded = header.encode();
+            crc.update(encoded.limit(encoded.limit() - Long.BYTES));
+            update(crc, segments, header.nextStateOffset, header.dataEnd);
+            header.checksum = crc.getValue();
+            encoded = header.encode();
+            while (encoded.hasRemaining()) {
+                channel.write(encoded, encoded.position());
+            }
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+    }
+
+    public static StateTableFile open(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_ONLY, channel.size());
+            if (segments.length == 0) {
+                throw new IllegalArgumentException("Not a state table file: " + file);
+            }
+            Header header = Header.read(channel);
+            if (header.dataEnd > channel.size()) {
+                throw new IllegalArgumentException("State table file is truncated: " + file);
+            }
+            return new StateTableFile(channel, segments, header);
+        } catch (RuntimeException | IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public String flipFlopType() {
+        return flipFlopType;
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int flipFlops() {
+        return flipFlops;
+    }
+
+    public int outputs() {
+        return outputs;
+    }
+
+    public String[] flipFlopFunctions() {
+        return flipFlopFunctions.clone();
+    }
+
+    public String[] outputFunctions() {
+        return outputFunctions.clone();
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    // Rebuilds the generator the table was written from
+    public StateTableGenerator generator() {
+        return new StateTableGenerator(flipFlops, inputs, outputs, flipFlopType, flipFlopFunctions, outputFunctions);
+    }
+
+    // Next state under input X from present state S, argument order as StateTableGenerator;
+    // packed words with bit k holding X<k> / Q<k>
+    public long nextState(long inputBits, long stateBits) {
+        return nextStateAt(StateTableGenerator.rowIndex(inputBits, stateBits, inputs, flipFlops));
+    }
+
+    public long outputs(long inputBits, long stateBits) {
+        return outputsAt(StateTableGenerator.rowIndex(inputBits, stateBits, inputs, flipFlops));
+    }
+
+    public long nextStateAt(long row) {
+        checkRow(row);
+        return readBits(nextStateOffset, row, flipFlops);
+    }
+
+    public long outputsAt(long row) {
+        checkRow(row);
+        return readBits(outputOffset, row, outputs);
+    }
+
+    public long checksum() {
+        return checksum;
+    }
+
+    // Recomputes the checksum over the header and columns; reads the whole file, so it is
+    // not done on open. A header edited to other functions or type fails, as do damaged rows.
+    public boolean verify() {
+        CRC32C crc = new CRC32C();
+        update(crc, segments, 0, headerSize - Long.BYTES);
+        update(crc, segments, nextStateOffset, dataEnd);
+        return crc.getValue() == checksum;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void checkRow(long row) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("Row out of range: " + row);
+        }
+    }
+
+    private long readBits(long columnOffset, long row, int width) {
+        if (width == 0) {
+            return 0L;
+        }
+        long bit = row * width;
+        long wordOffset = columnOffset + (bit >>> 6) * Long.BYTES;
+        int shift = (int) (bit & 63);
+        long value = word(segments, wordOffset) >>> shift;
+        if (shift + width > Long.SIZE) {
+            value |= word(segments, wordOffset + Long.BYTES) << (Long.SIZE - shift);
+        }
+        return width == Long.SIZE ? value : value & ((1L << width) - 1);
+    }
+
+    private static long word(MappedByteBuffer[] segments, long offset) {
+        return segments[(int) (offset / SEGMENT_SIZE)].getLong((int) (offset % SEGMENT_SIZE));
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+        int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(mode, start, Math.min(SEGMENT_SIZE, size - start));
+            segments[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    private static void update(CRC32C crc, MappedByteBuffer[] segments, long from, long to) {
+        for (long offset = from; offset < to; ) {
+            int index = (int) (offset / SEGMENT_SIZE);
+            int start = (int) (offset % SEGMENT_SIZE);
+            int end = (int) Math.min(segments[index].capacity(), start + (to - offset));
+            crc.update(segments[index].duplicate().position(start).limit(end));
+            offset += end - start;
+        }
+    }
+
+    // Appends fixed-width fields LSB first, writing whole aligned words into the mapping
+    private static final class ColumnPacker {
+        private final MappedByteBuffer[] segments;
+        private final int width;
+        private long offset;
+        private long word;
+        private int used;
+
+        ColumnPacker(MappedByteBuffer[] segments, long offset, int width) {
+            this.segments = segments;
+            this.offset = offset;
+            this.width = width;
+        }
+
+        void append(long value) {
+            if (width == 0) {
+                return;
+            }
+            word |= value << used;
+            used += width;
+            if (used >= Long.SIZE) {
+                put(word);
+                used -= Long.SIZE;
+                // Bits of value that did not fit in the word just written
+                word = used == 0 ? 0L : value >>> (width - used);
+            }
+        }
+
+        void finish() {
+            if (used > 0) {
+                put(word);
+                used = 0;
+                word = 0;
+            }
+        }
+
+        private void put(long value) {
+            segments[(int) (offset / SEGMENT_SIZE)].putLong((int) (offset % SEGMENT_SIZE), value);
+            offset += Long.BYTES;
+        }
+    }
+
+    private static final class Header {
+        String flipFlopType;
+        int inputs;
+        int flipFlops;
+        int outputs;
+        String[] flipFlopFunctions;
+        String[] outputFunctions;
+        long rows;
+        long nextStateOffset;
+        long outputOffset;
+        long dataEnd;
+        int size; // encoded header bytes, the checksum last
+        long checksum;
+
+        static Header of(StateTableGenerator generator) {
+            int variables = generator.inputs() + generator.flipFlops();
+            int widest = Math.max(generator.flipFlops(), generator.outputs());
+            // Bit offsets within a column must fit in a long
+            if (variables + (Integer.SIZE - Integer.numberOfLeadingZeros(widest)) > 60) {
+                throw new IllegalArgumentException("State table is too large for the packed file format");
+            }
+
+            Header header = new Header();
+            header.flipFlopType = generator.flipFlopType();
+            header.inputs = generator.inputs();
+            header.flipFlops = generator.flipFlops();
+            header.outputs = generator.outputs();
+            header.flipFlopFunctions = generator.flipFlopFunctions();
+            header.outputFunctions = generator.outputFunctions();
+            header.rows = generator.rowCount();
+            header.size = header.encode().remaining();
+            header.nextStateOffset = align(header.size);
+            header.outputOffset = header.nextStateOffset + columnBytes(header.rows, header.flipFlops);
+            header.dataEnd = header.outputOffset + columnBytes(header.rows, header.outputs);
+            return header;
+        }
+
+        // Whole words plus one padding word, so a field read never runs past the column
+        private static long columnBytes(long rows, int width) {
+            long bits = rows * width;
+            return ((bits + 63) >>> 6) * Long.BYTES + Long.BYTES;
+        }
+
+        private static long align(long offset) {
+            return (offset + 7) & ~7L;
+        }
+
+        ByteBuffer encode() {
+            byte[][] strings = new byte[1 + flipFlopFunctions.length + outputFunctions.length][];
+            int s = 0;
+            int size = 6 * Integer.BYTES + 5 * Long.BYTES;
+            strings[s++] = flipFlopType.getBytes(StandardCharsets.UTF_8);
+            for (String function : flipFlopFunctions) strings[s++] = function.getBytes(StandardCharsets.UTF_8);
+            for (String function : outputFunctions) strings[s++] = function.getBytes(StandardCharsets.UTF_8);
+            for (byte[] string : strings) size += Integer.BYTES + string.length;
+
+            ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size);
+            putString(buffer, strings[0]);
+            buffer.putInt(inputs).putInt(flipFlops).putInt(outputs);
+            for (int i = 1; i < strings.length; i++) putString(buffer, strings[i]);
+            buffer.putLong(rows).putLong(nextStateOffset).putLong(outputOffset).putLong(dataEnd).putLong(checksum);
+            return buffer.flip();
+        }
+
+        // The header is read with plain channel reads, so it may span mapped windows
+        static Header read(FileChannel channel) throws IOException {
+            ByteBuffer prefix = readFully(channel, 0, 3 * Integer.BYTES);
+            if (prefix.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a state table file");
+            }
+            int version = prefix.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported state table file version: " + version);
+            }
+            int size = prefix.getInt();
+            if (size < prefix.capacity() || size > channel.size()) {
+                throw new IllegalArgumentException("Corrupt state table header");
+            }
+
+            ByteBuffer buffer = readFully(channel, prefix.capacity(), size - prefix.capacity());
+            try {
+                Header header = new Header();
+                header.size = size;
+                header.flipFlopType = getString(buffer);
+                header.inputs = buffer.getInt();
+                header.flipFlops = buffer.getInt();
+                header.outputs = buffer.getInt();
+                if (header.inputs < 1 || header.flipFlops < 1 || header.outputs < 0
+                        || header.inputs + header.flipFlops > StateTableGenerator.MAX_VARIABLES
+                        || header.outputs > StateTableGenerator.MAX_OUTPUTS) {
+                    throw new IllegalArgumentException("Corrupt state table header");
+                }
+                header.flipFlopFunctions = new String[header.flipFlops];
+                for (int i = 0; i < header.flipFlops; i++) header.flipFlopFunctions[i] = getString(buffer);
+                header.outputFunctions = new String[header.outputs];
+                for (int i = 0; i < header.outputs; i++) header.outputFunctions[i] = getString(buffer);
+                header.rows = buffer.getLong();
+                header.nextStateOffset = buffer.getLong();
+                header.outputOffset = buffer.getLong();
+                header.dataEnd = buffer.getLong();
+                header.checksum = buffer.getLong();
+
+                if (header.rows != 1L << (header.inputs + header.flipFlops)
+                        || header.outputOffset != header.nextStateOffset + columnBytes(header.rows, header.flipFlops)
+                        || header.dataEnd != header.outputOffset + columnBytes(header.rows, header.outputs)) {
+                    throw new IllegalArgumentException("Corrupt state table header");
+                }
+                return header;
+            } catch (BufferUnderflowException e) {
+                throw new IllegalArgumentException("Truncated state table header", e);
+            }
+        }
+
+        private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IllegalArgumentException("Truncated state table header");
+                }
+            }
+            return buffer.flip();
+        }
+
+        private static void putString(ByteBuffer buffer, byte[] bytes) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        private static String getString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Corrupt state table header");
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
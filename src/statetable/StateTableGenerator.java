@@ -0,0 +1,238 @@
+package statetable;
+
+import javax.script.ScriptException;
+
+class StateTableGenerator {
+    // Row indices are longs, so inputs and state bits together must fit in 63 bits
+    static final int MAX_VARIABLES = 63;
+    static final int MAX_OUTPUTS = 64;
+
+    private final int flipFlops;
+    private final int inputs;
+    private final int outputs;
+    private final String flipFlopType;
+    private final String[] flipFlopFunctions;
+    private final String[] outputFunctions;
+    private final Circuit circuit;
+
+    public StateTableGenerator(int flipFlops, int inputs, int outputs, String flipFlopType, String[] flipFlopFunctions, String outputFunction) {
+        this(flipFlops, inputs, outputs, flipFlopType, flipFlopFunctions, singleOutput(outputs, outputFunction));
+    }
+
+    public StateTableGenerator(int flipFlops, int inputs, int outputs, String flipFlopType, String[] flipFlopFunctions, String[] outputFunctions) {
+        // Validate constructor parameters
+        if (flipFlops < 1) {
+            throw new IllegalArgumentException("Number of flip-flops must be at least 1");
+        }
+        if (inputs < 1) {
+            throw new IllegalArgumentException("Number of inputs must be at least 1");
+        }
+        if (flipFlops + inputs > MAX_VARIABLES) {
+            throw new IllegalArgumentException("Flip-flops and inputs together must not exceed " + MAX_VARIABLES);
+        }
+        if (outputs < 0 || outputs > MAX_OUTPUTS) {
+            throw new IllegalArgumentException("Number of outputs must be between 0 and " + MAX_OUTPUTS);
+        }
+        if (flipFlopType == null || flipFlopFunctions == null) {
+            throw new IllegalArgumentException("Flip-flop type and functions cannot be null");
+        }
+        if (flipFlopFunctions.length != flipFlops) {
+            throw new IllegalArgumentException("Number of flip-flop functions must match number of flip-flops");
+        }
+        if (outputFunctions == null || outputFunctions.length != outputs) {
+            throw new IllegalArgumentException("Number of output functions must match number of outputs");
+        }
+
+        // Parse and validate every function once; rows only evaluate the compiled circuit.
+        // The type is one kind for all flip-flops or a comma-separated kind per flip-flop.
+        this.circuit = Circuit.compile(inputs, FlipFlopKind.parse(flipFlopType, flipFlops), flipFlopFunctions, outputFunctions);
+
+        this.flipFlops = flipFlops;
+        this.inputs = inputs;
+        this.outputs = outputs;
+        this.flipFlopType = circuit.type();
+        this.flipFlopFunctions = flipFlopFunctions;
+        this.outputFunctions = outputFunctions;
+    }
+
+    private static String[] singleOutput(int outputs, String outputFunction) {
+        if (outputs < 0 || outputs > 1) {
+            throw new IllegalArgumentException("Number of outputs must be 0 or 1 with a single output function");
+        }
+        if (outputs == 1 && outputFunction == null) {
+            throw new IllegalArgumentException("Output function required when outputs = 1");
+        }
+        return outputs == 1 ? new String[]{outputFunction} : new String[0];
+    }
+
+    public int flipFlops() {
+        return flipFlops;
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int outputs() {
+        return outputs;
+    }
+
+    public String flipFlopType() {
+        return flipFlopType;
+    }
+
+    public String[] flipFlopFunctions() {
+        return flipFlopFunctions.clone();
+    }
+
+    public String[] outputFunctions() {
+        return outputFunctions.clone();
+    }
+
+    public Circuit circuit() {
+        return circuit;
+    }
+
+    // Number of rows, 2^(inputs + flipFlops); read as unsigned when all 63 variables are used
+    public long rowCount() {
+        return 1L << (inputs + flipFlops);
+    }
+
+    // Row i holds the inputs in its low bits (X0 most significant) and the present state
+    // above them (Q0 most significant). The packed words used for evaluation hold X<k> / Q<k>
+    // in bit k instead, so the fields are bit-reversed on the way in and out.
+    static long inputBits(long row, int inputs) {
+        return reverse(row, inputs);
+    }
+
+    static long stateBits(long row, int inputs, int flipFlops) {
+        return reverse(row >>> inputs, flipFlops);
+    }
+
+    static long rowIndex(long inputBits, long stateBits, int inputs, int flipFlops) {
+        return (reverse(stateBits, flipFlops) << inputs) | reverse(inputBits, inputs);
+    }
+
+    private static long reverse(long value, int width) {
+        return width == 0 ? 0L : Long.reverse(value) >>> (Long.SIZE - width);
+    }
+
+    // Next state of every flip-flop, packed with Q<k> in bit k
+    public long nextState(long inputBits, long stateBits) {
+        return circuit.nextState(inputBits, stateBits);
+    }
+
+    // Outputs are functions of the inputs and the next state, packed with output k in bit k
+    public long outputs(long inputBits, long nextStateBits) {
+        return circuit.outputs(inputBits, nextStateBits);
+    }
+
+    // Streams every row without materializing the table
+    public StateTableCursor cursor() {
+        return new StateTableCursor(this, 0, rowCount());
+    }
+
+    // Streams rows from (inclusive) to (exclusive), compared as unsigned row indices
+    public StateTableCursor cursor(long from, long to) {
+        return new StateTableCursor(this, from, to);
+    }
+
+    // Evaluates the whole table in one bit-parallel pass instead of row by row
+    public BitSlicedStateTable generateBitSliced() {
+        return BitSlicedStateTable.generate(circuit);
+    }
+
+    // Keeps the whole table in direct memory owned by the arena; close the arena to free it
+    public OffHeapStateTable generateOffHeap(OffHeapArena arena) {
+        return OffHeapStateTable.generate(this, arena, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SymbolicCircuit symbolic() {
+        return SymbolicCircuit.build(this);
+    }
+
+    // On a shared manager (SymbolicCircuit.manager) so the result can be compared with other circuits
+    public SymbolicCircuit symbolic(Bdd bdd) {
+        return SymbolicCircuit.build(bdd, this);
+    }
+
+    // An editable in-memory copy of the table that recomputes only what an edit affects
+    public StateTableSession session() {
+        return new StateTableSession(circuit);
+    }
+
+    public void generateStateTable() throws ScriptException {
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.TEXT, this, System.out);
+        writeStateTable(writer);
+        writer.flush();
+    }
+
+    // Same table, with rows computed in chunks across worker threads and printed in order
+    public void generateStateTable(int parallelism, int chunkSize) {
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.TEXT, this, System.out);
+        writeStateTable(writer, parallelism, chunkSize);
+        writer.flush();
+    }
+
+    // Streams the header and every row into the writer; the caller flushes or closes it.
+    // Rows are computed a chunk at a time so whole blocks can be evaluated column-wise.
+    public void writeStateTable(StateTableWriter writer) {
+        if (Metrics.ENABLED) {
+            writeInstrumented(writer);
+            return;
+        }
+        writer.writeHeader();
+        int chunkSize = ParallelStateTableGenerator.DEFAULT_CHUNK_SIZE;
+        StateTableChunk chunk = new StateTableChunk(chunkSize);
+        long rows = rowCount();
+        for (long first = 0; Long.compareUnsigned(first, rows) < 0; first += chunk.size()) {
+            long remaining = rows - first;
+            chunk.fill(this, first, Long.compareUnsigned(remaining, chunkSize) < 0 ? (int) remaining : chunkSize);
+            writer.writeChunk(chunk);
+        }
+    }
+
+    public void writeStateTable(StateTableWriter writer, int parallelism, int chunkSize) {
+        if (!Metrics.ENABLED) {
+            writer.writeHeader();
+            new ParallelStateTableGenerator(this, parallelism, chunkSize).generate(writer::writeChunk);
+            return;
+        }
+
+        Metrics.TableGeneratedEvent event = Metrics.beginGeneration();
+        long start = System.nanoTime();
+        long bytesBefore = writer.bytesWritten();
+        long[] times = new long[2]; // evaluation, formatting
+        writer.writeHeader();
+        new ParallelStateTableGenerator(this, parallelism, chunkSize).generate(chunk -> {
+            times[0] += chunk.fillNanos();
+            long formatStart = System.nanoTime();
+            writer.writeChunk(chunk);
+            times[1] += System.nanoTime() - formatStart;
+        });
+        Metrics.endGeneration(event, this, start, rowCount(), times[0], times[1], writer.bytesWritten() - bytesBefore, true);
+    }
+
+    // The serial table with evaluation and formatting timed separately per chunk
+    private void writeInstrumented(StateTableWriter writer) {
+        Metrics.TableGeneratedEvent event = Metrics.beginGeneration();
+        long start = System.nanoTime();
+        long bytesBefore = writer.bytesWritten();
+        long evaluate = 0;
+        long format = 0;
+        writer.writeHeader();
+
+        int chunkSize = ParallelStateTableGenerator.DEFAULT_CHUNK_SIZE;
+        StateTableChunk chunk = new StateTableChunk(chunkSize);
+        long rows = rowCount();
+        for (long first = 0; Long.compareUnsigned(first, rows) < 0; first += chunk.size()) {
+            long remaining = rows - first;
+            chunk.fill(this, first, Long.compareUnsigned(remaining, chunkSize) < 0 ? (int) remaining : chunkSize);
+            evaluate += chunk.fillNanos();
+            long formatStart = System.nanoTime();
+            writer.writeChunk(chunk);
+            format += System.nanoTime() - formatStart;
+        }
+        Metrics.endGeneration(event, this, start, rows, evaluate, format, writer.bytesWritten() - bytesBefore, false);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,235 @@
+package statetable;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+// An editable state table held as bit-sliced columns. Editing one flip-flop or output function
+// recomputes only what depends on it: the edited column is re-evaluated over its support (see
+// ColumnEvaluator), and the outputs that read the edited next-state bit are recomputed only in
+// the 64-row blocks where that bit actually changed. Each edit returns a Change listing the
+// rows whose next state or outputs differ, which can be written instead of the whole table.
+final class StateTableSession {
+    private final int inputs;
+    private final int flipFlops;
+    private final long rows;
+    private final int words;
+    private final long validMask;
+    private final FlipFlopKind[] kinds;
+    private final String[] functions;
+    private final String[] outputFunctions;
+    private final long[][] nextStateColumns;
+    private final long[][] outputColumns;
+    private final long[] readers; // readers[j]: bit k set when output k reads Q<j> (N.S.)
+    private long[] scratch;
+    private Circuit circuit;
+    private ColumnEvaluator evaluator;
+    private long version;
+
+    public StateTableSession(Circuit circuit) {
+        if (circuit == null) {
+            throw new IllegalArgumentException("Circuit cannot be null");
+        }
+        this.inputs = circuit.inputs();
+        this.flipFlops = circuit.flipFlops();
+        if (inputs + flipFlops > BitSlicedStateTable.MAX_VARIABLES) {
+            throw new IllegalArgumentException("Sessions support at most " + BitSlicedStateTable.MAX_VARIABLES + " variables");
+        }
+        this.rows = 1L << (inputs + flipFlops);
+        this.words = (int) Math.max(1, rows >>> 6);
+        this.validMask = rows >= Long.SIZE ? -1L : (1L << rows) - 1;
+        this.kinds = new FlipFlopKind[flipFlops];
+        for (int j = 0; j < flipFlops; j++) kinds[j] = circuit.kind(j);
+        this.functions = circuit.flipFlopFunctions();
+        this.outputFunctions = circuit.outputFunctionSources();
+        this.nextStateColumns = new long[flipFlops][words];
+        this.outputColumns = new long[outputFunctions.length][words];
+        this.readers = new long[flipFlops];
+        this.scratch = new long[words];
+
+        install(circuit);
+        evaluator.evaluate(0, words, nextStateColumns, outputColumns);
+        for (long[] column : nextStateColumns) column[0] &= validMask;
+        for (long[] column : outputColumns) column[0] &= validMask;
+    }
+
+    public Circuit circuit() {
+        return circuit;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    // Packed words: bit k holds Q<k> (next state) or output k
+    public long nextStateBits(long row) {
+        return pack(nextStateColumns, row);
+    }
+
+    public long outputBits(long row) {
+        return pack(outputColumns, row);
+    }
+
+    // Replaces the function of one flip-flop (SR/JK: both parts separated by a newline)
+    public Change setFlipFlopFunction(int flipFlop, String function) {
+        if (flipFlop < 0 || flipFlop >= flipFlops) {
+            throw new IllegalArgumentException("Flip-flop index out of range: " + flipFlop);
+        }
+        String[] edited = functions.clone();
+        edited[flipFlop] = function;
+        install(Circuit.compile(inputs, kinds, edited, outputFunctions));
+        functions[flipFlop] = function;
+
+        long[] old = nextStateColumns[flipFlop];
+        evaluator.fillNextState(flipFlop, words, scratch);
+        scratch[0] &= validMask;
+        nextStateColumns[flipFlop] = scratch;
+        scratch = old;
+
+        // Outputs change only where this next-state bit did, so only those blocks are re-evaluated
+        long dependents = readers[flipFlop];
+        long changedOutputs = 0;
+        Change change = new Change(this, 1L << flipFlop);
+        for (int w = 0; w < words; w++) {
+            long changed = old[w] ^ nextStateColumns[flipFlop][w];
+            if (changed == 0) continue;
+            change.add(w, changed);
+            for (long rest = dependents; rest != 0; rest &= rest - 1) {
+                int k = Long.numberOfTrailingZeros(rest);
+                long value = evaluator.outputWord(k, w, nextStateColumns) & (w == 0 ? validMask : -1L);
+                if (value != outputColumns[k][w]) {
+                    outputColumns[k][w] = value;
+                    changedOutputs |= 1L << k;
+                }
+            }
+        }
+        change.changedOutputs = changedOutputs;
+        return change;
+    }
+
+    public Change setOutputFunction(int output, String function) {
+        if (output < 0 || output >= outputFunctions.length) {
+            throw new IllegalArgumentException("Output index out of range: " + output);
+        }
+        String[] edited = outputFunctions.clone();
+        edited[output] = function;
+        install(Circuit.compile(inputs, kinds, functions, edited));
+        outputFunctions[output] = function;
+
+        long[] old = outputColumns[output];
+        evaluator.fillOutput(output, words, scratch, nextStateColumns);
+        scratch[0] &= validMask;
+        outputColumns[output] = scratch;
+        scratch = old;
+
+        Change change = new Change(this, 0);
+        for (int w = 0; w < words; w++) {
+            long changed = old[w] ^ outputColumns[output][w];
+            if (changed != 0) change.add(w, changed);
+        }
+        change.changedOutputs = change.isEmpty() ? 0 : 1L << output;
+        return change;
+    }
+
+    // Streams the header and every row of the current table
+    public void writeTable(StateTableWriter writer) {
+        writer.writeHeader();
+        for (long row = 0; row < rows; row++) {
+            writer.writeRow(row, nextStateBits(row), outputBits(row));
+        }
+    }
+
+    // Switches to a newly compiled circuit and rebuilds which outputs read which next-state bits
+    private void install(Circuit next) {
+        circuit = next;
+        evaluator = new ColumnEvaluator(next);
+        version++;
+        Arrays.fill(readers, 0);
+        CompiledExpression[] outputs = next.outputFunctions();
+        for (int k = 0; k < outputs.length; k++) {
+            for (long rest = outputs[k].stateSupport(); rest != 0; rest &= rest - 1) {
+                readers[Long.numberOfTrailingZeros(rest)] |= 1L << k;
+            }
+        }
+    }
+
+    private long pack(long[][] columns, long row) {
+        if (row < 0 || row >= rows) {
+            throw new IllegalArgumentException("Row out of range: " + row);
+        }
+        int w = (int) (row >>> 6);
+        long bits = 0;
+        for (int k = 0; k < columns.length; k++) bits |= ((columns[k][w] >>> row) & 1L) << k;
+        return bits;
+    }
+
+    // The rows one edit changed, as 64-row blocks with a mask of the changed rows in each.
+    // Row values are read from the session, so a change can only be written until the next edit.
+    static final class Change {
+        private final StateTableSession session;
+        private final long version;
+        private final long changedNextStates;
+        private long changedOutputs;
+        private int[] blocks = new int[16];
+        private long[] masks = new long[16];
+        private int count;
+        private long rows;
+
+        private Change(StateTableSession session, long changedNextStates) {
+            this.session = session;
+            this.version = session.version;
+            this.changedNextStates = changedNextStates;
+        }
+
+        private void add(int block, long mask) {
+            if (count == blocks.length) {
+                blocks = Arrays.copyOf(blocks, count * 2);
+                masks = Arrays.copyOf(masks, count * 2);
+            }
+            blocks[count] = block;
+            masks[count++] = mask;
+            rows += Long.bitCount(mask);
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        // Bit j set when the edited flip-flop's next-state column changed (only ever the edited one)
+        public long changedNextStates() {
+            return isEmpty() ? 0 : changedNextStates;
+        }
+
+        // Bit k set for each output column with at least one changed row
+        public long changedOutputs() {
+            return changedOutputs;
+        }
+
+        // Changed rows in ascending order
+        public void forEachRow(LongConsumer action) {
+            for (int i = 0; i < count; i++) {
+                long base = (long) blocks[i] << 6;
+                for (long rest = masks[i]; rest != 0; rest &= rest - 1) {
+                    action.accept(base | Long.numberOfTrailingZeros(rest));
+                }
+            }
+        }
+
+        // Writes the header and the changed rows with their new values
+        public void write(StateTableWriter writer) {
+            if (session.version != version) {
+                throw new IllegalStateException("The session was edited after this change");
+            }
+            writer.writeHeader();
+            forEachRow(row -> writer.writeRow(row, session.nextStateBits(row), session.outputBits(row)));
+        }
+
+        @Override
+        public String toString() {
+            return rows + " rows changed";
+        }
+    }
+}
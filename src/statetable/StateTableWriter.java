@@ -0,0 +1,301 @@
+package statetable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// Writes state table rows straight into a reusable byte buffer that is drained into a channel.
+// Subclasses only encode rows; no String is built per row or per cell.
+abstract class StateTableWriter implements Closeable {
+    enum Format {
+        TEXT, CSV, TSV, JSONL;
+
+        static Format fromName(String name) {
+            if (name == null) {
+                throw new IllegalArgumentException("Format cannot be null");
+            }
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported output format: " + name);
+            }
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    protected final int inputs;
+    protected final int flipFlops;
+    protected final int outputs;
+    protected final String flipFlopType;
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final Flushable stream;
+    private final byte[] buffer;
+    private final ByteBuffer view;
+    private int position;
+    private long bytesWritten;
+
+    protected StateTableWriter(StateTableGenerator generator, WritableByteChannel channel, boolean closeChannel, Flushable stream) {
+        if (generator == null || channel == null) {
+            throw new IllegalArgumentException("Generator and channel cannot be null");
+        }
+        this.inputs = generator.inputs();
+        this.flipFlops = generator.flipFlops();
+        this.outputs = generator.outputs();
+        this.flipFlopType = generator.flipFlopType();
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.stream = stream;
+        this.buffer = new byte[BUFFER_SIZE];
+        this.view = ByteBuffer.wrap(buffer);
+    }
+
+    public static StateTableWriter create(Format format, StateTableGenerator generator, WritableByteChannel channel, boolean closeChannel) {
+        return create(format, generator, channel, closeChannel, null);
+    }
+
+    private static StateTableWriter create(Format format, StateTableGenerator generator, WritableByteChannel channel,
+                                           boolean closeChannel, Flushable stream) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format cannot be null");
+        }
+        return new TemplateWriter(format, generator, channel, closeChannel, stream);
+    }
+
+    // Writes to a file through a FileChannel, replacing any existing content
+    public static StateTableWriter open(Format format, StateTableGenerator generator, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return create(format, generator, channel, true);
+    }
+
+    // Writes to a stream the caller owns, such as System.out; close() only flushes it
+    public static StateTableWriter forStream(Format format, StateTableGenerator generator, OutputStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Output stream cannot be null");
+        }
+        return create(format, generator, Channels.newChannel(out), false, out);
+    }
+
+    public abstract void writeHeader();
+
+    // Packed words: bit k holds Q<k> (next state) or output k; inputs and present state come from the row index
+    public abstract void writeRow(long row, long nextStateBits, long outputBits);
+
+    public void writeChunk(StateTableChunk chunk) {
+        for (int i = 0; i < chunk.size(); i++) {
+            writeRow(chunk.row(i), chunk.nextStateBits(i), chunk.outputBits(i));
+        }
+    }
+
+    public long bytesWritten() {
+        return bytesWritten + position;
+    }
+
+    public void flush() {
+        drain();
+        // Channels.newChannel does not flush the stream it wraps
+        if (stream != null) {
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error flushing state table output", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    // Makes room for at least n more bytes
+    protected final void reserve(int n) {
+        if (buffer.length - position < n) {
+            drain();
+        }
+    }
+
+    // Copies a pre-encoded block and returns its offset in the buffer, so callers can patch it
+    protected final int put(byte[] bytes) {
+        if (bytes.length > buffer.length) {
+            throw new IllegalArgumentException("Block of " + bytes.length + " bytes does not fit the output buffer");
+        }
+        reserve(bytes.length);
+        int start = position;
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+        return start;
+    }
+
+    protected final void setByte(int index, byte value) {
+        buffer[index] = value;
+    }
+
+    // For headers and other one-off text; may be longer than the buffer
+    protected final void putText(String text) {
+        drain();
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        bytesWritten += bytes.remaining();
+        writeFully(bytes);
+    }
+
+    // Decimal digits of the value read as unsigned, written in place. Row numbers fill up to 63
+    // bits, and callers may pass any 64-bit count.
+    protected final void putDecimal(long value) {
+        reserve(20);
+        // One unsigned division leaves a quotient that signed arithmetic handles
+        long quotient = Long.divideUnsigned(value, 10);
+        int digits = 1;
+        for (long v = quotient; v != 0; v /= 10) digits++;
+        int end = position + digits;
+        buffer[end - 1] = (byte) ('0' + Long.remainderUnsigned(value, 10));
+        for (int i = end - 2; i >= position; i--) {
+            buffer[i] = (byte) ('0' + quotient % 10);
+            quotient /= 10;
+        }
+        position = end;
+    }
+
+    private void drain() {
+        if (position == 0) {
+            return;
+        }
+        view.clear().limit(position);
+        writeFully(view);
+        bytesWritten += position;
+        position = 0;
+    }
+
+    private void writeFully(ByteBuffer bytes) {
+        if (Metrics.ENABLED) Metrics.recordBytes(bytes.remaining());
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error writing state table output", e);
+        }
+    }
+
+    String[] columnLabels() {
+        String[] labels = new String[inputs + 2 * flipFlops + outputs];
+        int c = 0;
+        for (int i = 0; i < inputs; i++) labels[c++] = "X" + i;
+        for (int i = 0; i < flipFlops; i++) labels[c++] = "Q" + i + " (P.S.)";
+        for (int i = 0; i < flipFlops; i++) labels[c++] = "Q" + i + " (N.S.)";
+        for (int i = 0; i < outputs; i++) labels[c++] = outputs == 1 ? "Output" : "Output" + i;
+        return labels;
+    }
+
+    // Every row of the text, CSV, TSV and JSON Lines formats has the same shape, so each is
+    // encoded once as a template; a row is a copy of the template with its digits patched in.
+    private static final class TemplateWriter extends StateTableWriter {
+        private static final byte[] JSON_ROW_PREFIX = "{\"row\":".getBytes(StandardCharsets.US_ASCII);
+
+        private final Format format;
+        private final byte[] template;
+        private final int[] digitOffsets;
+        private final String lineSeparator;
+        private final int columnWidth;
+
+        TemplateWriter(Format format, StateTableGenerator generator, WritableByteChannel channel, boolean closeChannel, Flushable stream) {
+            super(generator, channel, closeChannel, stream);
+            this.format = format;
+            this.lineSeparator = format == Format.TEXT ? System.lineSeparator() : "\n";
+            // Keep at least one space between columns once labels reach Q10 and beyond
+            this.columnWidth = Math.max(10, ("Q" + (flipFlops - 1) + " (P.S.)").length() + 1);
+
+            int cells = inputs + 2 * flipFlops + outputs;
+            this.digitOffsets = new int[cells];
+            StringBuilder row = new StringBuilder();
+            if (format == Format.JSONL) {
+                int c = 0;
+                c = jsonArray(row, "inputs", inputs, c, true);
+                c = jsonArray(row, "present", flipFlops, c, true);
+                c = jsonArray(row, "next", flipFlops, c, true);
+                jsonArray(row, "outputs", outputs, c, true);
+                row.append('}');
+            } else {
+                for (int c = 0; c < cells; c++) {
+                    if (format == Format.TEXT) {
+                        digitOffsets[c] = row.length();
+                        row.append('0').append(" ".repeat(columnWidth - 1));
+                    } else {
+                        if (c > 0) row.append(format == Format.CSV ? ',' : '\t');
+                        digitOffsets[c] = row.length();
+                        row.append('0');
+                    }
+                }
+            }
+            row.append(lineSeparator);
+            this.template = row.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private int jsonArray(StringBuilder row, String name, int count, int cell, boolean comma) {
+            if (comma) row.append(',');
+            row.append('"').append(name).append("\":[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) row.append(',');
+                digitOffsets[cell++] = row.length();
+                row.append('0');
+            }
+            row.append(']');
+            return cell;
+        }
+
+        @Override
+        public void writeHeader() {
+            switch (format) {
+                case TEXT -> {
+                    StringBuilder header = new StringBuilder();
+                    header.append(lineSeparator).append(flipFlopType).append(" Flip-Flop State Table").append(lineSeparator);
+                    for (String label : columnLabels()) {
+                        header.append(label);
+                        if (label.length() < columnWidth) header.append(" ".repeat(columnWidth - label.length()));
+                    }
+                    putText(header.append(lineSeparator).toString());
+                }
+                case CSV, TSV -> putText(String.join(format == Format.CSV ? "," : "\t", columnLabels()) + lineSeparator);
+                case JSONL -> {
+                    // Self-describing rows, no header line
+                }
+            }
+        }
+
+        @Override
+        public void writeRow(long row, long nextStateBits, long outputBits) {
+            if (format == Format.JSONL) {
+                put(JSON_ROW_PREFIX);
+                putDecimal(row);
+            }
+            int base = put(template);
+
+            long inputBits = StateTableGenerator.inputBits(row, inputs);
+            long stateBits = StateTableGenerator.stateBits(row, inputs, flipFlops);
+            int c = 0;
+            for (int i = 0; i < inputs; i++) setByte(base + digitOffsets[c++], digit(inputBits, i));
+            for (int i = 0; i < flipFlops; i++) setByte(base + digitOffsets[c++], digit(stateBits, i));
+            for (int i = 0; i < flipFlops; i++) setByte(base + digitOffsets[c++], digit(nextStateBits, i));
+            for (int i = 0; i < outputs; i++) setByte(base + digitOffsets[c++], digit(outputBits, i));
+        }
+
+        private static byte digit(long bits, int k) {
+            return (byte) ('0' + ((bits >>> k) & 1L));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package statetable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+// Reads input vectors for a simulation, one per line, in batches. A line lists the inputs
+// as 0/1 digits with X0 first, like the input columns of a state table; spaces, tabs and
+// commas between digits are ignored, and blank lines and lines starting with '#' are skipped.
+// Vectors are parsed straight from a reusable byte buffer into packed words (bit k = X<k>).
+final class StimulusReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final int inputs;
+    private final ByteBuffer buffer;
+    private long line;
+    private boolean eof;
+
+    // Parse state carried across buffer refills
+    private long vector;
+    private int digits;
+    private boolean comment;
+
+    public StimulusReader(ReadableByteChannel channel, int inputs) {
+        if (channel == null) {
+            throw new IllegalArgumentException("Channel cannot be null");
+        }
+        if (inputs < 1 || inputs > Long.SIZE) {
+            throw new IllegalArgumentException("Number of inputs must be between 1 and " + Long.SIZE);
+        }
+        this.channel = channel;
+        this.inputs = inputs;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip();
+    }
+
+    public StimulusReader(InputStream in, int inputs) {
+        this(Channels.newChannel(in), inputs);
+    }
+
+    // Fills batch with up to batch.length vectors; returns how many were read, or -1 at end of input
+    public int read(long[] batch) {
+        int count = 0;
+        while (count < batch.length) {
+            if (!buffer.hasRemaining()) {
+                if (eof || !refill()) {
+                    // A last line without a trailing newline still counts
+                    if (digits > 0 || comment) {
+                        if (endLine(batch, count)) count++;
+                    }
+                    break;
+                }
+            }
+
+            byte b = buffer.get();
+            if (b == '\n') {
+                if (endLine(batch, count)) count++;
+            } else if (comment || b == '\r' || b == ' ' || b == '\t' || b == ',') {
+                // Skipped
+            } else if (b == '#' && digits == 0) {
+                comment = true;
+            } else if (b == '0' || b == '1') {
+                if (digits == inputs) {
+                    throw new IllegalArgumentException("Stimulus line " + (line + 1) + " has more than " + inputs + " inputs");
+                }
+                vector |= (long) (b - '0') << digits;
+                digits++;
+            } else {
+                throw new IllegalArgumentException("Invalid character in stimulus line " + (line + 1) + ": " + (char) b);
+            }
+        }
+        return count == 0 && eof && digits == 0 ? -1 : count;
+    }
+
+    // Number of lines consumed so far
+    public long lines() {
+        return line;
+    }
+
+    // Finishes the current line; returns true when it held a vector
+    private boolean endLine(long[] batch, int count) {
+        line++;
+        boolean vectorLine = !comment && digits > 0;
+        if (vectorLine) {
+            if (digits != inputs) {
+                throw new IllegalArgumentException("Stimulus line " + line + " has " + digits + " inputs, expected " + inputs);
+            }
+            batch[count] = vector;
+        }
+        vector = 0;
+        digits = 0;
+        comment = false;
+        return vectorLine;
+    }
+
+    private boolean refill() {
+        buffer.clear();
+        try {
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip();
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading stimulus", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
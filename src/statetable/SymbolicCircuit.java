@@ -0,0 +1,202 @@
+package statetable;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+
+// BDD form of a generator's next-state and output functions. Variables are ordered
+// X0..X<n-1> first, then each present-state bit Q<k> directly followed by its next-state
+// bit Q'<k>, which keeps the transition relation small. Circuits built on the same
+// manager can be compared for equivalence by node identity.
+final class SymbolicCircuit {
+    private final Bdd bdd;
+    private final int flipFlops;
+    private final int inputs;
+    private final int[] nextState;
+    private final int[] outputs;
+    private int transitionRelation = -1;
+
+    private SymbolicCircuit(Bdd bdd, int flipFlops, int inputs, int[] nextState, int[] outputs) {
+        this.bdd = bdd;
+        this.flipFlops = flipFlops;
+        this.inputs = inputs;
+        this.nextState = nextState;
+        this.outputs = outputs;
+    }
+
+    public static SymbolicCircuit build(StateTableGenerator generator) {
+        return build(manager(generator.inputs(), generator.flipFlops()), generator.circuit());
+    }
+
+    public static SymbolicCircuit build(Bdd bdd, StateTableGenerator generator) {
+        return build(bdd, generator.circuit());
+    }
+
+    public static SymbolicCircuit build(Bdd bdd, Circuit circuit) {
+        int flipFlops = circuit.flipFlops();
+        int inputs = circuit.inputs();
+        if (bdd.variables() != variables(inputs, flipFlops)) {
+            throw new IllegalArgumentException("BDD manager has " + bdd.variables()
+                    + " variables, circuit needs " + variables(inputs, flipFlops));
+        }
+
+        int[] inputNodes = new int[inputs];
+        for (int k = 0; k < inputs; k++) inputNodes[k] = bdd.variable(k);
+        int[] stateNodes = new int[flipFlops];
+        for (int k = 0; k < flipFlops; k++) stateNodes[k] = bdd.variable(inputs + 2 * k);
+
+        int[] nextState = new int[flipFlops];
+        for (int j = 0; j < flipFlops; j++) {
+            CompiledExpression[] functions = circuit.excitations(j);
+            int a = bdd.build(functions[0], inputNodes, stateNodes);
+            int b = functions.length > 1 ? bdd.build(functions[1], inputNodes, stateNodes) : Bdd.FALSE;
+            nextState[j] = circuit.kind(j).nextState(bdd, stateNodes[j], a, b);
+        }
+
+        // Outputs are functions of the inputs and the next state
+        CompiledExpression[] outputFunctions = circuit.outputFunctions();
+        int[] outputs = new int[outputFunctions.length];
+        for (int k = 0; k < outputs.length; k++) {
+            outputs[k] = bdd.build(outputFunctions[k], inputNodes, nextState);
+        }
+        return new SymbolicCircuit(bdd, flipFlops, inputs, nextState, outputs);
+    }
+
+    // A manager with the variable order this class expects; share it between circuits to compare them
+    public static Bdd manager(int inputs, int flipFlops) {
+        return new Bdd(variables(inputs, flipFlops));
+    }
+
+    private static int variables(int inputs, int flipFlops) {
+        return inputs + 2 * flipFlops;
+    }
+
+    public Bdd bdd() {
+        return bdd;
+    }
+
+    public int flipFlops() {
+        return flipFlops;
+    }
+
+    public int inputs() {
+        return inputs;
+    }
+
+    public int outputs() {
+        return outputs.length;
+    }
+
+    public int inputVariable(int k) {
+        return k;
+    }
+
+    public int stateVariable(int k) {
+        return inputs + 2 * k;
+    }
+
+    public int nextStateVariable(int k) {
+        return inputs + 2 * k + 1;
+    }
+
+    // Next-state function of flip-flop j over (X, Q)
+    public int nextStateFunction(int j) {
+        return nextState[j];
+    }
+
+    // Output function k over (X, Q)
+    public int outputFunction(int k) {
+        return outputs[k];
+    }
+
+    // T(X, Q, Q') = AND_j (Q'<j> <-> next_j(X, Q)), built on first use
+    public int transitionRelation() {
+        if (transitionRelation < 0) {
+            int relation = Bdd.TRUE;
+            // Conjoin from the bottom of the order up so each step only extends the top
+            for (int j = flipFlops - 1; j >= 0; j--) {
+                int bit = bdd.equiv(bdd.variable(nextStateVariable(j)), nextState[j]);
+                relation = bdd.and(bit, relation);
+            }
+            transitionRelation = relation;
+        }
+        return transitionRelation;
+    }
+
+    // States reachable in one step from the set of present states S(Q), as a set over Q
+    public int image(int states) {
+        BitSet presentAndInputs = new BitSet();
+        for (int k = 0; k < inputs; k++) presentAndInputs.set(inputVariable(k));
+        for (int k = 0; k < flipFlops; k++) presentAndInputs.set(stateVariable(k));
+
+        int next = bdd.exists(bdd.and(transitionRelation(), states), presentAndInputs);
+        int[] mapping = new int[bdd.variables()];
+        for (int v = 0; v < mapping.length; v++) mapping[v] = v;
+        for (int k = 0; k < flipFlops; k++) mapping[nextStateVariable(k)] = stateVariable(k);
+        return bdd.rename(next, mapping);
+    }
+
+    // Number of table rows (assignments to X and Q) on which f is 1; f must not use Q'
+    public BigInteger rowCount(int f) {
+        return bdd.satCount(f).shiftRight(flipFlops);
+    }
+
+    // Packed next-state and output words for one row, read from the BDDs
+    public long nextState(long inputBits, long stateBits) {
+        int[] assignment = assignment(inputBits, stateBits);
+        long result = 0;
+        for (int j = 0; j < flipFlops; j++) {
+            if (bdd.evaluate(nextState[j], assignment)) result |= 1L << j;
+        }
+        return result;
+    }
+
+    public long outputs(long inputBits, long stateBits) {
+        int[] assignment = assignment(inputBits, stateBits);
+        long result = 0;
+        for (int k = 0; k < outputs.length; k++) {
+            if (bdd.evaluate(outputs[k], assignment)) result |= 1L << k;
+        }
+        return result;
+    }
+
+    public boolean equivalent(SymbolicCircuit other) {
+        return counterexample(other) == -1;
+    }
+
+    // A row on which the two circuits differ in next state or outputs, or -1 if they agree everywhere
+    public long counterexample(SymbolicCircuit other) {
+        checkComparable(other);
+        for (int j = 0; j < flipFlops; j++) {
+            if (nextState[j] != other.nextState[j]) return differingRow(nextState[j], other.nextState[j]);
+        }
+        for (int k = 0; k < outputs.length; k++) {
+            if (outputs[k] != other.outputs[k]) return differingRow(outputs[k], other.outputs[k]);
+        }
+        return -1;
+    }
+
+    private long differingRow(int f, int g) {
+        int[] assignment = bdd.anySat(bdd.xor(f, g));
+        long inputBits = 0;
+        for (int k = 0; k < inputs; k++) inputBits |= (long) assignment[inputVariable(k)] << k;
+        long stateBits = 0;
+        for (int k = 0; k < flipFlops; k++) stateBits |= (long) assignment[stateVariable(k)] << k;
+        return StateTableGenerator.rowIndex(inputBits, stateBits, inputs, flipFlops);
+    }
+
+    private void checkComparable(SymbolicCircuit other) {
+        if (other.bdd != bdd) {
+            throw new IllegalArgumentException("Circuits must share a BDD manager to be compared");
+        }
+        if (other.flipFlops != flipFlops || other.inputs != inputs || other.outputs.length != outputs.length) {
+            throw new IllegalArgumentException("Circuits have different numbers of flip-flops, inputs or outputs");
+        }
+    }
+
+    private int[] assignment(long inputBits, long stateBits) {
+        int[] assignment = new int[bdd.variables()];
+        for (int k = 0; k < inputs; k++) assignment[inputVariable(k)] = (int) (inputBits >>> k) & 1;
+        for (int k = 0; k < flipFlops; k++) assignment[stateVariable(k)] = (int) (stateBits >>> k) & 1;
+        return assignment;
+    }
+}
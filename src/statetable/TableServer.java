@@ -0,0 +1,404 @@
+package statetable;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Long-running table service on the loopback interface, so repeated small requests skip JVM
+// startup and run on warmed-up code. Built on the JDK's own HTTP server:
+//
+//   POST /table[?format=csv]   body: a circuit spec (CircuitSpec properties); the table is the response
+//   GET  /stats                request, cache and queue counters
+//   GET  /health               "ok"
+//
+// Compiled expressions are shared across requests through ExpressionCache. Tables of up to
+// MAX_CACHED_ROWS rows are rendered once into memory and kept in a byte-bounded LRU cache, and
+// identical requests arriving while one is being computed wait for that computation instead of
+// starting their own. Larger tables are streamed straight to the client and never cached.
+//
+// Computations run on a fixed pool with a bounded queue. When the queue is full the request is
+// answered at once with 503 and Retry-After, rather than piling up threads. Handlers only parse
+// the spec and consult the cache: a request that waits for a table holds no thread, because the
+// worker that computes or streams the table also sends every response waiting for it. The
+// handler pool is therefore small and bounded too; if its queue fills, the JDK server drops
+// the connection.
+final class TableServer implements AutoCloseable {
+    static final int DEFAULT_PORT = 8117;
+    static final int DEFAULT_QUEUE_CAPACITY = 64;
+    static final long DEFAULT_CACHE_BYTES = 64L << 20;
+    static final long MAX_CACHED_ROWS = 1L << 16;
+    static final int MAX_SPEC_BYTES = 1 << 20;
+    static final int HANDLER_THREADS = 4;
+
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor handlers;
+    private final ResultCache cache;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder streamed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private TableServer(HttpServer server, int workerThreads, int queueCapacity, long cacheBytes) {
+        this.server = server;
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("table-worker-"));
+        this.handlers = new ThreadPoolExecutor(HANDLER_THREADS, HANDLER_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity + HANDLER_THREADS), daemonThreads("table-handler-"),
+                (exchange, pool) -> {
+                    rejected.increment();
+                    throw new RejectedExecutionException("Handler queue is full");
+                });
+        this.cache = new ResultCache(cacheBytes);
+
+        server.createContext("/table", this::handleTable);
+        server.createContext("/stats", exchange -> respond(exchange, 200, "text/plain; charset=utf-8", stats().getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/health", exchange -> respond(exchange, 200, "text/plain; charset=utf-8", "ok\n".getBytes(StandardCharsets.UTF_8)));
+        server.setExecutor(handlers);
+    }
+
+    // Port 0 picks a free port; see port()
+    public static TableServer start(int port, int workerThreads, int queueCapacity, long cacheBytes) throws IOException {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Port out of range: " + port);
+        }
+        if (workerThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Worker threads and queue capacity must be at least 1");
+        }
+        if (cacheBytes < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        TableServer tableServer = new TableServer(server, workerThreads, queueCapacity, cacheBytes);
+        server.start();
+        return tableServer;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        workers.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    public String stats() {
+        return "requests " + requests.sum() + "\n"
+                + "cacheHits " + cacheHits.sum() + "\n"
+                + "coalesced " + coalesced.sum() + "\n"
+                + "computed " + computed.sum() + "\n"
+                + "streamed " + streamed.sum() + "\n"
+                + "rejected " + rejected.sum() + "\n"
+                + "failed " + failed.sum() + "\n"
+                + "queued " + workers.getQueue().size() + "\n"
+                + "cachedTables " + cache.size() + "\n"
+                + "cachedBytes " + cache.bytes() + "\n";
+    }
+
+    private void handleTable(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respondText(exchange, 405, "Use POST with a circuit spec as the body");
+                return;
+            }
+
+            CircuitSpec spec = CircuitSpec.parse("request", readBody(exchange.getRequestBody()));
+            String requested = queryParameter(exchange, "format");
+            String format = CircuitSpec.checkFormat(requested != null ? requested : spec.format() != null ? spec.format() : "text");
+            if ((spec.initialState() >= 0 || spec.minimize()) && format.equals("binary")) {
+                throw new IllegalArgumentException("The binary format holds the full table and cannot be used with initialState or minimize");
+            }
+            StateTableGenerator generator = spec.toGenerator();
+
+            if (Long.compareUnsigned(generator.rowCount(), MAX_CACHED_ROWS) > 0) {
+                stream(exchange, spec, generator, format);
+            } else {
+                serveCached(exchange, key(spec, generator, format), spec, generator, format);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(exchange, e);
+        }
+    }
+
+    private void fail(HttpExchange exchange, Throwable error) throws IOException {
+        if (error instanceof IllegalArgumentException) {
+            respondText(exchange, 400, "Invalid circuit spec: " + error.getMessage());
+        } else if (error instanceof RejectedExecutionException) {
+            rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respondText(exchange, 503, "Server busy, retry later");
+        } else if (error instanceof IOException) {
+            failed.increment();
+            exchange.close();
+        } else {
+            failed.increment();
+            respondText(exchange, 500, "Error generating table: " + error.getMessage());
+        }
+    }
+
+    // Answers a request once the table it waited for is done, on the thread that finished it
+    private void finish(HttpExchange exchange, String format, String cacheState, byte[] table, Throwable error) {
+        try {
+            if (error != null) {
+                fail(exchange, error);
+                return;
+            }
+            exchange.getResponseHeaders().set("X-Cache", cacheState);
+            respond(exchange, 200, contentType(format), table);
+        } catch (IOException e) {
+            failed.increment();
+            exchange.close();
+        }
+    }
+
+    private void serveCached(HttpExchange exchange, String key, CircuitSpec spec, StateTableGenerator generator, String format) throws IOException {
+        byte[] table = cache.get(key);
+        if (table != null) {
+            cacheHits.increment();
+            exchange.getResponseHeaders().set("X-Cache", "hit");
+            respond(exchange, 200, contentType(format), table);
+            return;
+        }
+
+        CompletableFuture<byte[]> computation = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, computation);
+        if (running != null) {
+            coalesced.increment();
+            running.whenComplete((rendered, error) -> finish(exchange, format, "coalesced", rendered, error));
+            return;
+        }
+
+        try {
+            // A computation may have finished between the cache miss and claiming the key
+            table = cache.get(key);
+            if (table != null) {
+                inFlight.remove(key, computation);
+                computation.complete(table);
+            } else {
+                workers.execute(() -> {
+                    try {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        prepare(spec, generator, format).writeTo(out);
+                        byte[] rendered = out.toByteArray();
+                        computed.increment();
+                        cache.put(key, rendered);
+                        computation.complete(rendered);
+                    } catch (Throwable e) {
+                        computation.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(key, computation);
+                    }
+                });
+            }
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, computation);
+            computation.completeExceptionally(e);
+            throw e;
+        }
+
+        computation.whenComplete((rendered, error) -> finish(exchange, format, "miss", rendered, error));
+    }
+
+    // Large tables are written to the client as they are generated, by the worker thread
+    private void stream(HttpExchange exchange, CircuitSpec spec, StateTableGenerator generator, String format) {
+        workers.execute(() -> {
+            boolean sent = false;
+            try {
+                TableSource source = prepare(spec, generator, format);
+                exchange.getResponseHeaders().set("Content-Type", contentType(format));
+                exchange.getResponseHeaders().set("X-Cache", "none");
+                sent = true;
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    source.writeTo(body);
+                }
+                streamed.increment();
+            } catch (Throwable e) {
+                if (sent) {
+                    // Headers are already sent, so a failure can only cut the response short
+                    failed.increment();
+                    exchange.close();
+                } else {
+                    finish(exchange, format, "none", null, e);
+                }
+            }
+        });
+    }
+
+    private interface TableSource {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    // The same tables BatchRunner writes to files: minimized, reachable-only, binary or full.
+    // Minimization runs here, so its errors surface before a streamed response has started.
+    private static TableSource prepare(CircuitSpec spec, StateTableGenerator generator, String format) {
+        if (format.equals("binary")) {
+            return out -> {
+                Path file = Files.createTempFile("statetable", ".stbl");
+                try {
+                    StateTableFile.write(generator, file);
+                    Files.copy(file, out);
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            };
+        }
+
+        StateTableWriter.Format writerFormat = StateTableWriter.Format.fromName(format);
+        if (spec.minimize()) {
+            StateMinimizer.Result minimized = spec.initialState() >= 0
+                    ? StateMinimizer.minimize(generator, spec.initialState())
+                    : StateMinimizer.minimize(generator);
+            return out -> write(writerFormat, generator, out, minimized::writeTable);
+        }
+        if (spec.initialState() >= 0) {
+            return out -> write(writerFormat, generator, out,
+                    writer -> new ReachableStateExplorer(generator).explore(spec.initialState(), writer));
+        }
+        return out -> write(writerFormat, generator, out, generator::writeStateTable);
+    }
+
+    private static void write(StateTableWriter.Format format, StateTableGenerator generator, OutputStream out,
+                              Consumer<StateTableWriter> table) throws IOException {
+        StateTableWriter writer = StateTableWriter.forStream(format, generator, out);
+        table.accept(writer);
+        writer.close();
+    }
+
+    // Cache key from the parsed spec, so layout, comments and spelling of the properties file
+    // do not matter; the spec's name is not part of the table and is left out
+    static String key(CircuitSpec spec, StateTableGenerator generator, String format) {
+        StringBuilder key = new StringBuilder(format).append('|').append(generator.flipFlopType())
+                .append('|').append(spec.flipFlops()).append('|').append(spec.inputs())
+                .append('|').append(spec.initialState()).append('|').append(spec.minimize());
+        for (String function : spec.flipFlopFunctions()) {
+            key.append('|');
+            for (String part : function.split("\n")) key.append(ExpressionCache.normalize(part)).append(';');
+        }
+        key.append('|');
+        for (String function : spec.outputFunctions()) key.append(ExpressionCache.normalize(function)).append(';');
+        return key.toString();
+    }
+
+    private static String readBody(InputStream body) throws IOException {
+        byte[] bytes = body.readNBytes(MAX_SPEC_BYTES + 1);
+        if (bytes.length > MAX_SPEC_BYTES) {
+            throw new IllegalArgumentException("Spec exceeds " + MAX_SPEC_BYTES + " bytes");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+                return URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static String contentType(String format) {
+        return switch (format) {
+            case "binary" -> "application/octet-stream";
+            case "csv" -> "text/csv; charset=utf-8";
+            case "tsv" -> "text/tab-separated-values; charset=utf-8";
+            case "jsonl" -> "application/x-ndjson";
+            default -> "text/plain; charset=utf-8";
+        };
+    }
+
+    private static void respondText(HttpExchange exchange, int status, String message) throws IOException {
+        respond(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Rendered tables, least recently used evicted first once their total size exceeds the budget
+    private static final class ResultCache {
+        private final long capacityBytes;
+        private final LinkedHashMap<String, byte[]> tables = new LinkedHashMap<>(16, 0.75f, true);
+        private long bytes;
+
+        ResultCache(long capacityBytes) {
+            this.capacityBytes = capacityBytes;
+        }
+
+        synchronized byte[] get(String key) {
+            return tables.get(key);
+        }
+
+        synchronized void put(String key, byte[] table) {
+            if (table.length > capacityBytes) {
+                return;
+            }
+            byte[] previous = tables.put(key, table);
+            bytes += table.length - (previous == null ? 0 : previous.length);
+            Iterator<Map.Entry<String, byte[]>> eldest = tables.entrySet().iterator();
+            while (bytes > capacityBytes && eldest.hasNext()) {
+                bytes -= eldest.next().getValue().length;
+                eldest.remove();
+            }
+        }
+
+        synchronized int size() {
+            return tables.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchRunnerTest {
+    private static final String COUNTER = "type = T,JK\nflipFlops = 2\ninputs = 1\noutputs = 1\nff0 = X0\nff1 = X0*Q0 ; X0*Q0\nout0 = Q1\n";
+    private static final String SHIFTER = "type = D\nflipFlops = 3\ninputs = 2\noutputs = 1\nff0 = X0\nff1 = Q0\nff2 = Q1*-X1\nout0 = Q2\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void mixedFormatsBadSpecsAndDuplicateNames() throws IOException {
+        Path specs = Files.createDirectories(directory.resolve("specs"));
+        Path other = Files.createDirectories(directory.resolve("other"));
+        Files.writeString(specs.resolve("counter.spec"), COUNTER);
+        Files.writeString(specs.resolve("shifter.spec"), SHIFTER + "format = csv\n");
+        Files.writeString(specs.resolve("packed.spec"), SHIFTER + "format = binary\n");
+        Files.writeString(specs.resolve("broken.spec"), "type = Q\nflipFlops = 1\ninputs = 1\noutputs = 0\nff0 = X0\n");
+        // Same name as the first spec: generating it would overwrite that table
+        Files.writeString(other.resolve("counter.spec"), SHIFTER);
+        Path manifest = directory.resolve("batch.txt");
+        Files.writeString(manifest, String.join("\n", "# mixed batch", "specs/counter.spec", "specs/shifter.spec",
+                "specs/broken.spec", "specs/packed.spec", "other/counter.spec") + "\n");
+
+        Path output = directory.resolve("out");
+        List<BatchRunner.Result> results = new BatchRunner(output, 2, "text").run(manifest);
+        assertEquals(5, results.size());
+        assertEquals(specs.resolve("counter.spec"), results.get(0).spec.normalize());
+        assertEquals(other.resolve("counter.spec"), results.get(4).spec.normalize());
+
+        assertNull(results.get(0).error);
+        assertNull(results.get(1).error);
+        assertNull(results.get(3).error);
+        assertTrue(results.get(2).error.contains("Invalid flip-flop type"), results.get(2).error);
+        assertEquals("Duplicate circuit name: counter", results.get(4).error);
+        assertNull(results.get(4).output);
+
+        // The earlier spec of the name owns its table, which the duplicate never touched
+        assertArrayEquals(expected(COUNTER, "text"), Files.readAllBytes(output.resolve("counter.txt")));
+        assertEquals(Files.size(output.resolve("counter.txt")), results.get(0).bytes);
+        assertEquals(8, results.get(0).rows);
+        assertArrayEquals(expected(SHIFTER, "csv"), Files.readAllBytes(output.resolve("shifter.csv")));
+        assertEquals(32, results.get(1).rows);
+        try (StateTableFile table = StateTableFile.open(output.resolve("packed.stbl"))) {
+            assertTrue(table.verify());
+            StateTableGenerator generator = CircuitSpec.parse("packed", SHIFTER).toGenerator();
+            for (long row = 0; row < table.rows(); row++) {
+                long inputBits = StateTableGenerator.inputBits(row, 2);
+                long stateBits = StateTableGenerator.stateBits(row, 2, 3);
+                assertEquals(generator.nextState(inputBits, stateBits), table.nextStateAt(row));
+            }
+        }
+        assertFalse(Files.exists(output.resolve("broken.txt")));
+        try (Stream<Path> files = Files.list(output)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    void theLaterDuplicateInListOrderFails() throws IOException {
+        // The pair follows many other specs and is listed against path order; list order alone
+        // decides which of the two fails
+        StringBuilder manifest = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            Files.writeString(directory.resolve("filler" + i + ".spec"), SHIFTER);
+            manifest.append("filler").append(i).append(".spec\n");
+        }
+        Path first = Files.createDirectories(directory.resolve("first"));
+        Path second = Files.createDirectories(directory.resolve("second"));
+        Files.writeString(first.resolve("twin.spec"), COUNTER);
+        Files.writeString(second.resolve("twin.spec"), SHIFTER);
+        manifest.append("second/twin.spec\nfirst/twin.spec\n");
+        Path list = directory.resolve("batch.txt");
+        Files.writeString(list, manifest);
+
+        List<BatchRunner.Result> results = new BatchRunner(directory.resolve("out"), 1, "text").run(list);
+        assertNull(results.get(20).error);
+        assertEquals("Duplicate circuit name: twin", results.get(21).error);
+        assertArrayEquals(expected(SHIFTER, "text"), Files.readAllBytes(directory.resolve("out").resolve("twin.txt")));
+    }
+
+    private static byte[] expected(String spec, String format) throws IOException {
+        StateTableGenerator generator = CircuitSpec.parse("expected", spec).toGenerator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.fromName(format), generator, out);
+        generator.writeStateTable(writer);
+        writer.close();
+        return out.toByteArray();
+    }
+}
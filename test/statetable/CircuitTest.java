@@ -0,0 +1,73 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class CircuitTest {
+    // A 2-bit counter that counts while X0 is set; the output is the next Q1
+    private static final String COUNTER_CSV = String.join("\n",
+            "X0,Q0 (P.S.),Q1 (P.S.),Q0 (N.S.),Q1 (N.S.),Output",
+            "0,0,0,0,0,0",
+            "1,0,0,1,0,0",
+            "0,0,1,0,1,1",
+            "1,0,1,1,1,1",
+            "0,1,0,1,0,0",
+            "1,1,0,0,1,1",
+            "0,1,1,1,1,1",
+            "1,1,1,0,0,0") + "\n";
+
+    @Test
+    void eachFlipFlopTogglesFromItsOwnPresentState() {
+        // Flip-flop 1 toggles only when Q0 is set, so reading Q0 for it breaks the count
+        assertEquals(COUNTER_CSV, csv("T", "X0", "X0*Q0"));
+        assertEquals(COUNTER_CSV, csv("JK", "X0\nX0", "X0*Q0\nX0*Q0"));
+        assertEquals(COUNTER_CSV, csv("T,JK", "X0", "X0*Q0\nX0*Q0"));
+        assertEquals(COUNTER_CSV, csv("JK,T", "X0\nX0", "X0*Q0"));
+
+        Circuit circuit = Circuit.compile(1, FlipFlopKind.parse("T,JK", 2), new String[]{"X0", "X0*Q0\nX0*Q0"}, new String[]{"Q1"});
+        long[] counted = {1, 2, 3, 0};
+        for (long state = 0; state < 4; state++) {
+            assertEquals(state, circuit.nextState(0, state));
+            assertEquals(counted[(int) state], circuit.nextState(1, state));
+        }
+
+        // The packed single flip-flop form reads the present state of the flip-flop it is given
+        CompiledExpression[] toggle = BooleanEvaluator.compileAll(new String[]{"X0*Q0", "X0*Q0"});
+        assertEquals(0, FlipFlopLogic.getNextState("JK", 1, 1, 0b11, toggle));
+        assertEquals(1, FlipFlopLogic.getNextState("JK", 1, 1, 0b01, toggle));
+        assertEquals(0, FlipFlopLogic.getNextState("JK", 1, 0, 0b01, toggle));
+        assertThrows(IllegalArgumentException.class, () -> FlipFlopLogic.getNextState("JK", 64, 1, 0, toggle));
+    }
+
+    @Test
+    void mixedKindsParseAndDescribe() {
+        FlipFlopKind[] kinds = FlipFlopKind.parse("JK,D,D", 3);
+        assertArrayEquals(new FlipFlopKind[]{FlipFlopKind.of("JK"), FlipFlopKind.of("D"), FlipFlopKind.of("D")}, kinds);
+        assertEquals(2, kinds[0].excitations());
+        assertEquals(1, kinds[1].excitations());
+        assertEquals("JK,D,D", FlipFlopKind.describe(kinds));
+
+        assertArrayEquals(FlipFlopKind.parse("D,D,D", 3), FlipFlopKind.parse("D", 3));
+        assertEquals("D", FlipFlopKind.describe(FlipFlopKind.parse("D,D,D", 3)));
+        assertEquals("T,SR", FlipFlopKind.describe(FlipFlopKind.parse("T,SR", 2)));
+
+        assertThrows(IllegalArgumentException.class, () -> FlipFlopKind.parse("JK,D", 3));
+        assertThrows(IllegalArgumentException.class, () -> FlipFlopKind.parse("JK,Q,D", 3));
+        assertThrows(IllegalArgumentException.class, () -> FlipFlopKind.parse("JK,,D", 3));
+        assertThrows(IllegalArgumentException.class, () -> FlipFlopKind.parse(null, 1));
+    }
+
+    private static String csv(String type, String... functions) {
+        StateTableGenerator generator = new StateTableGenerator(2, 1, 1, type, functions, new String[]{"Q1"});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, out);
+        generator.writeStateTable(writer);
+        writer.flush();
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,113 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ColumnEvaluatorTest {
+    @Test
+    void wholeTablesMatchCircuit() {
+        // At most ExpressionCache.MAX_TABLE_VARIABLES variables: next-state columns come from truth tables
+        Random random = new Random(16);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 6, 7);
+            Circuit circuit = generator.circuit();
+            BitSlicedStateTable table = generator.generateBitSliced();
+            for (long row = 0; row < generator.rowCount(); row++) {
+                long inputBits = StateTableGenerator.inputBits(row, circuit.inputs());
+                long next = circuit.nextState(inputBits, StateTableGenerator.stateBits(row, circuit.inputs(), circuit.flipFlops()));
+                long outputs = circuit.outputs(inputBits, next);
+                for (int j = 0; j < circuit.flipFlops(); j++) assertEquals((next >>> j) & 1L, table.nextState(j, row));
+                for (int k = 0; k < circuit.outputs(); k++) assertEquals((outputs >>> k) & 1L, table.output(k, row));
+            }
+        }
+    }
+
+    @Test
+    void alignedRangesMatchCircuit() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 8, 8);
+            checkRanges(random, generator.circuit(), 20);
+        }
+    }
+
+    @Test
+    void wideCircuitsEvaluateWithoutTables() {
+        // Above MAX_TABLE_VARIABLES every column is pruned or fused; narrow ranges make most columns dense
+        Random random = new Random(18);
+        for (int trial = 0; trial < 20; trial++) {
+            int flipFlops = 8 + random.nextInt(8);
+            int inputs = ExpressionCache.MAX_TABLE_VARIABLES + 1 - flipFlops + random.nextInt(8);
+            StateTableGenerator generator = RandomCircuits.generator(random, flipFlops, inputs, random.nextInt(4));
+            checkRanges(random, generator.circuit(), 20);
+        }
+    }
+
+    @Test
+    void chunkColumnsMatchChunkRows() {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 30; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 12, 14);
+            long rows = generator.rowCount();
+            StateTableChunk chunk = new StateTableChunk(1 << 10);
+            for (int fill = 0; fill < 10; fill++) {
+                // Aligned powers of two of at least 64 rows fill column-wise, anything else row by row
+                int size = (int) Math.min(rows, random.nextBoolean() ? 1 << (6 + random.nextInt(5)) : 1 + random.nextInt(1 << 10));
+                long firstRow = Integer.bitCount(size) == 1 ? (random.nextLong() & (rows - 1)) & -size : random.nextLong() & (rows - 1);
+                size = (int) Math.min(size, rows - firstRow);
+                chunk.fill(generator, firstRow, size);
+                assertEquals(size, chunk.size());
+                for (int i = 0; i < size; i++) {
+                    long row = chunk.row(i);
+                    long inputBits = StateTableGenerator.inputBits(row, generator.inputs());
+                    long next = generator.nextState(inputBits, StateTableGenerator.stateBits(row, generator.inputs(), generator.flipFlops()));
+                    assertEquals(next, chunk.nextStateBits(i), "row " + row);
+                    assertEquals(generator.outputs(inputBits, next), chunk.outputBits(i), "row " + row);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnalignedRanges() {
+        ColumnEvaluator evaluator = new ColumnEvaluator(new StateTableGenerator(1, 8, 0, "D", new String[]{"X0"}, new String[0]).circuit());
+        long[][] columns = new long[1][4];
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(2, 4, columns, new long[0][]));
+        assertThrows(IllegalArgumentException.class, () -> evaluator.evaluate(0, 3, columns, new long[0][]));
+    }
+
+    // Evaluates aligned ranges of random sizes with one evaluator and checks every row they cover
+    private static void checkRanges(Random random, Circuit circuit, int ranges) {
+        int inputs = circuit.inputs();
+        int flipFlops = circuit.flipFlops();
+        int variables = inputs + flipFlops;
+        long totalWords = variables <= 6 ? 1 : 1L << (variables - 6);
+        ColumnEvaluator evaluator = new ColumnEvaluator(circuit);
+        for (int range = 0; range < ranges; range++) {
+            int words = (int) Math.min(totalWords, 1 << random.nextInt(8));
+            long firstWord = (random.nextLong() & (totalWords - 1)) & -words;
+            long[][] nextStateColumns = new long[flipFlops][words];
+            long[][] outputColumns = new long[circuit.outputs()][words];
+            evaluator.evaluate(firstWord, words, nextStateColumns, outputColumns);
+
+            int bits = (int) Math.min(Long.SIZE, 1L << variables);
+            for (int w = 0; w < words; w++) {
+                for (int bit = 0; bit < bits; bit++) {
+                    long row = ((firstWord + w) << 6) | bit;
+                    long inputBits = StateTableGenerator.inputBits(row, inputs);
+                    long next = circuit.nextState(inputBits, StateTableGenerator.stateBits(row, inputs, flipFlops));
+                    long outputs = circuit.outputs(inputBits, next);
+                    for (int j = 0; j < flipFlops; j++) {
+                        assertEquals((next >>> j) & 1L, (nextStateColumns[j][w] >>> bit) & 1L, "Q" + j + " row " + row);
+                    }
+                    for (int k = 0; k < outputColumns.length; k++) {
+                        assertEquals((outputs >>> k) & 1L, (outputColumns[k][w] >>> bit) & 1L, "output " + k + " row " + row);
+                    }
+                }
+            }
+        }
+    }
+}
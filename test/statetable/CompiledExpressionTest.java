@@ -0,0 +1,117 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+    private static final String[] TOKENS = {"X0", "X3", "X9", "Q0", "Q4", "Q9", "0", "1", "+", "*", "-", "(", ")", "_", " "};
+
+    @Test
+    void lenientCasesMatchLegacyEvaluator() {
+        int[] inputs = {1, 0, 1};
+        int[] states = {0, 1};
+        String[] cases = {"   ", " \t ", "+X0", "*Q0", "X0+", "Q1*", "+", "-", "_", "__", "(X0)", "((X1))",
+                "X0 + Q1", "X_0", "--X1", "X0*-Q0+X1", "X0 Q1", "()", "(X0", "X0)", "2", "X", "Q*X0"};
+        for (String expression : cases) {
+            assertSameResult(expression, inputs, states);
+        }
+    }
+
+    @Test
+    void blankExpressionIsZero() {
+        assertEquals(0, BooleanEvaluator.evaluate("   ", new int[]{1}, new int[]{1}));
+    }
+
+    @Test
+    void underscoreOnlyExpressionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> BooleanEvaluator.evaluate("_", new int[]{1}, new int[]{1}));
+    }
+
+    @Test
+    void singleOperandOperatorsPassTheOperandThrough() {
+        for (int x = 0; x <= 1; x++) {
+            assertEquals(x, BooleanEvaluator.evaluate("+X0", new int[]{x}, new int[]{0}));
+            assertEquals(x, BooleanEvaluator.evaluate("*Q0", new int[]{0}, new int[]{x}));
+        }
+    }
+
+    @Test
+    void randomTokenStringsMatchLegacyEvaluator() {
+        Random random = new Random(1);
+        int[] inputs = new int[10];
+        int[] states = new int[10];
+        for (int trial = 0; trial < 20_000; trial++) {
+            StringBuilder expression = new StringBuilder();
+            int length = 1 + random.nextInt(9);
+            for (int t = 0; t < length; t++) {
+                String token = TOKENS[random.nextInt(TOKENS.length)];
+                expression.append(token);
+                // The legacy evaluator rewrites variables textually, so X1 followed by 0 or _ reads as
+                // something else there; keep a variable's index delimited
+                if (token.charAt(0) == 'X' || token.charAt(0) == 'Q') expression.append(' ');
+            }
+            for (int k = 0; k < 10; k++) {
+                inputs[k] = random.nextInt(2);
+                states[k] = random.nextInt(2);
+            }
+            assertSameResult(expression.toString(), inputs, states);
+        }
+    }
+
+    @Test
+    void randomExpressionsMatchLegacyEvaluator() {
+        Random random = new Random(2);
+        int[] inputs = new int[10];
+        int[] states = new int[10];
+        for (int trial = 0; trial < 5_000; trial++) {
+            String expression = RandomCircuits.expression(random, 10, 10, 5);
+            for (int k = 0; k < 10; k++) {
+                inputs[k] = random.nextInt(2);
+                states[k] = random.nextInt(2);
+            }
+            assertSameResult(expression, inputs, states);
+        }
+    }
+
+    @Test
+    void packedAndBitSlicedEvaluationAgree() {
+        Random random = new Random(3);
+        long[] inputWords = new long[6];
+        long[] stateWords = new long[6];
+        for (int trial = 0; trial < 2_000; trial++) {
+            CompiledExpression expression = CompiledExpression.compile(RandomCircuits.expression(random, 6, 6, 5));
+            for (int k = 0; k < 6; k++) {
+                inputWords[k] = random.nextLong();
+                stateWords[k] = random.nextLong();
+            }
+            long word = expression.evaluate(inputWords, stateWords, new long[expression.maxDepth()]);
+            for (int lane = 0; lane < Long.SIZE; lane++) {
+                long inputBits = 0;
+                long stateBits = 0;
+                for (int k = 0; k < 6; k++) {
+                    inputBits |= ((inputWords[k] >>> lane) & 1L) << k;
+                    stateBits |= ((stateWords[k] >>> lane) & 1L) << k;
+                }
+                assertEquals((word >>> lane) & 1L, expression.evaluate(inputBits, stateBits), expression.source());
+            }
+        }
+    }
+
+    private static void assertSameResult(String expression, int[] inputs, int[] states) {
+        Integer expected;
+        try {
+            expected = LegacyBooleanEvaluator.evaluate(expression, inputs, states);
+        } catch (IllegalArgumentException e) {
+            expected = null;
+        }
+        if (expected == null) {
+            assertThrows(IllegalArgumentException.class, () -> BooleanEvaluator.evaluate(expression, inputs, states),
+                    "expected rejection of \"" + expression + "\"");
+        } else {
+            assertEquals(expected, BooleanEvaluator.evaluate(expression, inputs, states), "\"" + expression + "\"");
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class EquivalenceCheckerTest {
+    @Test
+    void checkAllFindsTheLowestDifferingRow() {
+        Random random = new Random(19);
+        for (int trial = 0; trial < 150; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 5);
+            Circuit circuit = generator.circuit();
+            Circuit rewritten = asD(circuit);
+            Circuit mutated = mutate(random, circuit);
+            long lowest = lowestDifference(circuit, mutated);
+            for (int parallelism : new int[]{1, 3}) {
+                assertTrue(new EquivalenceChecker(circuit, rewritten, parallelism).checkAll().equivalent());
+
+                EquivalenceChecker.Result result = new EquivalenceChecker(circuit, mutated, parallelism).checkAll();
+                assertEquals(lowest == -1, result.equivalent());
+                if (lowest != -1) {
+                    assertEquals(StateTableGenerator.inputBits(lowest, circuit.inputs()), result.counterexample().inputBits);
+                    assertEquals(StateTableGenerator.stateBits(lowest, circuit.inputs(), circuit.flipFlops()), result.counterexample().firstState);
+                }
+            }
+        }
+    }
+
+    @Test
+    void checkReachableMatchesNaiveProductSearch() {
+        Random random = new Random(20);
+        int differing = 0;
+        for (int trial = 0; trial < 150; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 5);
+            Circuit circuit = generator.circuit();
+            Circuit mutated = mutate(random, circuit);
+            long initial = random.nextLong() & ((1L << circuit.flipFlops()) - 1);
+            long[] pairs = new long[1];
+            int depth = naiveDepth(circuit, mutated, initial, initial, pairs);
+
+            for (int parallelism : new int[]{1, 3}) {
+                EquivalenceChecker.Result result = new EquivalenceChecker(circuit, mutated, parallelism).checkReachable(initial, initial);
+                if (depth == -1) {
+                    assertTrue(result.equivalent(), result.toString());
+                    assertEquals(pairs[0], result.statePairs());
+                } else {
+                    EquivalenceChecker.Counterexample counterexample = result.counterexample();
+                    assertEquals(depth, counterexample.depth);
+                    assertTrue(differs(circuit, mutated, counterexample.inputBits, counterexample.firstState, counterexample.secondState));
+                }
+            }
+            if (depth != -1) differing++;
+
+            if (circuit.outputs() > 0) {
+                // An unused extra flip-flop changes the encoding, not the behavior
+                assertTrue(new EquivalenceChecker(circuit, withExtraFlipFlop(circuit), 2).checkReachable(initial, initial).equivalent());
+            }
+        }
+        assertTrue(differing > 20, "differing " + differing);
+    }
+
+    @Test
+    void circuitsWithoutOutputsAreComparedStateForState() {
+        Circuit follow = new StateTableGenerator(1, 1, 0, "D", new String[]{"X0"}, new String[0]).circuit();
+        Circuit invert = new StateTableGenerator(1, 1, 0, "D", new String[]{"-X0"}, new String[0]).circuit();
+        EquivalenceChecker.Result result = new EquivalenceChecker(follow, invert, 1).checkReachable(0, 0);
+        assertFalse(result.equivalent());
+        assertEquals(0, result.counterexample().depth);
+        assertNotEquals(result.counterexample().firstNextState, result.counterexample().secondNextState);
+        assertTrue(new EquivalenceChecker(follow, follow, 1).checkReachable(0, 0).equivalent());
+
+        Circuit wider = new StateTableGenerator(2, 1, 0, "D", new String[]{"X0", "Q0"}, new String[0]).circuit();
+        assertThrows(IllegalArgumentException.class, () -> new EquivalenceChecker(follow, wider, 1).checkReachable(0, 0));
+    }
+
+    @Test
+    void duplicateSuccessorsAreListedOnce() {
+        // 2^16 inputs per state but only two distinct successors per pair
+        String[] functions = {"X0*X1*X2*X3*X4*X5*X6*X7*X8*X9*X10*X11*X12*X13*X14*X15+Q1", "Q0"};
+        Circuit a = new StateTableGenerator(2, 16, 1, "D", functions, new String[]{"Q1"}).circuit();
+        Circuit b = new StateTableGenerator(2, 16, 1, "D", functions.clone(), new String[]{"Q1"}).circuit();
+        for (int parallelism : new int[]{1, 3}) {
+            EquivalenceChecker.Result result = new EquivalenceChecker(a, b, parallelism).checkReachable(0, 0);
+            assertTrue(result.equivalent());
+            assertEquals(4, result.statePairs());
+        }
+    }
+
+    // The same circuit with every flip-flop rewritten as a D flip-flop of its characteristic equation
+    private static Circuit asD(Circuit circuit) {
+        int flipFlops = circuit.flipFlops();
+        String[] sources = circuit.flipFlopFunctions();
+        FlipFlopKind[] kinds = new FlipFlopKind[flipFlops];
+        Arrays.fill(kinds, FlipFlopKind.D);
+        String[] functions = new String[flipFlops];
+        for (int j = 0; j < flipFlops; j++) {
+            String[] p = sources[j].split("\n");
+            String q = "Q" + j;
+            functions[j] = switch (circuit.kind(j)) {
+                case D -> p[0];
+                case T -> "((" + p[0] + ")*-" + q + "+-(" + p[0] + ")*" + q + ")";
+                case JK -> "((" + p[0] + ")*-" + q + "+-(" + p[1] + ")*" + q + ")";
+                case SR -> "((" + p[0] + ")*-(" + p[1] + ")+" + q + "*((" + p[0] + ")+-(" + p[1] + ")))";
+            };
+        }
+        return Circuit.compile(circuit.inputs(), kinds, functions, circuit.outputFunctionSources());
+    }
+
+    // The same circuit with one flip-flop or output function replaced
+    private static Circuit mutate(Random random, Circuit circuit) {
+        int inputs = circuit.inputs();
+        int flipFlops = circuit.flipFlops();
+        FlipFlopKind[] kinds = new FlipFlopKind[flipFlops];
+        for (int j = 0; j < flipFlops; j++) kinds[j] = circuit.kind(j);
+        String[] functions = circuit.flipFlopFunctions();
+        String[] outputs = circuit.outputFunctionSources();
+        if (outputs.length > 0 && random.nextBoolean()) {
+            outputs[random.nextInt(outputs.length)] = RandomCircuits.expression(random, inputs, flipFlops, 3);
+        } else {
+            int j = random.nextInt(flipFlops);
+            functions[j] = RandomCircuits.expression(random, inputs, flipFlops, 3);
+            if (kinds[j].excitations() == 2) functions[j] += "\n" + RandomCircuits.expression(random, inputs, flipFlops, 3);
+        }
+        return Circuit.compile(inputs, kinds, functions, outputs);
+    }
+
+    private static Circuit withExtraFlipFlop(Circuit circuit) {
+        int flipFlops = circuit.flipFlops();
+        FlipFlopKind[] kinds = new FlipFlopKind[flipFlops + 1];
+        for (int j = 0; j < flipFlops; j++) kinds[j] = circuit.kind(j);
+        kinds[flipFlops] = FlipFlopKind.T;
+        String[] functions = Arrays.copyOf(circuit.flipFlopFunctions(), flipFlops + 1);
+        functions[flipFlops] = "X0";
+        return Circuit.compile(circuit.inputs(), kinds, functions, circuit.outputFunctionSources());
+    }
+
+    private static long lowestDifference(Circuit a, Circuit b) {
+        int inputs = a.inputs();
+        int flipFlops = a.flipFlops();
+        for (long row = 0; row < 1L << (inputs + flipFlops); row++) {
+            long inputBits = StateTableGenerator.inputBits(row, inputs);
+            long stateBits = StateTableGenerator.stateBits(row, inputs, flipFlops);
+            long nextA = a.nextState(inputBits, stateBits);
+            long nextB = b.nextState(inputBits, stateBits);
+            if (nextA != nextB || a.outputs(inputBits, nextA) != b.outputs(inputBits, nextB)) return row;
+        }
+        return -1;
+    }
+
+    // Observable difference for checkReachable: outputs, or next states when there are no outputs
+    private static boolean differs(Circuit a, Circuit b, long inputBits, long stateA, long stateB) {
+        long nextA = a.nextState(inputBits, stateA);
+        long nextB = b.nextState(inputBits, stateB);
+        return a.outputs() == 0 ? nextA != nextB : a.outputs(inputBits, nextA) != b.outputs(inputBits, nextB);
+    }
+
+    // Depth of the first differing pair in breadth-first order, or -1; pairs[0] receives the pairs seen
+    private static int naiveDepth(Circuit a, Circuit b, long initialA, long initialB, long[] pairs) {
+        Set<List<Long>> seen = new HashSet<>();
+        ArrayDeque<long[]> queue = new ArrayDeque<>();
+        seen.add(List.of(initialA, initialB));
+        queue.add(new long[]{initialA, initialB, 0});
+        while (!queue.isEmpty()) {
+            long[] pair = queue.remove();
+            for (long inputBits = 0; inputBits < 1L << a.inputs(); inputBits++) {
+                if (differs(a, b, inputBits, pair[0], pair[1])) {
+                    pairs[0] = seen.size();
+                    return (int) pair[2];
+                }
+                long nextA = a.nextState(inputBits, pair[0]);
+                long nextB = b.nextState(inputBits, pair[1]);
+                if (seen.add(List.of(nextA, nextB))) queue.add(new long[]{nextA, nextB, pair[2] + 1});
+            }
+        }
+        pairs[0] = seen.size();
+        return -1;
+    }
+}
@@ -0,0 +1,86 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.LongBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ExpressionCacheTest {
+    @Test
+    void equivalentSpellingsShareOneEntry() {
+        ExpressionCache cache = new ExpressionCache(16, 4);
+        CompiledExpression first = cache.compile("X0 * Q1");
+        assertSame(first, cache.compile("X0*Q1"));
+        assertSame(first, cache.compile("X00_ * Q01"));
+        assertNotSame(first, cache.compile("X0 * Q10"));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void normalizedFormKeepsTokenBoundaries() {
+        assertEquals("X1 0", ExpressionCache.normalize("X1 0"));
+        assertEquals("X1 0", ExpressionCache.normalize("X1_0"));
+        assertEquals("X0*-Q12", ExpressionCache.normalize(" X0 * -Q012 "));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        ExpressionCache cache = new ExpressionCache(2, 1);
+        CompiledExpression a = cache.compile("X0");
+        cache.compile("X1");
+        cache.compile("X0"); // X1 is now the eldest
+        cache.compile("X2");
+        assertEquals(1, cache.evictions());
+        assertSame(a, cache.compile("X0"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void truthTablesMatchRowEvaluationAndAreReadOnly() {
+        ExpressionCache cache = new ExpressionCache(64, 64);
+        Random random = new Random(10);
+        for (int trial = 0; trial < 200; trial++) {
+            int inputs = 1 + random.nextInt(5);
+            int flipFlops = 1 + random.nextInt(5);
+            String source = RandomCircuits.expression(random, inputs, flipFlops, 4);
+            LongBuffer table = cache.truthTable(source, inputs, flipFlops);
+            CompiledExpression expression = CompiledExpression.compile(source);
+            long rows = 1L << (inputs + flipFlops);
+            for (long row = 0; row < rows; row++) {
+                long inputBits = StateTableGenerator.inputBits(row, inputs);
+                long stateBits = StateTableGenerator.stateBits(row, inputs, flipFlops);
+                assertEquals(expression.evaluate(inputBits, stateBits), (table.get((int) (row >>> 6)) >>> (row & 63)) & 1L);
+            }
+            assertTrue(table.isReadOnly());
+            assertThrows(ReadOnlyBufferException.class, () -> table.put(0, -1L));
+        }
+        assertTrue(cache.tableHits() + cache.tableMisses() == 200);
+    }
+
+    @Test
+    void generationReadsRecurringExcitationTablesFromTheCache() {
+        // Both circuits' J functions are one expression spelled two ways
+        StateTableGenerator first = new StateTableGenerator(2, 3, 1, "JK",
+                new String[]{"X0*-Q1+X2\nQ0", "X1\n-X2"}, new String[]{"Q0*Q1"});
+        StateTableGenerator second = new StateTableGenerator(2, 3, 1, "JK",
+                new String[]{"X0 * -Q1 + X2\nX1", "Q0\n-X2"}, new String[]{"Q0+Q1"});
+        ExpressionCache shared = ExpressionCache.shared();
+        first.generateBitSliced();
+        long hits = shared.tableHits();
+        BitSlicedStateTable table = second.generateBitSliced();
+        assertEquals(hits + 4, shared.tableHits());
+
+        for (long row = 0; row < second.rowCount(); row++) {
+            long inputBits = StateTableGenerator.inputBits(row, 3);
+            long next = second.nextState(inputBits, StateTableGenerator.stateBits(row, 3, 2));
+            for (int j = 0; j < 2; j++) assertEquals((next >>> j) & 1L, table.nextState(j, row));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FusedCircuitTest {
+    @Test
+    void rowsMatchCircuit() {
+        Random random = new Random(21);
+        for (int trial = 0; trial < 100; trial++) {
+            int flipFlops = 1 + random.nextInt(30);
+            int inputs = 1 + random.nextInt(63 - flipFlops);
+            Circuit circuit = RandomCircuits.generator(random, flipFlops, inputs, random.nextInt(10)).circuit();
+            FusedCircuit fused = circuit.fused();
+            long[] registers = fused.newRegisters();
+            for (int i = 0; i < 500; i++) {
+                long inputBits = random.nextLong() & ((1L << inputs) - 1);
+                long stateBits = random.nextLong() & ((1L << flipFlops) - 1);
+                long next = circuit.nextState(inputBits, stateBits);
+                assertEquals(next, fused.nextState(inputBits, stateBits, registers));
+                assertEquals(circuit.outputs(inputBits, next), fused.outputBits(registers));
+            }
+        }
+    }
+
+    @Test
+    void wordsAndRestrictedProgramsMatchCircuit() {
+        Random random = new Random(22);
+        for (int trial = 0; trial < 100; trial++) {
+            int flipFlops = 1 + random.nextInt(20);
+            int inputs = 1 + random.nextInt(20);
+            int outputs = random.nextInt(10);
+            Circuit circuit = RandomCircuits.generator(random, flipFlops, inputs, outputs).circuit();
+            FusedCircuit fused = circuit.fused();
+            long[] registers = fused.newRegisters();
+            long[] inputWords = new long[inputs];
+            long[] stateWords = new long[flipFlops];
+            for (int i = 0; i < 20; i++) {
+                for (int k = 0; k < inputs; k++) inputWords[k] = random.nextLong();
+                for (int k = 0; k < flipFlops; k++) stateWords[k] = random.nextLong();
+                fused.evaluate(inputWords, stateWords, registers);
+                for (int lane = 0; lane < Long.SIZE; lane++) {
+                    long inputBits = 0;
+                    long stateBits = 0;
+                    for (int k = 0; k < inputs; k++) inputBits |= ((inputWords[k] >>> lane) & 1L) << k;
+                    for (int k = 0; k < flipFlops; k++) stateBits |= ((stateWords[k] >>> lane) & 1L) << k;
+                    long next = circuit.nextState(inputBits, stateBits);
+                    long out = circuit.outputs(inputBits, next);
+                    for (int j = 0; j < flipFlops; j++) assertEquals((next >>> j) & 1L, (fused.nextStateWord(registers, j) >>> lane) & 1L);
+                    for (int k = 0; k < outputs; k++) assertEquals((out >>> k) & 1L, (fused.outputWord(registers, k) >>> lane) & 1L);
+                }
+
+                // A restricted program computes the same words for the roots it keeps, from fewer nodes
+                long nextStates = random.nextLong() & ((1L << flipFlops) - 1);
+                long outputMask = random.nextLong() & ((1L << outputs) - 1);
+                FusedCircuit restricted = fused.restrict(nextStates, outputMask);
+                assertTrue(restricted.size() <= fused.size());
+                long[] restrictedRegisters = restricted.newRegisters();
+                restricted.evaluate(inputWords, stateWords, restrictedRegisters);
+                for (int j = 0; j < flipFlops; j++) {
+                    if (((nextStates >>> j) & 1L) != 0) {
+                        assertEquals(fused.nextStateWord(registers, j), restricted.nextStateWord(restrictedRegisters, j));
+                    }
+                }
+                for (int k = 0; k < outputs; k++) {
+                    if (((outputMask >>> k) & 1L) != 0) {
+                        assertEquals(fused.outputWord(registers, k), restricted.outputWord(restrictedRegisters, k));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void sharedSubtermsAreComputedOnce() {
+        // X0*-Q1 appears in every function but becomes a single node
+        Circuit circuit = Circuit.compile(3, FlipFlopKind.parse("JK", 2),
+                new String[]{"X0*-Q1+X1\nX0*-Q1", "X0*-Q1*X2\n-(X0*-Q1)"}, new String[]{"X0*-Q1+Q0"});
+        int postfix = 0;
+        for (int j = 0; j < circuit.flipFlops(); j++) {
+            for (CompiledExpression part : circuit.excitations(j)) postfix += part.length();
+        }
+        for (CompiledExpression output : circuit.outputFunctions()) postfix += output.length();
+        assertTrue(circuit.fused().size() < postfix, circuit.fused().size() + " nodes");
+    }
+}
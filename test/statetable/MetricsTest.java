@@ -0,0 +1,76 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Runs in the surefire execution that sets -Dstatetable.metrics=true; skipped elsewhere, since
+// Metrics.ENABLED is fixed when the class loads
+class MetricsTest {
+    private static final String[] FUNCTIONS = {"X0*Q1+X3", "Q0*-X1", "X2+Q2*X0"};
+    private static final String[] OUTPUTS = {"Q0*Q1*Q2", "X3+-Q2"};
+
+    @BeforeEach
+    void enabled() {
+        assumeTrue(Metrics.ENABLED, "run with -Dstatetable.metrics=true");
+        Metrics.reset();
+    }
+
+    @Test
+    void generationCountsRowsAndEvaluations() {
+        StateTableGenerator generator = new StateTableGenerator(3, 4, 2, "D", FUNCTIONS, OUTPUTS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, out);
+        generator.writeStateTable(writer);
+        writer.flush();
+
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        assertEquals(1, snapshot.generations);
+        assertEquals(128, snapshot.rows);
+        assertEquals(out.size(), snapshot.bytesWritten);
+        // One next-state bit per flip-flop and row, however the columns were computed
+        assertEquals(128 * 3, snapshot.nextStateEvaluations);
+
+        // Functions that read few variables are evaluated on fewer points than there are rows,
+        // but every one is evaluated, and the totals add up
+        for (String[] functions : new String[][]{FUNCTIONS, OUTPUTS}) {
+            for (String function : functions) {
+                long count = snapshot.evaluationsPerExpression.getOrDefault(function, 0L);
+                assertTrue(count > 0 && count <= 128, function + ": " + count);
+            }
+        }
+        long total = 0;
+        for (long count : snapshot.evaluationsPerExpression.values()) total += count;
+        assertEquals(total, snapshot.expressionEvaluations);
+        assertTrue(snapshot.toString().contains("Tables generated:        1 (128 rows"), snapshot.toString());
+    }
+
+    @Test
+    void rowByRowEvaluationCountsEveryExpressionOncePerRow() {
+        Circuit circuit = Circuit.compile(4, FlipFlopKind.parse("JK,D", 2), new String[]{"X0*-Q1\nX1+Q0", "X2*Q0"},
+                new String[]{"Q0+Q1*X3"});
+        FusedCircuit fused = circuit.fused();
+        long[] registers = fused.newRegisters();
+        for (long state = 0; state < 4; state++) {
+            for (long inputs = 0; inputs < 16; inputs++) {
+                circuit.outputs(inputs, circuit.nextState(inputs, state));
+                fused.nextState(inputs, state, registers);
+            }
+        }
+
+        // 64 rows, each evaluated once through the circuit and once through the fused DAG
+        Metrics.Snapshot snapshot = Metrics.snapshot();
+        assertEquals(2 * 64 * 2, snapshot.nextStateEvaluations);
+        Map<String, Long> perExpression = snapshot.evaluationsPerExpression;
+        for (String function : new String[]{"X0*-Q1", "X1+Q0", "X2*Q0", "Q0+Q1*X3"}) {
+            assertEquals(128, perExpression.get(function), function);
+        }
+        assertEquals(4 * 128, snapshot.expressionEvaluations);
+        assertEquals(0, snapshot.generations);
+    }
+}
@@ -0,0 +1,128 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class PackedBitStoreTest {
+    @Test
+    void fieldsRoundTripAcrossLongsAndBuffers() {
+        Random random = new Random(18);
+        try (OffHeapArena arena = new OffHeapArena()) {
+            for (int width = 1; width <= Long.SIZE; width++) {
+                long mask = width == Long.SIZE ? -1L : (1L << width) - 1;
+                int size = 300 + random.nextInt(300);
+                // Buffers of 8 longs, so fields cross buffer boundaries often
+                PackedBitStore set = new PackedBitStore(arena, size, width, 3);
+                PackedBitStore appended = new PackedBitStore(arena, size, width, 3);
+                long[] expected = new long[size];
+                for (int i = 0; i < size; i++) {
+                    expected[i] = random.nextLong();
+                    set.set(i, expected[i]);
+                }
+                int start = random.nextInt(size);
+                for (int i = 0; i < start; i++) appended.set(i, expected[i]);
+                PackedBitStore.Appender appender = appended.appender(start);
+                for (int i = start; i < size; i++) appender.put(expected[i]);
+                appender.flush();
+
+                for (int i = 0; i < size; i++) {
+                    assertEquals(expected[i] & mask, set.get(i), "width " + width + " index " + i);
+                    assertEquals(expected[i] & mask, appended.get(i), "width " + width + " index " + i);
+                }
+                int first = random.nextInt(size);
+                long[] bulk = new long[size - first + 2];
+                appended.get(first, bulk, 2, size - first);
+                for (int i = first; i < size; i++) assertEquals(expected[i] & mask, bulk[i - first + 2], "width " + width + " index " + i);
+                assertThrows(IllegalArgumentException.class, () -> set.get(size));
+                assertThrows(IllegalArgumentException.class, () -> set.get(first, bulk, 0, size - first + 1));
+                assertThrows(IllegalStateException.class, () -> appender.put(0));
+            }
+        }
+    }
+
+    @Test
+    void accessAfterCloseFails() {
+        OffHeapArena arena = new OffHeapArena();
+        PackedBitStore store = new PackedBitStore(arena, 1000, 5);
+        store.set(3, 17);
+        PackedBitStore.Appender appender = store.appender(10);
+        appender.put(5);
+        appender.flush();
+        arena.close();
+        assertFalse(arena.isOpen());
+        assertEquals(0, arena.allocatedBytes());
+        assertThrows(IllegalStateException.class, () -> store.get(3));
+        assertThrows(IllegalStateException.class, () -> store.get(0, new long[4], 0, 4));
+        assertThrows(IllegalStateException.class, () -> store.set(3, 1));
+        assertThrows(IllegalStateException.class, () -> store.appender(0));
+        assertThrows(IllegalStateException.class, appender::flush);
+        arena.close(); // closing twice is harmless
+    }
+
+    @Test
+    void closeWaitsForAnUnflushedAppender() throws InterruptedException {
+        OffHeapArena arena = new OffHeapArena();
+        PackedBitStore store = new PackedBitStore(arena, 1000, 7);
+        PackedBitStore.Appender appender = store.appender(0);
+        Thread closer = new Thread(arena::close);
+        closer.start();
+        while (arena.isOpen()) Thread.onSpinWait();
+        // The appender still holds the arena, so its memory stays mapped until it is flushed
+        for (int i = 0; i < 100; i++) appender.put(i);
+        closer.join(50);
+        assertTrue(closer.isAlive());
+        appender.flush();
+        closer.join();
+        assertEquals(0, arena.allocatedBytes());
+    }
+
+    @Test
+    void closeWaitsForConcurrentReaders() throws InterruptedException {
+        for (int trial = 0; trial < 20; trial++) {
+            OffHeapArena arena = new OffHeapArena();
+            // 1.6 MB buffers are unmapped when freed, so a read racing close() would crash the JVM
+            PackedBitStore store = new PackedBitStore(arena, 1 << 20, 13);
+            for (long i = 0; i < store.size(); i++) store.set(i, i);
+
+            int readers = 4;
+            CountDownLatch started = new CountDownLatch(readers);
+            AtomicLong reads = new AtomicLong();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < readers; t++) {
+                Thread thread = new Thread(() -> {
+                    started.countDown();
+                    try {
+                        for (long i = 0; ; i = (i + 1) & (store.size() - 1)) {
+                            // A read either sees the stored value or fails cleanly; it never sees freed memory
+                            if (store.get(i) != (i & ((1 << 13) - 1))) throw new AssertionError("wrong value at " + i);
+                            reads.incrementAndGet();
+                        }
+                    } catch (IllegalStateException expected) {
+                        // the arena was closed
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            started.await();
+            while (reads.get() < 1000) Thread.onSpinWait();
+            arena.close();
+            for (Thread thread : threads) thread.join();
+            if (failure.get() != null) throw new AssertionError(failure.get());
+            assertTrue(reads.get() >= 1000);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package statetable;
+
+import java.util.Random;
+
+// Random well-formed expressions and mixed-kind circuits for the comparison tests
+final class RandomCircuits {
+    private RandomCircuits() {
+    }
+
+    // A random expression over X0..X<inputs-1> and Q0..Q<flipFlops-1>, nested up to depth
+    static String expression(Random random, int inputs, int flipFlops, int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            int leaf = random.nextInt(5);
+            if (leaf < 2) return "X" + random.nextInt(inputs);
+            if (leaf < 4) return "Q" + random.nextInt(flipFlops);
+            return String.valueOf(random.nextInt(2));
+        }
+        return switch (random.nextInt(3)) {
+            case 0 -> "-(" + expression(random, inputs, flipFlops, depth - 1) + ")";
+            case 1 -> "(" + expression(random, inputs, flipFlops, depth - 1) + "*" + expression(random, inputs, flipFlops, depth - 1) + ")";
+            default -> "(" + expression(random, inputs, flipFlops, depth - 1) + "+" + expression(random, inputs, flipFlops, depth - 1) + ")";
+        };
+    }
+
+    static FlipFlopKind[] kinds(Random random, int flipFlops) {
+        FlipFlopKind[] all = FlipFlopKind.values();
+        FlipFlopKind[] kinds = new FlipFlopKind[flipFlops];
+        for (int j = 0; j < flipFlops; j++) kinds[j] = all[random.nextInt(all.length)];
+        return kinds;
+    }
+
+    // One function per flip-flop; SR and JK get both parts separated by a newline
+    static String[] flipFlopFunctions(Random random, FlipFlopKind[] kinds, int inputs) {
+        String[] functions = new String[kinds.length];
+        for (int j = 0; j < kinds.length; j++) {
+            functions[j] = expression(random, inputs, kinds.length, 3);
+            if (kinds[j].excitations() == 2) functions[j] += "\n" + expression(random, inputs, kinds.length, 3);
+        }
+        return functions;
+    }
+
+    static String[] outputFunctions(Random random, int outputs, int inputs, int flipFlops) {
+        String[] functions = new String[outputs];
+        for (int k = 0; k < outputs; k++) functions[k] = expression(random, inputs, flipFlops, 3);
+        return functions;
+    }
+
+    static StateTableGenerator generator(Random random, int flipFlops, int inputs, int outputs) {
+        FlipFlopKind[] kinds = kinds(random, flipFlops);
+        return new StateTableGenerator(flipFlops, inputs, outputs, FlipFlopKind.describe(kinds),
+                flipFlopFunctions(random, kinds, inputs), outputFunctions(random, outputs, inputs, flipFlops));
+    }
+
+    // A generator of 1..maxFlipFlops flip-flops, 1..maxInputs inputs and 0..3 outputs
+    static StateTableGenerator generator(Random random, int maxFlipFlops, int maxInputs) {
+        return generator(random, 1 + random.nextInt(maxFlipFlops), 1 + random.nextInt(maxInputs), random.nextInt(4));
+    }
+}
@@ -0,0 +1,86 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ReachableStateExplorerTest {
+    @Test
+    void randomCircuitsMatchNaiveSearch() {
+        Random random = new Random(12);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 8, 4);
+            long initial = random.nextLong() & ((1L << generator.flipFlops()) - 1);
+            check(generator, initial);
+        }
+    }
+
+    @Test
+    void wideCircuitsUseTheHashedSet() {
+        // Q0..Q5 random, every higher flip-flop copies one of them: 46 flip-flops, few states
+        Random random = new Random(13);
+        for (int trial = 0; trial < 10; trial++) {
+            int flipFlops = ReachableStateExplorer.PAGED_FLIP_FLOPS + 6;
+            String[] functions = new String[flipFlops];
+            for (int j = 0; j < 6; j++) functions[j] = RandomCircuits.expression(random, 2, 6, 3);
+            for (int j = 6; j < flipFlops; j++) functions[j] = "Q" + (j % 6);
+            StateTableGenerator generator = new StateTableGenerator(flipFlops, 2, 0, "D", functions, new String[0]);
+            check(generator, random.nextLong() & ((1L << flipFlops) - 1));
+        }
+    }
+
+    @Test
+    void largeLevelsSpanQueueAndTablePages() {
+        // An 18-bit shift register behind 26 copies: 2^18 states, the widest level 2^17
+        int flipFlops = ReachableStateExplorer.PAGED_FLIP_FLOPS + 4;
+        String[] functions = new String[flipFlops];
+        functions[0] = "X0";
+        for (int j = 1; j < 18; j++) functions[j] = "Q" + (j - 1);
+        for (int j = 18; j < flipFlops; j++) functions[j] = "Q" + (j - 18);
+        StateTableGenerator generator = new StateTableGenerator(flipFlops, 1, 0, "D", functions, new String[0]);
+        ReachableStateExplorer.Result result = check(generator, 0);
+        assertTrue(result.states() > 1 << 18, "states " + result.states());
+    }
+
+    @Test
+    void rejectsInitialStatesWiderThanTheCircuit() {
+        StateTableGenerator generator = new StateTableGenerator(2, 1, 0, "D", new String[]{"X0", "Q0"}, new String[0]);
+        assertThrows(IllegalArgumentException.class, () -> new ReachableStateExplorer(generator).explore(0b100));
+    }
+
+    // Explores with both the explorer and a plain HashMap/ArrayDeque BFS and compares the visit order
+    private static ReachableStateExplorer.Result check(StateTableGenerator generator, long initial) {
+        List<Long> expected = new ArrayList<>();
+        Map<Long, Integer> depths = new HashMap<>();
+        ArrayDeque<Long> queue = new ArrayDeque<>();
+        depths.put(initial, 0);
+        queue.add(initial);
+        int depth = 0;
+        while (!queue.isEmpty()) {
+            long state = queue.remove();
+            expected.add(state);
+            depth = Math.max(depth, depths.get(state));
+            for (long inputBits = 0; inputBits < 1L << generator.inputs(); inputBits++) {
+                long next = generator.nextState(inputBits, state);
+                if (depths.putIfAbsent(next, depths.get(state) + 1) == null) queue.add(next);
+            }
+        }
+
+        List<Long> visited = new ArrayList<>();
+        ReachableStateExplorer.Result result = new ReachableStateExplorer(generator).explore(initial, null, visited::add);
+        assertEquals(expected.size(), result.states());
+        assertEquals((long) expected.size() << generator.inputs(), result.rows());
+        assertEquals(depth, result.depth());
+        assertArrayEquals(expected.toArray(), visited.toArray());
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SimulatorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void stepsFollowTheCircuit() {
+        Random random = new Random(8);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 6, 8);
+            Circuit circuit = generator.circuit();
+            long stateMask = (1L << generator.flipFlops()) - 1;
+            long initial = random.nextLong() & stateMask;
+
+            Simulator[] simulators = {new Simulator(generator, true), new Simulator(generator, false)};
+            for (Simulator simulator : simulators) simulator.reset(initial);
+            long state = initial;
+            for (int cycle = 0; cycle < 500; cycle++) {
+                long inputBits = random.nextLong() & ((1L << generator.inputs()) - 1);
+                long next = circuit.nextState(inputBits, state);
+                long outputs = circuit.outputs(inputBits, next);
+                for (Simulator simulator : simulators) {
+                    // High input bits beyond the circuit's inputs are ignored
+                    assertEquals(next, simulator.step(inputBits | (-1L << generator.inputs())));
+                    assertEquals(outputs, simulator.outputs());
+                }
+                state = next;
+            }
+            for (Simulator simulator : simulators) assertEquals(500, simulator.cycles());
+        }
+    }
+
+    @Test
+    void stepsFromAStoredTable() {
+        Random random = new Random(9);
+        StateTableGenerator generator = RandomCircuits.generator(random, 4, 4, 2);
+        try (OffHeapStateTable table = OffHeapStateTable.generate(generator)) {
+            Simulator stored = new Simulator(generator, table);
+            Simulator evaluated = new Simulator(generator, false);
+            for (int cycle = 0; cycle < 1000; cycle++) {
+                long inputBits = random.nextInt(16);
+                assertEquals(evaluated.step(inputBits), stored.step(inputBits));
+                assertEquals(evaluated.outputs(), stored.outputs());
+            }
+        }
+    }
+
+    @Test
+    void traceListsEveryCycleAsATableRow() {
+        StateTableGenerator generator = new StateTableGenerator(2, 2, 1, "JK",
+                new String[]{"X0*Q1\n-X0", "Q0\nX1"}, new String[]{"X0*Q0+Q1"});
+        String stimulus = "# X0 X1\n00\n1 0\n\n1,1\n01\n10";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter trace = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, out);
+        trace.writeHeader();
+        Simulator simulator = new Simulator(generator);
+        simulator.reset(0b10);
+        long cycles = simulator.run(new StimulusReader(new ByteArrayInputStream(stimulus.getBytes(StandardCharsets.US_ASCII)), 2), trace);
+        trace.flush();
+        assertEquals(5, cycles);
+
+        ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        StateTableWriter expected = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, expectedOut);
+        expected.writeHeader();
+        long state = 0b10;
+        for (long inputBits : new long[]{0b00, 0b01, 0b11, 0b10, 0b01}) {
+            long next = generator.nextState(inputBits, state);
+            expected.writeRow(StateTableGenerator.rowIndex(inputBits, state, 2, 2), next, generator.outputs(inputBits, next));
+            state = next;
+        }
+        expected.flush();
+        assertEquals(expectedOut.toString(StandardCharsets.US_ASCII), out.toString(StandardCharsets.US_ASCII));
+        assertEquals(state, simulator.state());
+    }
+
+    @Test
+    void stimulusRejectsMalformedLines() {
+        long[] batch = new long[4];
+        StimulusReader wide = new StimulusReader(new ByteArrayInputStream("101\n".getBytes(StandardCharsets.US_ASCII)), 2);
+        assertThrows(IllegalArgumentException.class, () -> wide.read(batch));
+        StimulusReader invalid = new StimulusReader(new ByteArrayInputStream("1x\n".getBytes(StandardCharsets.US_ASCII)), 2);
+        assertThrows(IllegalArgumentException.class, () -> invalid.read(batch));
+    }
+
+    @Test
+    void simulateCommandWritesTheTrace() throws IOException {
+        Path spec = directory.resolve("counter.properties");
+        Files.writeString(spec, "type = T\nflipFlops = 2\ninputs = 1\noutputs = 1\nff0 = X0\nff1 = X0*Q0\nout0 = Q0*Q1\ninitialState = 00\n");
+        Path stimulus = directory.resolve("stimulus.txt");
+        Files.writeString(stimulus, "1\n1\n1\n0\n1\n");
+        Path trace = directory.resolve("trace.csv");
+
+        assertEquals(0, FlipFlopStateTable.runSimulation(new String[]{"--simulate", spec.toString(), stimulus.toString(),
+                "--trace", trace.toString(), "--format", "csv"}));
+
+        // A 2-bit counter enabled by X0, Q0 the low bit: 00 -> 10 -> 01 -> 11 -> 11 -> 00 (Q0 first)
+        StateTableGenerator generator = CircuitSpec.load(spec).toGenerator();
+        ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        StateTableWriter expected = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, expectedOut);
+        expected.writeHeader();
+        long state = 0;
+        long[] states = {0b01, 0b10, 0b11, 0b11, 0b00};
+        long[] inputs = {1, 1, 1, 0, 1};
+        for (int i = 0; i < inputs.length; i++) {
+            long next = generator.nextState(inputs[i], state);
+            assertEquals(states[i], next);
+            expected.writeRow(StateTableGenerator.rowIndex(inputs[i], state, 1, 2), next, generator.outputs(inputs[i], next));
+            state = next;
+        }
+        expected.flush();
+        assertEquals(expectedOut.toString(StandardCharsets.US_ASCII), Files.readString(trace));
+    }
+
+    @Test
+    void simulateCommandRejectsUnknownOptions() throws IOException {
+        Path spec = directory.resolve("d.properties");
+        Files.writeString(spec, "type = D\nflipFlops = 1\ninputs = 1\noutputs = 0\nff0 = X0\n");
+        assertEquals(2, FlipFlopStateTable.runSimulation(new String[]{"--simulate", spec.toString(), spec.toString(), "--bogus", "1"}));
+    }
+}
@@ -0,0 +1,118 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.Test;
+
+class StateMinimizerTest {
+    @Test
+    void fullStateSpaceMatchesBruteForceRefinement() {
+        Random random = new Random(13);
+        int merged = 0;
+        for (int trial = 0; trial < 80; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 1 + random.nextInt(6), 1 + random.nextInt(3), random.nextInt(3));
+            long[] states = new long[1 << generator.flipFlops()];
+            for (int s = 0; s < states.length; s++) states[s] = s;
+            StateMinimizer.Result result = StateMinimizer.minimize(generator);
+            check(generator, states, result);
+            if (result.classes() < result.states()) merged++;
+        }
+        assertTrue(merged > 20, "merged " + merged);
+    }
+
+    @Test
+    void reachableStatesMatchBruteForceRefinement() {
+        Random random = new Random(14);
+        for (int trial = 0; trial < 80; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 1 + random.nextInt(7), 1 + random.nextInt(3), random.nextInt(3));
+            long initial = random.nextLong() & ((1L << generator.flipFlops()) - 1);
+            check(generator, reachable(generator, initial), StateMinimizer.minimize(generator, initial));
+        }
+    }
+
+    @Test
+    void mergesStatesThatDifferOnlyInAnUnobservedBit() {
+        // Q1 only follows Q0, and the output ignores it: states 00/01 and 10/11 (Q0 Q1) merge
+        StateTableGenerator generator = new StateTableGenerator(2, 1, 1, "D", new String[]{"X0*-Q0+-X0*Q0", "Q0"}, new String[]{"Q0"});
+        StateMinimizer.Result result = StateMinimizer.minimize(generator);
+        assertEquals(2, result.classes());
+        assertEquals(result.classOfState(0b00), result.classOfState(0b10));
+        assertEquals(result.classOfState(0b01), result.classOfState(0b11));
+    }
+
+    // Compares the minimizer's partition with one refined round by round from the output rows,
+    // and checks the class numbering, representatives and class transitions
+    private static void check(StateTableGenerator generator, long[] states, StateMinimizer.Result result) {
+        int symbols = 1 << generator.inputs();
+        int n = states.length;
+        int[][] next = new int[n][symbols];
+        long[][] outputs = new long[n][symbols];
+        for (int s = 0; s < n; s++) {
+            for (int a = 0; a < symbols; a++) {
+                long nextState = generator.nextState(a, states[s]);
+                next[s][a] = Arrays.binarySearch(states, nextState);
+                outputs[s][a] = generator.outputs(a, nextState);
+            }
+        }
+
+        int[] block = number(n, s -> Arrays.toString(outputs[s]));
+        while (true) {
+            int[] current = block;
+            int[] refined = number(n, s -> {
+                StringBuilder key = new StringBuilder().append(current[s]);
+                for (int a = 0; a < symbols; a++) key.append(',').append(current[next[s][a]]);
+                return key.toString();
+            });
+            if (Arrays.equals(refined, block)) break;
+            block = refined;
+        }
+
+        assertEquals(n, result.states());
+        assertEquals(Arrays.stream(block).max().getAsInt() + 1, result.classes());
+        // Both number classes in order of their first state, so the partitions must be identical
+        for (int s = 0; s < n; s++) {
+            assertEquals(states[s], result.state(s));
+            assertEquals(block[s], result.classOf(s), "state " + s);
+            assertEquals(block[s], result.classOfState(states[s]));
+        }
+        for (int c = 0; c < result.classes(); c++) {
+            int representative = Arrays.binarySearch(states, result.representative(c));
+            assertEquals(c, block[representative]);
+            for (int s = 0; s < representative; s++) assertTrue(block[s] != c);
+            for (int a = 0; a < symbols; a++) {
+                assertEquals(block[next[representative][a]], result.next(c, a));
+                assertEquals(outputs[representative][a], result.outputs(c, a));
+            }
+        }
+    }
+
+    // Dense ids for the keys, in order of first appearance
+    private static int[] number(int n, IntFunction<String> key) {
+        Map<String, Integer> ids = new HashMap<>();
+        int[] numbers = new int[n];
+        for (int s = 0; s < n; s++) numbers[s] = ids.computeIfAbsent(key.apply(s), k -> ids.size());
+        return numbers;
+    }
+
+    private static long[] reachable(StateTableGenerator generator, long initial) {
+        TreeSet<Long> seen = new TreeSet<>(List.of(initial));
+        ArrayDeque<Long> queue = new ArrayDeque<>(seen);
+        while (!queue.isEmpty()) {
+            long state = queue.remove();
+            for (long inputBits = 0; inputBits < 1L << generator.inputs(); inputBits++) {
+                long next = generator.nextState(inputBits, state);
+                if (seen.add(next)) queue.add(next);
+            }
+        }
+        return seen.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,104 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StateTableFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsEveryRow() throws IOException {
+        Random random = new Random(6);
+        for (int trial = 0; trial < 40; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 7);
+            Path file = directory.resolve("table" + trial + ".stbl");
+            StateTableFile.write(generator, file, trial % 2 == 0 ? 1 : 3, 100);
+
+            try (StateTableFile table = StateTableFile.open(file)) {
+                assertTrue(table.verify());
+                assertEquals(generator.flipFlopType(), table.flipFlopType());
+                assertEquals(generator.rowCount(), table.rows());
+                assertArrayEquals(generator.flipFlopFunctions(), table.flipFlopFunctions());
+                assertArrayEquals(generator.outputFunctions(), table.outputFunctions());
+
+                StateTableGenerator rebuilt = table.generator();
+                for (long row = 0; row < table.rows(); row++) {
+                    long inputBits = StateTableGenerator.inputBits(row, generator.inputs());
+                    long stateBits = StateTableGenerator.stateBits(row, generator.inputs(), generator.flipFlops());
+                    long next = generator.nextState(inputBits, stateBits);
+                    long outputs = generator.outputs(inputBits, next);
+                    assertEquals(next, table.nextStateAt(row));
+                    assertEquals(outputs, table.outputsAt(row));
+                    assertEquals(next, table.nextState(inputBits, stateBits));
+                    assertEquals(outputs, table.outputs(inputBits, stateBits));
+                    assertEquals(next, rebuilt.nextState(inputBits, stateBits));
+                }
+                assertThrows(IllegalArgumentException.class, () -> table.nextStateAt(table.rows()));
+            }
+        }
+    }
+
+    @Test
+    void verifyDetectsDamagedRows() throws IOException {
+        Path file = write("D", new String[]{"X0*Q1", "X1+Q0"}, new String[]{"Q0*Q1"});
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 2 * Long.BYTES] ^= 1; // output of row 0: first byte of the last column word
+        Files.write(file, bytes);
+        try (StateTableFile table = StateTableFile.open(file)) {
+            assertFalse(table.verify());
+        }
+    }
+
+    @Test
+    void verifyDetectsEditedHeaderFunctions() throws IOException {
+        Path file = write("D", new String[]{"X0*Q1", "X1+Q0"}, new String[]{"Q0*Q1"});
+        byte[] bytes = Files.readAllBytes(file);
+        int at = indexOf(bytes, "X0*Q1".getBytes(StandardCharsets.UTF_8));
+        bytes[at + 1] = '1'; // X0*Q1 -> X1*Q1, same length so the header still parses
+        Files.write(file, bytes);
+        try (StateTableFile table = StateTableFile.open(file)) {
+            assertEquals("X1*Q1", table.flipFlopFunctions()[0]);
+            assertFalse(table.verify());
+        }
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.bin");
+        Files.write(file, new byte[64]);
+        assertThrows(IllegalArgumentException.class, () -> StateTableFile.open(file));
+    }
+
+    private Path write(String type, String[] functions, String[] outputs) throws IOException {
+        StateTableGenerator generator = new StateTableGenerator(functions.length, 2, outputs.length, type, functions, outputs);
+        Path file = directory.resolve("fixed.stbl");
+        StateTableFile.write(generator, file);
+        try (StateTableFile table = StateTableFile.open(file)) {
+            assertTrue(table.verify());
+        }
+        return file;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        outer:
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        throw new AssertionError("pattern not found");
+    }
+}
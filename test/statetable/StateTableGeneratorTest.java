@@ -0,0 +1,85 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StateTableGeneratorTest {
+    @Test
+    void parallelOutputMatchesSerial() throws Exception {
+        Random random = new Random(4);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 7);
+            String reference = printed(generator::generateStateTable);
+            for (int parallelism : new int[]{1, 3}) {
+                for (int chunkSize : new int[]{7, 64, 1000}) {
+                    assertEquals(reference, printed(() -> generator.generateStateTable(parallelism, chunkSize)),
+                            "parallel " + parallelism + "/" + chunkSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    void chunksArriveInRowOrder() {
+        Random random = new Random(9);
+        for (int trial = 0; trial < 40; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 7);
+            long from = random.nextInt((int) generator.rowCount());
+            long to = from + random.nextInt((int) (generator.rowCount() - from) + 1);
+            List<Long> rows = new ArrayList<>();
+            new ParallelStateTableGenerator(generator, 1 + random.nextInt(4), 1 + random.nextInt(50)).generate(from, to, chunk -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    long row = chunk.row(i);
+                    long inputBits = StateTableGenerator.inputBits(row, generator.inputs());
+                    long next = generator.nextState(inputBits, StateTableGenerator.stateBits(row, generator.inputs(), generator.flipFlops()));
+                    assertEquals(next, chunk.nextStateBits(i));
+                    assertEquals(generator.outputs(inputBits, next), chunk.outputBits(i));
+                    rows.add(row);
+                }
+            });
+            assertEquals(to - from, rows.size());
+            for (int i = 0; i < rows.size(); i++) assertEquals(from + i, rows.get(i));
+        }
+    }
+
+    @Test
+    void cursorRowsMatchCircuit() {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 40; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 7);
+            StateTableCursor cursor = generator.cursor();
+            long rows = 0;
+            while (cursor.next()) {
+                long next = generator.nextState(cursor.inputBits(), cursor.presentStateBits());
+                assertEquals(next, cursor.nextStateBits());
+                assertEquals(generator.outputs(cursor.inputBits(), next), cursor.outputBits());
+                rows++;
+            }
+            assertEquals(generator.rowCount(), rows);
+        }
+    }
+
+    private interface Generation {
+        void run() throws Exception;
+    }
+
+    // The generators print to System.out
+    private static String printed(Generation generation) throws Exception {
+        PrintStream original = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        try {
+            generation.run();
+        } finally {
+            System.setOut(original);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
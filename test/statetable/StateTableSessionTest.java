@@ -0,0 +1,122 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class StateTableSessionTest {
+    @Test
+    void editsMatchFreshlyBuiltGenerators() {
+        Random random = new Random(17);
+        for (int trial = 0; trial < 40; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 6, 1 + random.nextInt(3));
+            StateTableSession session = generator.session();
+            FlipFlopKind[] kinds = new FlipFlopKind[generator.flipFlops()];
+            for (int j = 0; j < kinds.length; j++) kinds[j] = generator.circuit().kind(j);
+            String[] functions = generator.flipFlopFunctions().clone();
+            String[] outputs = generator.outputFunctions().clone();
+            long[][] before = snapshot(session);
+
+            for (int edit = 0; edit < 10; edit++) {
+                StateTableSession.Change change;
+                boolean flipFlopEdit = random.nextBoolean();
+                int index;
+                if (flipFlopEdit) {
+                    index = random.nextInt(kinds.length);
+                    functions[index] = RandomCircuits.expression(random, generator.inputs(), kinds.length, 3);
+                    if (kinds[index].excitations() == 2) functions[index] += "\n" + RandomCircuits.expression(random, generator.inputs(), kinds.length, 3);
+                    change = session.setFlipFlopFunction(index, functions[index]);
+                } else {
+                    index = random.nextInt(outputs.length);
+                    outputs[index] = RandomCircuits.expression(random, generator.inputs(), kinds.length, 3);
+                    change = session.setOutputFunction(index, outputs[index]);
+                }
+
+                StateTableGenerator fresh = new StateTableGenerator(kinds.length, generator.inputs(), outputs.length,
+                        FlipFlopKind.describe(kinds), functions, outputs);
+                long[][] after = snapshot(session);
+                long changedNextStates = 0;
+                long changedOutputs = 0;
+                List<Long> changedRows = new ArrayList<>();
+                for (long row = 0; row < fresh.rowCount(); row++) {
+                    long inputBits = StateTableGenerator.inputBits(row, fresh.inputs());
+                    long next = fresh.nextState(inputBits, StateTableGenerator.stateBits(row, fresh.inputs(), fresh.flipFlops()));
+                    assertEquals(next, after[0][(int) row], "next state of row " + row);
+                    assertEquals(fresh.outputs(inputBits, next), after[1][(int) row], "outputs of row " + row);
+                    changedNextStates |= before[0][(int) row] ^ after[0][(int) row];
+                    changedOutputs |= before[1][(int) row] ^ after[1][(int) row];
+                    if (before[0][(int) row] != after[0][(int) row] || before[1][(int) row] != after[1][(int) row]) {
+                        changedRows.add(row);
+                    }
+                }
+
+                List<Long> reported = new ArrayList<>();
+                change.forEachRow(reported::add);
+                assertEquals(changedRows, reported);
+                assertEquals(changedRows.size(), change.rows());
+                assertEquals(changedRows.isEmpty(), change.isEmpty());
+                assertEquals(changedNextStates, change.changedNextStates());
+                assertEquals(changedOutputs, change.changedOutputs());
+                if (flipFlopEdit) {
+                    assertTrue((changedNextStates & ~(1L << index)) == 0);
+                } else {
+                    assertEquals(0, changedNextStates);
+                    assertTrue((changedOutputs & ~(1L << index)) == 0);
+                }
+                assertArrayEquals(functions, session.circuit().flipFlopFunctions());
+                before = after;
+            }
+        }
+    }
+
+    @Test
+    void changesWriteOnlyTheEditedRows() {
+        StateTableGenerator generator = new StateTableGenerator(2, 2, 1, "D", new String[]{"X0*Q1", "X1"}, new String[]{"Q0"});
+        StateTableSession session = generator.session();
+        // Q1' = X1 * X0 instead of X1: the 4 rows with X1 = 1 and X0 = 0 change; the output reads only Q0
+        StateTableSession.Change change = session.setFlipFlopFunction(1, "X1*X0");
+        assertEquals(4, change.rows());
+        assertEquals(0b10, change.changedNextStates());
+        assertEquals(0, change.changedOutputs());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, out);
+        change.write(writer);
+        writer.flush();
+        ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        StateTableWriter expected = StateTableWriter.forStream(StateTableWriter.Format.CSV, generator, expectedOut);
+        expected.writeHeader();
+        StateTableGenerator edited = new StateTableGenerator(2, 2, 1, "D", new String[]{"X0*Q1", "X1*X0"}, new String[]{"Q0"});
+        for (long row = 0; row < 16; row++) {
+            // X0 is row bit 1, X1 row bit 0
+            if ((row & 0b11) != 0b01) continue;
+            long inputBits = StateTableGenerator.inputBits(row, 2);
+            long next = edited.nextState(inputBits, StateTableGenerator.stateBits(row, 2, 2));
+            expected.writeRow(row, next, edited.outputs(inputBits, next));
+        }
+        expected.flush();
+        assertEquals(expectedOut.toString(StandardCharsets.US_ASCII), out.toString(StandardCharsets.US_ASCII));
+
+        session.setOutputFunction(0, "Q1");
+        assertThrows(IllegalStateException.class, () -> change.write(writer));
+        assertThrows(IllegalArgumentException.class, () -> session.setFlipFlopFunction(2, "X0"));
+    }
+
+    // Next state and outputs of every row
+    private static long[][] snapshot(StateTableSession session) {
+        long[][] values = new long[2][(int) session.rows()];
+        for (int row = 0; row < values[0].length; row++) {
+            values[0][row] = session.nextStateBits(row);
+            values[1][row] = session.outputBits(row);
+        }
+        return values;
+    }
+}
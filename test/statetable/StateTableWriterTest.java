@@ -0,0 +1,66 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class StateTableWriterTest {
+    @Test
+    void parallelOutputMatchesSerialForEveryFormat() {
+        Random random = new Random(4);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 7);
+            for (StateTableWriter.Format format : StateTableWriter.Format.values()) {
+                String reference = write(format, generator, writer -> writeRowByRow(generator, writer));
+                assertEquals(reference, write(format, generator, generator::writeStateTable), format + " serial");
+                for (int parallelism : new int[]{1, 3}) {
+                    for (int chunkSize : new int[]{7, 64, 1000}) {
+                        assertEquals(reference, write(format, generator, writer -> generator.writeStateTable(writer, parallelism, chunkSize)),
+                                format + " parallel " + parallelism + "/" + chunkSize);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void jsonRowNumbersAreWrittenUnsigned() {
+        StateTableGenerator generator = new StateTableGenerator(1, 1, 0, "D", new String[]{"X0"}, new String[0]);
+        long[] rows = {0, 9, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE, -1};
+        String output = write(StateTableWriter.Format.JSONL, generator, writer -> {
+            for (long row : rows) writer.writeRow(row, 0, 0);
+        });
+        String[] lines = output.split("\\R");
+        assertEquals(rows.length, lines.length);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals("{\"row\":" + Long.toUnsignedString(rows[i]) + ",", lines[i].substring(0, lines[i].indexOf(',') + 1));
+        }
+    }
+
+    @Test
+    void formatNamesAreCaseInsensitive() {
+        assertEquals(StateTableWriter.Format.JSONL, StateTableWriter.Format.fromName(" jsonl "));
+    }
+
+    // One row at a time through the circuit, without chunks or columns
+    private static void writeRowByRow(StateTableGenerator generator, StateTableWriter writer) {
+        writer.writeHeader();
+        for (long row = 0; row < generator.rowCount(); row++) {
+            long inputBits = StateTableGenerator.inputBits(row, generator.inputs());
+            long next = generator.nextState(inputBits, StateTableGenerator.stateBits(row, generator.inputs(), generator.flipFlops()));
+            writer.writeRow(row, next, generator.outputs(inputBits, next));
+        }
+    }
+
+    private static String write(StateTableWriter.Format format, StateTableGenerator generator, Consumer<StateTableWriter> body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter writer = StateTableWriter.forStream(format, generator, out);
+        body.accept(writer);
+        writer.flush();
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+}
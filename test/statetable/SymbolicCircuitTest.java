@@ -0,0 +1,160 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SymbolicCircuitTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void functionsAndRowCountsMatchEnumeration() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 60; trial++) {
+            StateTableGenerator generator = RandomCircuits.generator(random, 5, 6);
+            Circuit circuit = generator.circuit();
+            SymbolicCircuit symbolic = generator.symbolic();
+            int flipFlops = generator.flipFlops();
+            long[] nextStateOnes = new long[flipFlops];
+            long[] outputOnes = new long[generator.outputs()];
+
+            for (long row = 0; row < generator.rowCount(); row++) {
+                long inputBits = StateTableGenerator.inputBits(row, generator.inputs());
+                long stateBits = StateTableGenerator.stateBits(row, generator.inputs(), flipFlops);
+                long next = circuit.nextState(inputBits, stateBits);
+                long outputs = circuit.outputs(inputBits, next);
+                assertEquals(next, symbolic.nextState(inputBits, stateBits));
+                assertEquals(outputs, symbolic.outputs(inputBits, stateBits));
+                for (int j = 0; j < flipFlops; j++) nextStateOnes[j] += (next >>> j) & 1L;
+                for (int k = 0; k < outputOnes.length; k++) outputOnes[k] += (outputs >>> k) & 1L;
+            }
+
+            Bdd bdd = symbolic.bdd();
+            for (int j = 0; j < flipFlops; j++) {
+                int f = symbolic.nextStateFunction(j);
+                assertEquals(BigInteger.valueOf(nextStateOnes[j]), symbolic.rowCount(f));
+                // The functions do not use Q', so every row counts once per next-state assignment
+                assertEquals(BigInteger.valueOf(nextStateOnes[j]).shiftLeft(flipFlops), bdd.satCount(f));
+            }
+            for (int k = 0; k < outputOnes.length; k++) {
+                assertEquals(BigInteger.valueOf(outputOnes[k]), symbolic.rowCount(symbolic.outputFunction(k)));
+            }
+        }
+    }
+
+    @Test
+    void counterexamplesAreDifferingRows() {
+        Random random = new Random(12);
+        int differing = 0;
+        for (int trial = 0; trial < 200; trial++) {
+            StateTableGenerator first = RandomCircuits.generator(random, 4, 5);
+            StateTableGenerator second = variant(random, first);
+            Bdd bdd = SymbolicCircuit.manager(first.inputs(), first.flipFlops());
+            SymbolicCircuit a = first.symbolic(bdd);
+            SymbolicCircuit b = second.symbolic(bdd);
+
+            long lowest = lowestDifference(first, second);
+            long row = a.counterexample(b);
+            assertEquals(lowest == -1, a.equivalent(b));
+            if (lowest == -1) {
+                assertEquals(-1, row);
+            } else {
+                assertTrue(differs(first, second, row), "row " + row);
+                differing++;
+            }
+
+            EquivalenceChecker checker = new EquivalenceChecker(first.circuit(), second.circuit(), 1);
+            EquivalenceChecker.Result symbolic = checker.checkSymbolic();
+            assertEquals(lowest == -1, symbolic.equivalent());
+            assertEquals(checker.checkAll().equivalent(), symbolic.equivalent());
+            assertEquals(first.rowCount(), symbolic.rowsChecked());
+        }
+        // Both outcomes are exercised
+        assertTrue(differing > 20 && differing < 180, "differing " + differing);
+    }
+
+    @Test
+    void comparisonNeedsOneManager() {
+        StateTableGenerator generator = new StateTableGenerator(1, 1, 0, "D", new String[]{"X0"}, new String[0]);
+        SymbolicCircuit a = generator.symbolic();
+        SymbolicCircuit b = generator.symbolic();
+        assertThrows(IllegalArgumentException.class, () -> a.equivalent(b));
+        assertThrows(IllegalArgumentException.class, () -> generator.symbolic(new Bdd(5)));
+        Bdd shared = SymbolicCircuit.manager(1, 1);
+        assertTrue(generator.symbolic(shared).equivalent(generator.symbolic(shared)));
+    }
+
+    @Test
+    void equivalenceCommandComparesWideCircuitsSymbolically() throws IOException {
+        // 2^50 rows: only the symbolic check finishes
+        assertTrue(50 > EquivalenceChecker.SYMBOLIC_VARIABLES);
+        Path wide = wideSpec("wide", false, "Q19*X29");
+        Path respelled = wideSpec("respelled", true, "X29*Q19");
+        Path broken = wideSpec("broken", false, "Q19+X29");
+        assertEquals(0, FlipFlopStateTable.runEquivalence(new String[]{"--equivalence", wide.toString(), respelled.toString()}));
+        assertEquals(1, FlipFlopStateTable.runEquivalence(new String[]{"--equivalence", wide.toString(), broken.toString()}));
+
+        StateTableGenerator first = CircuitSpec.load(wide).toGenerator();
+        EquivalenceChecker checker = new EquivalenceChecker(first.circuit(), CircuitSpec.load(broken).toGenerator().circuit(), 1);
+        EquivalenceChecker.Counterexample counterexample = checker.checkSymbolic().counterexample();
+        assertNotEquals(counterexample.firstOutputs, counterexample.secondOutputs);
+        assertEquals(first.nextState(counterexample.inputBits, counterexample.firstState), counterexample.firstNextState);
+    }
+
+    // The same circuit with every function respelled, and about half the time one function replaced
+    private static StateTableGenerator variant(Random random, StateTableGenerator generator) {
+        String[] functions = generator.flipFlopFunctions().clone();
+        String[] outputs = generator.outputFunctions().clone();
+        for (int j = 0; j < functions.length; j++) {
+            String[] parts = functions[j].split("\n");
+            for (int p = 0; p < parts.length; p++) parts[p] = "(" + parts[p] + ")+(X0*-(X0))";
+            functions[j] = String.join("\n", parts);
+        }
+        for (int k = 0; k < outputs.length; k++) outputs[k] = "-(-(" + outputs[k] + "))";
+
+        if (random.nextBoolean()) {
+            int j = random.nextInt(functions.length);
+            String replacement = RandomCircuits.expression(random, generator.inputs(), generator.flipFlops(), 2);
+            functions[j] = functions[j].contains("\n") ? replacement + functions[j].substring(functions[j].indexOf('\n')) : replacement;
+        }
+        return new StateTableGenerator(generator.flipFlops(), generator.inputs(), outputs.length, generator.flipFlopType(), functions, outputs);
+    }
+
+    private static long lowestDifference(StateTableGenerator first, StateTableGenerator second) {
+        for (long row = 0; row < first.rowCount(); row++) {
+            if (differs(first, second, row)) return row;
+        }
+        return -1;
+    }
+
+    private static boolean differs(StateTableGenerator first, StateTableGenerator second, long row) {
+        long inputBits = StateTableGenerator.inputBits(row, first.inputs());
+        long stateBits = StateTableGenerator.stateBits(row, first.inputs(), first.flipFlops());
+        long nextA = first.nextState(inputBits, stateBits);
+        long nextB = second.nextState(inputBits, stateBits);
+        return nextA != nextB || first.outputs(inputBits, nextA) != second.outputs(inputBits, nextB);
+    }
+
+    // 20 D flip-flops and 30 inputs: Q0 <- X0 xor X1, Q<j> <- Q<j-1> * X<j+1>
+    private Path wideSpec(String name, boolean respell, String output) throws IOException {
+        StringBuilder spec = new StringBuilder("type = D\nflipFlops = 20\ninputs = 30\noutputs = 1\n");
+        spec.append("ff0 = ").append(respell ? "-X0*X1+X0*-X1" : "X0*-X1+-X0*X1").append('\n');
+        for (int j = 1; j < 20; j++) {
+            spec.append("ff").append(j).append(" = ").append(respell ? "X" + (j + 1) + "*Q" + (j - 1) : "Q" + (j - 1) + "*X" + (j + 1)).append('\n');
+        }
+        spec.append("out0 = ").append(output).append('\n');
+        Path file = directory.resolve(name + ".properties");
+        Files.writeString(file, spec);
+        return file;
+    }
+}
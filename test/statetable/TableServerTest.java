@@ -0,0 +1,164 @@
+package statetable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class TableServerTest {
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void tablesMatchTheGeneratorAndRepeatsHitTheCache() throws Exception {
+        try (TableServer server = TableServer.start(0, 2, 4, 1 << 20)) {
+            String spec = spec(3, 2, "Q0*X0");
+            HttpResponse<byte[]> first = post(server, "", spec);
+            assertEquals(200, first.statusCode());
+            assertEquals("miss", first.headers().firstValue("X-Cache").orElse(""));
+            assertArrayEquals(expected(spec, "text"), first.body());
+
+            // Layout and spacing of the spec do not change the cache key
+            HttpResponse<byte[]> repeat = post(server, "", spec.replace(" = ", "=") + "# comment\n");
+            assertEquals(200, repeat.statusCode());
+            assertEquals("hit", repeat.headers().firstValue("X-Cache").orElse(""));
+            assertArrayEquals(first.body(), repeat.body());
+
+            HttpResponse<byte[]> csv = post(server, "?format=csv", spec);
+            assertEquals("miss", csv.headers().firstValue("X-Cache").orElse(""));
+            assertArrayEquals(expected(spec, "csv"), csv.body());
+
+            assertEquals(400, post(server, "", "type = Q\n").statusCode());
+            assertEquals(2, stat(server, "computed"));
+            assertEquals(1, stat(server, "cacheHits"));
+        }
+    }
+
+    @Test
+    void concurrentIdenticalRequestsShareOneComputation() throws Exception {
+        try (TableServer server = TableServer.start(0, 1, 1, 1 << 20)) {
+            String spec = spec(4, 3, "Q1*X2");
+            List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>();
+            try (Socket blocker = occupyWorker(server)) {
+                // The only worker is busy, so the first request queues its computation and the rest join
+                // it; there are more of them than handler threads, so none may hold a thread while it waits
+                for (int i = 0; i < 2 * TableServer.HANDLER_THREADS; i++) {
+                    responses.add(postAsync(server, spec));
+                    awaitStat(server, "requests", i + 2);
+                }
+                awaitStat(server, "coalesced", responses.size() - 1);
+            }
+
+            byte[] expected = expected(spec, "text");
+            List<String> cacheStates = new ArrayList<>();
+            for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+                assertEquals(200, response.get().statusCode());
+                assertArrayEquals(expected, response.get().body());
+                cacheStates.add(response.get().headers().firstValue("X-Cache").orElse(""));
+            }
+            assertEquals(1, cacheStates.stream().filter("miss"::equals).count());
+            assertEquals(responses.size() - 1, cacheStates.stream().filter("coalesced"::equals).count());
+            assertEquals(1, stat(server, "computed"));
+        }
+    }
+
+    @Test
+    void fullQueueAnswersServiceUnavailable() throws Exception {
+        try (TableServer server = TableServer.start(0, 1, 1, 1 << 20)) {
+            CompletableFuture<HttpResponse<byte[]>> queued;
+            try (Socket blocker = occupyWorker(server)) {
+                queued = postAsync(server, spec(3, 3, "Q0"));
+                awaitStat(server, "queued", 1);
+
+                HttpResponse<byte[]> busy = post(server, "", spec(3, 3, "Q1"));
+                assertEquals(503, busy.statusCode());
+                assertEquals("1", busy.headers().firstValue("Retry-After").orElse(""));
+                assertEquals(1, stat(server, "rejected"));
+            }
+            assertEquals(200, queued.get().statusCode());
+            assertArrayEquals(expected(spec(3, 3, "Q0"), "text"), queued.get().body());
+        }
+    }
+
+    // Requests a streamed table of 2^24 rows and reads no further than its headers, so the worker
+    // writing it stays blocked on the socket until the returned connection is closed
+    private static Socket occupyWorker(TableServer server) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+        byte[] body = spec(10, 14, "Q0").getBytes(StandardCharsets.UTF_8);
+        OutputStream out = socket.getOutputStream();
+        out.write(("POST /table HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+        out.flush();
+        InputStream in = socket.getInputStream();
+        int matched = 0;
+        while (matched < 4) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Connection closed before the headers ended");
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : b == '\r' ? 1 : 0;
+        }
+        return socket;
+    }
+
+    private static String spec(int flipFlops, int inputs, String output) {
+        StringBuilder spec = new StringBuilder("type = D\nflipFlops = " + flipFlops + "\ninputs = " + inputs + "\noutputs = 1\n");
+        for (int j = 0; j < flipFlops; j++) {
+            spec.append("ff").append(j).append(" = X").append(j % inputs).append("*Q").append((j + 1) % flipFlops)
+                    .append("+-X").append((j + 2) % inputs).append('\n');
+        }
+        return spec.append("out0 = ").append(output).append('\n').toString();
+    }
+
+    private static byte[] expected(String spec, String format) throws IOException {
+        StateTableGenerator generator = CircuitSpec.parse("expected", spec).toGenerator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StateTableWriter writer = StateTableWriter.forStream(StateTableWriter.Format.fromName(format), generator, out);
+        generator.writeStateTable(writer);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private HttpResponse<byte[]> post(TableServer server, String query, String spec) throws IOException, InterruptedException {
+        return client.send(request(server, "/table" + query).POST(HttpRequest.BodyPublishers.ofString(spec)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> postAsync(TableServer server, String spec) {
+        return client.sendAsync(request(server, "/table").POST(HttpRequest.BodyPublishers.ofString(spec)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private long stat(TableServer server, String name) throws IOException, InterruptedException {
+        String stats = client.send(request(server, "/stats").GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+        for (String line : stats.split("\n")) {
+            if (line.startsWith(name + " ")) return Long.parseLong(line.substring(name.length() + 1));
+        }
+        throw new AssertionError("No " + name + " in " + stats);
+    }
+
+    private void awaitStat(TableServer server, String name, long value) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (stat(server, name) < value) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for " + name + " " + value);
+            Thread.sleep(5);
+        }
+    }
+
+    private static HttpRequest.Builder request(TableServer server, String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path));
+    }
+}